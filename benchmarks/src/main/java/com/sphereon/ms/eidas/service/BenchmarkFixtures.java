@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.config.BulkheadProperties;
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.spi.client.http.DataLoader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An EidasDelegate with only the collaborators the signing and verification core uses, and synthetic certificates like
+ * the warm-up signs with. Revocation requests are stubbed: they fail at once instead of going to the network, so a
+ * certificate with OCSP or CRL URLs measures the same on every machine
+ */
+final class BenchmarkFixtures implements AutoCloseable {
+    static final String PASSWORD = "benchmark";
+
+    private final Bulkheads bulkheads;
+    private final EidasDelegate delegate;
+
+    BenchmarkFixtures() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        this.bulkheads = new Bulkheads(new BulkheadProperties(), meterRegistry) {
+            @Override
+            public DataLoader revocationDataLoader(DataLoader dataLoader) {
+                return new StubDataLoader();
+            }
+        };
+        // Owner, repository, key envelopes, metering, audit, limits and flight recording are not on the measured paths
+        this.delegate = new EidasDelegate(null, null, null, null, null, null, bulkheads,
+                new PhaseTimers(meterRegistry, OpenTelemetry.noop().getTracer("benchmarks")), null);
+    }
+
+    EidasDelegate getDelegate() {
+        return delegate;
+    }
+
+    static EidasCertificate certificate(String keyAlgorithm) throws Exception {
+        return WarmUp.syntheticCertificate(keyAlgorithm, PASSWORD);
+    }
+
+    static byte[] p12(EidasCertificate certificate) {
+        return Base64.getDecoder().decode(certificate.getBase64CertificateString());
+    }
+
+    /**
+     * @return Random content, seeded so every run signs the same bytes
+     */
+    static byte[] payload(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    @Override
+    public void close() {
+        bulkheads.shutdown();
+    }
+
+    private static final class StubDataLoader implements DataLoader {
+
+        @Override
+        public byte[] get(String url) {
+            throw new DSSException("Revocation requests are stubbed in the benchmarks: " + url);
+        }
+
+        @Override
+        public DataAndUrl get(List<String> urlStrings) {
+            throw new DSSException("Revocation requests are stubbed in the benchmarks: " + urlStrings);
+        }
+
+        @Override
+        public byte[] get(String url, boolean refresh) {
+            return get(url);
+        }
+
+        @Override
+        public byte[] post(String url, byte[] content) {
+            return get(url);
+        }
+
+        @Override
+        public void setContentType(String contentType) {
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import eu.europa.esig.dss.cades.signature.CMSSignedDocument;
+import eu.europa.esig.dss.cades.validation.CAdESCertificateSource;
+import eu.europa.esig.dss.cades.validation.CMSDocumentValidator;
+import eu.europa.esig.dss.model.InMemoryDocument;
+import eu.europa.esig.dss.spi.x509.CommonTrustedCertificateSource;
+import eu.europa.esig.dss.validation.AdvancedSignature;
+import eu.europa.esig.dss.validation.SignedDocumentValidator;
+import org.bouncycastle.cms.CMSException;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.SignerInformation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The decoding work of verification without the validation itself, so its allocations are not hidden by it. The
+ * document round trip is how verification decoded a signature before: DSS re-encoded the parsed CMS and parsed it again,
+ * the trust source got its own certificate source, and the content came from the original documents. The shared
+ * decode is the current verification, where every stage uses the one parsed structure
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CmsDecodeBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    int payloadSize;
+
+    private BenchmarkFixtures fixtures;
+    private byte[] signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixtures = new BenchmarkFixtures();
+        signature = VerifyBenchmark.sign(fixtures, "RSA", payloadSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixtures.close();
+    }
+
+    @Benchmark
+    public void documentRoundTrip(Blackhole blackhole) throws CMSException {
+        CMSSignedData cmsSignedData = new CMSSignedData(signature);
+        SignerInformation signerInformation = new ArrayList<>(cmsSignedData.getSignerInfos().getSigners()).get(0);
+        CommonTrustedCertificateSource trustedCertSource = new CommonTrustedCertificateSource();
+        trustedCertSource.importAsTrusted(new CAdESCertificateSource(cmsSignedData, signerInformation));
+        SignedDocumentValidator documentValidator = SignedDocumentValidator.fromDocument(new CMSSignedDocument(cmsSignedData));
+        AdvancedSignature advancedSignature = documentValidator.getSignatures().get(0);
+        blackhole.consume(advancedSignature.getCertificateSource().getCertificates());
+        blackhole.consume(trustedCertSource);
+        InMemoryDocument original = (InMemoryDocument) documentValidator.getOriginalDocuments(advancedSignature.getId()).get(0);
+        blackhole.consume(original.getBase64Encoded());
+    }
+
+    @Benchmark
+    public void sharedDecode(Blackhole blackhole) throws CMSException {
+        CMSSignedData cmsSignedData = new CMSSignedData(signature);
+        CMSDocumentValidator documentValidator = new CMSDocumentValidator(cmsSignedData);
+        AdvancedSignature advancedSignature = documentValidator.getSignatures().get(0);
+        CommonTrustedCertificateSource trustedCertSource = new CommonTrustedCertificateSource();
+        trustedCertSource.importAsTrusted(advancedSignature.getCertificateSource());
+        blackhole.consume(advancedSignature.getCertificateSource().getCertificates());
+        blackhole.consume(trustedCertSource);
+        blackhole.consume(Base64.getEncoder().encodeToString((byte[]) cmsSignedData.getSignedContent().getContent()));
+    }
+}
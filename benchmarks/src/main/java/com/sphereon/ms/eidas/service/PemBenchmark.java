@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import eu.europa.esig.dss.token.Pkcs12SignatureToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PEM encoding of a signature and decoding of a signature in a request, for signatures of several payload sizes. The
+ * stream variants write to and read from streams, as the request and response bodies do
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PemBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    int payloadSize;
+
+    private BenchmarkFixtures fixtures;
+    private byte[] cms;
+    private String pem;
+    private byte[] pemBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixtures = new BenchmarkFixtures();
+        Pkcs12SignatureToken token = fixtures.getDelegate().getSignatureToken(
+                BenchmarkFixtures.p12(BenchmarkFixtures.certificate("RSA")), BenchmarkFixtures.PASSWORD);
+        try {
+            cms = fixtures.getDelegate().signWithToken(token, token.getKeys().get(0),
+                    BenchmarkFixtures.payload(payloadSize), "RSA");
+        } finally {
+            token.close();
+        }
+        pem = PemCodec.encode(cms);
+        pemBytes = pem.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixtures.close();
+    }
+
+    @Benchmark
+    public String toPem() {
+        return PemCodec.encode(cms);
+    }
+
+    @Benchmark
+    public void toPemStream() throws IOException {
+        PemCodec.encode(cms, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public byte[] fromPem() {
+        return PemCodec.decode(pem);
+    }
+
+    @Benchmark
+    public void fromPemStream() throws IOException {
+        PemCodec.decode(new ByteArrayInputStream(pemBytes), OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import eu.europa.esig.dss.token.DSSPrivateKeyEntry;
+import eu.europa.esig.dss.token.Pkcs12SignatureToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening a PKCS#12 file and decrypting its private key, which every signature with an imported certificate does
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Pkcs12UnlockBenchmark {
+
+    @Param({"RSA", "EC"})
+    String keyAlgorithm;
+
+    private BenchmarkFixtures fixtures;
+    private byte[] p12;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixtures = new BenchmarkFixtures();
+        p12 = BenchmarkFixtures.p12(BenchmarkFixtures.certificate(keyAlgorithm));
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixtures.close();
+    }
+
+    @Benchmark
+    public DSSPrivateKeyEntry unlock() {
+        Pkcs12SignatureToken token = fixtures.getDelegate().getSignatureToken(p12, BenchmarkFixtures.PASSWORD);
+        try {
+            return token.getKeys().get(0);
+        } finally {
+            token.close();
+        }
+    }
+}
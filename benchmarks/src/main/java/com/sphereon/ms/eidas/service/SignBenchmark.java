@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import eu.europa.esig.dss.token.DSSPrivateKeyEntry;
+import eu.europa.esig.dss.token.Pkcs12SignatureToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A CAdES-B signature with an unlocked PKCS#12 key, without the unlock and PEM encoding around it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignBenchmark {
+
+    @Param({"RSA", "EC"})
+    String keyAlgorithm;
+
+    @Param({"1024", "65536", "1048576"})
+    int payloadSize;
+
+    private BenchmarkFixtures fixtures;
+    private Pkcs12SignatureToken token;
+    private DSSPrivateKeyEntry privateKey;
+    private byte[] content;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixtures = new BenchmarkFixtures();
+        token = fixtures.getDelegate().getSignatureToken(BenchmarkFixtures.p12(BenchmarkFixtures.certificate(keyAlgorithm)),
+                BenchmarkFixtures.PASSWORD);
+        privateKey = token.getKeys().get(0);
+        content = BenchmarkFixtures.payload(payloadSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        token.close();
+        fixtures.close();
+    }
+
+    @Benchmark
+    public byte[] signWithPkcs12Token() throws IOException {
+        return fixtures.getDelegate().signWithToken(token, privateKey, content, keyAlgorithm);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureVerifyResponse;
+import eu.europa.esig.dss.token.Pkcs12SignatureToken;
+import org.bouncycastle.cms.CMSException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verification of a CAdES-B signature: CMS parsing, DSS validation with the simple report, and extraction of the signed
+ * content. The synthetic certificates are self-signed and trusted, and revocation requests are stubbed
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VerifyBenchmark {
+
+    @Param({"RSA", "EC"})
+    String keyAlgorithm;
+
+    @Param({"1024", "65536", "1048576"})
+    int payloadSize;
+
+    private BenchmarkFixtures fixtures;
+    private byte[] signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixtures = new BenchmarkFixtures();
+        signature = sign(fixtures, keyAlgorithm, payloadSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixtures.close();
+    }
+
+    @Benchmark
+    public CadesSignatureVerifyResponse verifySignatureBytes() throws CMSException {
+        return fixtures.getDelegate().verifySignatureBytes(signature);
+    }
+
+    static byte[] sign(BenchmarkFixtures fixtures, String keyAlgorithm, int payloadSize) throws Exception {
+        Pkcs12SignatureToken token = fixtures.getDelegate().getSignatureToken(
+                BenchmarkFixtures.p12(BenchmarkFixtures.certificate(keyAlgorithm)), BenchmarkFixtures.PASSWORD);
+        try {
+            return fixtures.getDelegate().signWithToken(token, token.getKeys().get(0),
+                    BenchmarkFixtures.payload(payloadSize), keyAlgorithm);
+        } finally {
+            token.close();
+        }
+    }
+}
@@ -18,13 +18,11 @@ package com.sphereon.ms.eidas;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 /**
  * Created by smalley on 10-8-20.
  */
 @SpringBootApplication(scanBasePackages =  {"com.sphereon.ms"})
-@EnableSwagger2
 public class EidasCertApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.api.model.audit;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A sign or verify audit event, or a sampled request trace. Never contains payloads, passwords or tokens; signed content
+ * and signatures are only referenced by their SHA-256 digest
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AuditEvent {
+    public enum Type {
+        SIGN, VERIFY, REQUEST_TRACE
+    }
+
+    public enum Outcome {
+        SUCCESS, FAILURE
+    }
+
+    private Instant timestamp;
+    private Type type;
+    private String owner;
+    private String certificate;
+    private String digest;
+    private long durationMicros;
+    private Outcome outcome;
+    private String error;
+    private String method;
+    private String path;
+    private Integer status;
+}
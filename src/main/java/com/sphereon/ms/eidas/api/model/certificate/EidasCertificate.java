@@ -16,15 +16,53 @@
 
 package com.sphereon.ms.eidas.api.model.certificate;
 
+import org.springframework.data.annotation.PersistenceConstructor;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document(collection = EidasCertificate.COLLECTION)
+@CompoundIndexes({
+        @CompoundIndex(def = "{'owner':1, 'name':1}", name = "owner_name", unique = true),
+        // Keyset paging sorts on name, so the filters are indexed as (equality, sort, range)
+        @CompoundIndex(def = "{'owner':1, 'issuer':1, 'name':1}", name = "owner_issuer_name"),
+        @CompoundIndex(def = "{'owner':1, 'keyType':1, 'name':1}", name = "owner_keyType_name"),
+        @CompoundIndex(def = "{'owner':1, 'name':1, 'notAfter':1}", name = "owner_name_notAfter")
+})
 public class EidasCertificate {
+    public static final String COLLECTION = "eidasCertificate";
+
     private final String owner;
     private final String name;
     private final String base64CertificateString;
+    private final String subject;
+    private final String issuer;
+    private final String keyType;
+    private final Instant notAfter;
+    private final String keyEnvelope;
 
     public EidasCertificate(String owner, String name, String base64CertificateString) {
+        this(owner, name, base64CertificateString, null, null, null, null);
+    }
+
+    public EidasCertificate(String owner, String name, String base64CertificateString,
+                            String subject, String issuer, String keyType, Instant notAfter) {
+        this(owner, name, base64CertificateString, subject, issuer, keyType, notAfter, null);
+    }
+
+    @PersistenceConstructor
+    public EidasCertificate(String owner, String name, String base64CertificateString,
+                            String subject, String issuer, String keyType, Instant notAfter, String keyEnvelope) {
         this.owner = owner;
         this.name = name;
         this.base64CertificateString = base64CertificateString;
+        this.subject = subject;
+        this.issuer = issuer;
+        this.keyType = keyType;
+        this.notAfter = notAfter;
+        this.keyEnvelope = keyEnvelope;
     }
 
     public String getName() {
@@ -38,4 +76,30 @@ public class EidasCertificate {
     public String getOwner() {
         return owner;
     }
+
+    /**
+     * @return The signing certificate subject DN, or null when the metadata could not be read at import
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public String getKeyType() {
+        return keyType;
+    }
+
+    public Instant getNotAfter() {
+        return notAfter;
+    }
+
+    /**
+     * @return The private key and chain re-wrapped with the tenant data key, or null when only the PKCS#12 is stored
+     */
+    public String getKeyEnvelope() {
+        return keyEnvelope;
+    }
 }
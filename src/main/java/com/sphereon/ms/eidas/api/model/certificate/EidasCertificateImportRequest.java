@@ -22,12 +22,30 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class  EidasCertificateImportRequest {
     private final String name;
     private final String base64Certificate;
+    private final String password;
+    private final boolean wrapKey;
 
+    public EidasCertificateImportRequest(String name, String base64Certificate) {
+        this(name, base64Certificate, null, null);
+    }
+
+    /**
+     * @param name              The certificate name
+     * @param base64Certificate The PKCS#12 certificate in base64 form
+     * @param password          Optional. Only used to read the certificate metadata (issuer, expiry, key type) for
+     *                          listing. It is never stored
+     * @param wrapKey           Optional. Also store the private key re-wrapped with the tenant data key, so signing does
+     *                          not have to decrypt the PKCS#12 every time. Requires the password
+     */
     @JsonCreator
     public EidasCertificateImportRequest(@JsonProperty("name") String name,
-                                         @JsonProperty("base64Certificate") String base64Certificate) {
+                                         @JsonProperty("base64Certificate") String base64Certificate,
+                                         @JsonProperty("password") String password,
+                                         @JsonProperty("wrapKey") Boolean wrapKey) {
         this.name = name;
         this.base64Certificate = base64Certificate;
+        this.password = password;
+        this.wrapKey = Boolean.TRUE.equals(wrapKey);
     }
 
     public String getBase64Certificate() {
@@ -37,4 +55,12 @@ public class  EidasCertificateImportRequest {
     public String getName() {
         return name;
     }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public boolean isWrapKey() {
+        return wrapKey;
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.api.model.certificate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EidasCertificateImportResult {
+    private String name;
+    private Status status;
+    private String message;
+
+    public static EidasCertificateImportResult imported(String name) {
+        return new EidasCertificateImportResult(name, Status.IMPORTED, null);
+    }
+
+    public static EidasCertificateImportResult duplicate(String name) {
+        return new EidasCertificateImportResult(name, Status.DUPLICATE, "Name already exists: " + name);
+    }
+
+    public static EidasCertificateImportResult invalid(String name, String message) {
+        return new EidasCertificateImportResult(name, Status.INVALID, message);
+    }
+
+    public static EidasCertificateImportResult failed(String name, String message) {
+        return new EidasCertificateImportResult(name, Status.FAILED, message);
+    }
+
+    public enum Status {
+        IMPORTED, DUPLICATE, INVALID, FAILED
+    }
+}
@@ -18,18 +18,35 @@ package com.sphereon.ms.eidas.api.model.signature;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sphereon.ms.eidas.service.DocumentBuffer;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.Base64;
 
 public class CadesSignatureRequest {
-    private final String content;
+    private final DocumentBuffer content;
     private final String password;
 
+    /**
+     * @param content  The base64 content to sign
+     * @param password The certificate password
+     */
+    public CadesSignatureRequest(String content, String password) {
+        this(content == null ? null : DocumentBuffer.of(Base64.getDecoder().decode(content)), password);
+    }
+
     @JsonCreator
-    public CadesSignatureRequest(@JsonProperty("content") String content, @JsonProperty("password") String password) {
+    public CadesSignatureRequest(@JsonProperty("content") DocumentBuffer content,
+                                 @JsonProperty("password") String password) {
         this.content = content;
         this.password = password;
     }
 
-    public String getContent() {
+    /**
+     * @return The decoded content, base64 in JSON
+     */
+    @ApiModelProperty(dataType = "java.lang.String")
+    public DocumentBuffer getContent() {
         return content;
     }
 
@@ -16,14 +16,48 @@
 
 package com.sphereon.ms.eidas.api.model.signature;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sphereon.ms.eidas.service.PemCodec;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+/**
+ * A signature created by this node holds the DER bytes, which are PEM encoded while the response is written
+ */
 public class CadesSignatureResponse {
-    private String signature;
+    private final String signature;
+    private final byte[] cms;
+
+    @JsonCreator
+    public CadesSignatureResponse(@JsonProperty("signature") String signature) {
+        this.signature = signature;
+        this.cms = null;
+    }
+
+    private CadesSignatureResponse(byte[] cms) {
+        this.signature = null;
+        this.cms = cms;
+    }
+
+    /**
+     * @param cms The DER encoded signature
+     */
+    public static CadesSignatureResponse ofCms(byte[] cms) {
+        return new CadesSignatureResponse(cms);
+    }
+
+    /**
+     * @return The PEM signature, which is encoded on every call for a response that holds the DER bytes
+     */
+    public String getSignature() {
+        return cms == null ? signature : PemCodec.encode(cms);
+    }
 
+    /**
+     * @return The DER encoded signature, null for a response created from a PEM string
+     */
+    @JsonIgnore
+    public byte[] getCms() {
+        return cms;
+    }
 }
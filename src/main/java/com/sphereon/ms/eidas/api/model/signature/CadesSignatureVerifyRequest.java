@@ -18,16 +18,30 @@ package com.sphereon.ms.eidas.api.model.signature;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sphereon.ms.eidas.service.DocumentBuffer;
+import com.sphereon.ms.eidas.service.PemCodec;
+import io.swagger.annotations.ApiModelProperty;
 
 public class CadesSignatureVerifyRequest {
-    private final String signature;
+    private final DocumentBuffer signature;
+
+    /**
+     * @param signature The PEM signature
+     */
+    public CadesSignatureVerifyRequest(String signature) {
+        this(signature == null ? null : DocumentBuffer.of(PemCodec.decode(signature)));
+    }
 
     @JsonCreator
-    public CadesSignatureVerifyRequest(@JsonProperty("signature") String signature) {
+    public CadesSignatureVerifyRequest(@JsonProperty("signature") DocumentBuffer signature) {
         this.signature = signature;
     }
 
-    public String getSignature() {
+    /**
+     * @return The DER signature, PEM in JSON
+     */
+    @ApiModelProperty(dataType = "java.lang.String")
+    public DocumentBuffer getSignature() {
         return signature;
     }
 }
@@ -17,6 +17,7 @@
 package com.sphereon.ms.eidas.api.model.signature;
 
 import eu.europa.esig.dss.simplereport.jaxb.XmlSimpleReport;
+import io.swagger.annotations.ApiModelProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -26,6 +27,10 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class CadesSignatureVerifyResponse {
     private boolean verified;
-    private String originalData;
+    /**
+     * The signed content, base64 in JSON
+     */
+    @ApiModelProperty(dataType = "java.lang.String")
+    private byte[] originalData;
     private XmlSimpleReport simpleReport;
 }
@@ -24,6 +24,7 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
@@ -38,6 +39,7 @@ import org.springframework.data.mongodb.core.convert.CustomConversions;
 import org.springframework.data.mongodb.core.convert.DbRefResolver;
 import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
 import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
 import org.springframework.lang.Nullable;
@@ -46,6 +48,17 @@ import org.springframework.util.StringUtils;
 
 public abstract class AbstractMongoConfigurationWithConverters {
 
+    private boolean useEntityIndex;
+
+
+    /**
+     * Take the entities from {@link MongoEntityIndex} instead of scanning the classpath, enabled by the fast-startup profile
+     */
+    @Value("${sphereon.eidas-sign-poc.mongo.entity-index:false}")
+    public void setUseEntityIndex(boolean useEntityIndex) {
+        this.useEntityIndex = useEntityIndex;
+    }
+
     public MongoMappingContext mongoMappingContext() throws ClassNotFoundException {
         MongoMappingContext mappingContext = new MongoMappingContext();
         mappingContext.setInitialEntitySet(this.getInitialEntitySet());
@@ -67,6 +80,17 @@ public abstract class AbstractMongoConfigurationWithConverters {
     }
 
 
+    protected MappingMongoConverter createReactiveMappingMongoConverter() {
+        try {
+            MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, this.mongoMappingContext());
+            converter.setCustomConversions(this.customConversions());
+            return converter;
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Could not create reactive MappingMongoConverter", e);
+        }
+    }
+
+
     protected FieldNamingStrategy fieldNamingStrategy() {
         return this.abbreviateFieldNames() ? new CamelCaseAbbreviatingFieldNamingStrategy() : PropertyNameFieldNamingStrategy.INSTANCE;
     }
@@ -78,6 +102,9 @@ public abstract class AbstractMongoConfigurationWithConverters {
 
 
     protected Set<Class<?>> getInitialEntitySet() throws ClassNotFoundException {
+        if (useEntityIndex) {
+            return new HashSet<>(MongoEntityIndex.ENTITIES);
+        }
         String basePackage = this.getMappingBasePackage();
         Set<Class<?>> initialEntitySet = new HashSet();
         if (StringUtils.hasText(basePackage)) {
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sphereon.ms.eidas.rest.AdmissionEndpoint;
+import com.sphereon.ms.eidas.rest.AdmissionFilter;
+import com.sphereon.ms.eidas.service.OwnerResolver;
+import com.sphereon.ms.eidas.service.TenantAdmission;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Per tenant rate and concurrency limits for the API, see {@link AdmissionProperties}
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+@ConditionalOnProperty(name = "sphereon.eidas-sign-poc.admission.enable", havingValue = "true", matchIfMissing = true)
+public class AdmissionConfig {
+
+    @Bean
+    public TenantAdmission tenantAdmission(AdmissionProperties admissionProperties) {
+        admissionProperties.validate();
+        return new TenantAdmission(admissionProperties);
+    }
+
+
+    @Bean
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(TenantAdmission tenantAdmission, OwnerResolver ownerResolver,
+                                                                   ObjectMapper objectMapper) {
+        FilterRegistrationBean<AdmissionFilter> registration =
+                new FilterRegistrationBean<>(new AdmissionFilter(tenantAdmission, ownerResolver, objectMapper));
+        registration.addUrlPatterns("/eidas/*");
+        return registration;
+    }
+
+
+    @Bean
+    public AdmissionEndpoint admissionEndpoint(TenantAdmission tenantAdmission) {
+        return new AdmissionEndpoint(tenantAdmission);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per tenant admission control. Tenants are assigned to a tier with sphereon.eidas-sign-poc.admission.owners.[owner]=[tier];
+ * tenants without an assignment use the default tier
+ */
+@Data
+@ConfigurationProperties(prefix = "sphereon.eidas-sign-poc.admission")
+public class AdmissionProperties {
+    private boolean enable = true;
+    private String defaultTier = "default";
+    private Map<String, Tier> tiers = new HashMap<>(Map.of("default", new Tier()));
+    private Map<String, String> owners = new HashMap<>();
+
+    /**
+     * Checks that the default tier and the tier of every owner are configured, so a typo fails startup instead of
+     * every request of the tenant
+     *
+     * @throws IllegalStateException When a tier is unknown
+     */
+    public void validate() {
+        if (!tiers.containsKey(defaultTier)) {
+            throw new IllegalStateException(String.format("Unknown admission default tier %s, configured tiers are %s",
+                    defaultTier, tiers.keySet()));
+        }
+        Map<String, String> unknown = new TreeMap<>();
+        owners.forEach((owner, tier) -> {
+            if (!tiers.containsKey(tier)) {
+                unknown.put(owner, tier);
+            }
+        });
+        if (!unknown.isEmpty()) {
+            throw new IllegalStateException(String.format("Unknown admission tiers for owners %s, configured tiers are %s",
+                    unknown, tiers.keySet()));
+        }
+    }
+
+    @Data
+    public static class Tier {
+        /**
+         * Sustained requests per second
+         */
+        private double ratePerSecond = 50;
+        /**
+         * Requests that may be done at once above the sustained rate
+         */
+        private int burst = 100;
+        /**
+         * Requests of one tenant that may be in progress at the same time
+         */
+        private int maxConcurrent = 32;
+    }
+}
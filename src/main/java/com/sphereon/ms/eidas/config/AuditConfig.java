@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sphereon.ms.eidas.nosql.MongoAuditSink;
+import com.sphereon.ms.eidas.rest.RequestTraceFilter;
+import com.sphereon.ms.eidas.service.AuditLog;
+import com.sphereon.ms.eidas.service.AuditSink;
+import com.sphereon.ms.eidas.service.LogAuditSink;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Audit pipeline configuration. Events go to the rolling audit log file by default, or to the auditEvent collection
+ * with sphereon.eidas-sign-poc.audit.sink=mongo
+ */
+@Configuration
+public class AuditConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "sphereon.eidas-sign-poc.audit.sink", havingValue = "mongo")
+    public AuditSink mongoAuditSink(@Qualifier("msMongoTemplate") MongoTemplate mongoTemplate) {
+        return new MongoAuditSink(mongoTemplate);
+    }
+
+
+    @Bean
+    @ConditionalOnMissingBean(AuditSink.class)
+    public AuditSink logAuditSink(ObjectMapper objectMapper) {
+        return new LogAuditSink(objectMapper);
+    }
+
+
+    @Bean
+    public FilterRegistrationBean<RequestTraceFilter> requestTraceFilter(AuditLog auditLog) {
+        FilterRegistrationBean<RequestTraceFilter> registration = new FilterRegistrationBean<>(new RequestTraceFilter(auditLog));
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sizes of the signing, validation and revocation I/O executors. Signing and validation are CPU-bound and default to the
+ * number of cores; revocation and AIA requests mostly wait on the network and get more threads
+ */
+@Data
+@ConfigurationProperties(prefix = "sphereon.eidas-sign-poc.bulkhead")
+public class BulkheadProperties {
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    private Pool sign = new Pool(CORES, 100);
+    private Pool validation = new Pool(2 * CORES, 200);
+    private Pool revocation = new Pool(64, 256);
+    /**
+     * Maximum time a validation waits for a single OCSP, CRL or AIA request
+     */
+    private long revocationTimeoutMs = 10000;
+
+    @Data
+    public static class Pool {
+        private int threads;
+        /**
+         * Tasks that may wait for a thread, further tasks are rejected
+         */
+        private int queueSize;
+
+        public Pool() {
+        }
+
+        public Pool(int threads, int queueSize) {
+            this.threads = threads;
+            this.queueSize = queueSize;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package com.sphereon.ms.eidas.config;
 import com.sphereon.ms.eidas.config.RestControllerConfigTemplate.Mode;
 import com.sphereon.ms.eidas.config.RestControllerConfigTemplate.SimplifiedDocketConfigurator;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.service.Contact;
@@ -26,6 +27,7 @@ import springfox.documentation.service.Tag;
 
 
 @Component
+@Profile("!" + FastStartupConfiguration.PROFILE)
 public class DocketConfigurator implements SimplifiedDocketConfigurator {
 
   @Value(value = "${sphereon.api.version:${sphereon.application.version}}")
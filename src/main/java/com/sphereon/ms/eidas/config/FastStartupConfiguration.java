@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import com.sphereon.ms.eidas.rest.StaticApiDocsController;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Production profile for pods that need to become ready quickly. Activate with the fast-startup profile, which (see
+ * application-fast-startup.properties) skips springfox and serves the swagger JSON generated at build time, takes the
+ * Mongo entities from {@link MongoEntityIndex} instead of scanning the classpath and initializes beans lazily. Beans that
+ * schedule work, create indexes or must fail fast are marked @Lazy(false)
+ */
+@Configuration
+@Profile(FastStartupConfiguration.PROFILE)
+public class FastStartupConfiguration {
+    public static final String PROFILE = "fast-startup";
+
+    @Bean
+    public StaticApiDocsController staticApiDocsController() {
+        return new StaticApiDocsController();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import com.sphereon.ms.eidas.nosql.FileEidasCertificateRepository;
+import com.sphereon.ms.eidas.nosql.FileTenantDataKeyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.nio.file.Paths;
+
+/**
+ * Stores the certificates in an embedded file backed store instead of MongoDB. Activate with the filestore profile,
+ * which also disables the Mongo configuration and auto-configuration (see application-filestore.properties). Intended
+ * for single node deployments, as the store cannot be shared between nodes
+ */
+@Configuration
+@Profile(FileStoreConfiguration.PROFILE)
+public class FileStoreConfiguration {
+    public static final String PROFILE = "filestore";
+
+    @Value("${sphereon.eidas-sign-poc.filestore.directory:data}")
+    private String directory;
+
+    @Value("${sphereon.eidas-sign-poc.filestore.sync-writes:true}")
+    private boolean syncWrites;
+
+    @Value("${sphereon.eidas-sign-poc.filestore.compaction-ratio:0.5}")
+    private double compactionRatio;
+
+    @Value("${sphereon.eidas-sign-poc.filestore.compaction-min-bytes:1048576}")
+    private long compactionMinBytes;
+
+
+    @Bean(destroyMethod = "close")
+    public FileEidasCertificateRepository fileEidasCertificateRepository() {
+        return new FileEidasCertificateRepository(Paths.get(directory), syncWrites, compactionRatio, compactionMinBytes);
+    }
+
+    @Bean
+    public FileTenantDataKeyStore fileTenantDataKeyStore() {
+        return new FileTenantDataKeyStore(Paths.get(directory, "datakeys"));
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import com.sphereon.ms.eidas.rest.FlightRecordingEndpoint;
+import com.sphereon.ms.eidas.service.SlowRequestRecorder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * The continuous flight recording with dumps of slow requests, see {@link FlightRecorderProperties}
+ */
+@Configuration
+@EnableConfigurationProperties(FlightRecorderProperties.class)
+public class FlightRecorderConfig {
+
+    @Bean(destroyMethod = "close")
+    @Lazy(false)
+    public SlowRequestRecorder slowRequestRecorder(FlightRecorderProperties flightRecorderProperties) {
+        return new SlowRequestRecorder(flightRecorderProperties);
+    }
+
+
+    @Bean
+    public FlightRecordingEndpoint flightRecordingEndpoint(SlowRequestRecorder slowRequestRecorder) {
+        return new FlightRecordingEndpoint(slowRequestRecorder);
+    }
+}
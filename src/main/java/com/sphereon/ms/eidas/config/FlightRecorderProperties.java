@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * The continuous flight recording and when it is dumped to disk. The recording uses the JDK default settings, which are
+ * meant to be left on in production
+ */
+@Data
+@ConfigurationProperties(prefix = "sphereon.eidas-sign-poc.flight-recorder")
+public class FlightRecorderProperties {
+    private boolean enabled = true;
+    /**
+     * How far back the recording goes, which is what a dump contains
+     */
+    private int maxAgeMinutes = 10;
+    private int maxSizeMb = 64;
+    /**
+     * A sign or verify request taking longer dumps the recording, 0 disables the automatic dumps
+     */
+    private long slowRequestThresholdMs = 5000;
+    /**
+     * Minimum time between automatic dumps, so a slow period does not fill the disk
+     */
+    private long minDumpIntervalSeconds = 300;
+    /**
+     * Number of dumps kept, older dumps are deleted
+     */
+    private int maxDumps = 10;
+    private String dumpDirectory = System.getProperty("java.io.tmpdir") + "/eidas-jfr";
+}
@@ -22,14 +22,18 @@ import com.mongodb.MongoCredential;
 import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import com.sphereon.ms.eidas.nosql.TracingCommandListener;
+import io.opentelemetry.api.trace.Tracer;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
@@ -40,6 +44,7 @@ import org.springframework.data.mongodb.repository.config.EnableMongoRepositorie
  * Created by Sander on 27-2-2017.
  */
 @Configuration("MongoConfiguration")
+@Profile("!" + FileStoreConfiguration.PROFILE)
 @EnableMongoRepositories(basePackages = {"com.sphereon.ms.eidas"}, mongoTemplateRef = "msMongoTemplate")
 public class MongoConfigurationMs extends AbstractMongoConfigurationWithConverters {
 
@@ -59,6 +64,8 @@ public class MongoConfigurationMs extends AbstractMongoConfigurationWithConverte
 
     private String connectionString;
 
+    private Tracer tracer;
+
 
     @Value("${sphereon.eidas.sign.poc.db.address:127.0.0.1}")
     public void setDBHostAddress(String value) {
@@ -102,21 +109,48 @@ public class MongoConfigurationMs extends AbstractMongoConfigurationWithConverte
     }
 
 
+    @Autowired(required = false)
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+
     @Bean(name = "msMongoClient", destroyMethod = "close")
     public MongoClient msMongoClient() {
         logger.info("Initialising Mongo client from eidas-sign-poc MongoConfigurationMs.");
+        return MongoClients.create(mongoClientSettings());
+    }
+
+
+    /**
+     * The client settings shared by the blocking and the reactive Mongo clients. Every command is traced as a span
+     *
+     * @return The settings from either the connection string or the individual properties
+     */
+    public MongoClientSettings mongoClientSettings() {
+        MongoClientSettings.Builder settings;
         if (StringUtils.isNoneBlank(connectionString)) {
             String connectStringWithDatabase = connectionString.replace("/?", '/' + dbName + '?');
             logger.info("The connection string is " + connectStringWithDatabase);
-            return MongoClients.create(new ConnectionString(connectStringWithDatabase));
+            settings = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(connectStringWithDatabase));
         } else {
             logger.info(String.format("The connection string is empty, using Mongo server on %s:%d", this.dbHostAddress, this.dbPort));
-            return mongoClientFromProperties();
+            settings = mongoClientSettingsFromProperties();
+        }
+        if (tracer != null) {
+            settings.addCommandListener(new TracingCommandListener(tracer));
         }
+        return settings.build();
+    }
+
+
+    public String getDbName() {
+        return dbName;
     }
 
 
-    private MongoClient mongoClientFromProperties() {
+    private MongoClientSettings.Builder mongoClientSettingsFromProperties() {
         final List<ServerAddress> serverAddresses = new ArrayList<>();
         serverAddresses.add(new ServerAddress(dbHostAddress, dbPort));
 
@@ -127,7 +161,7 @@ public class MongoConfigurationMs extends AbstractMongoConfigurationWithConverte
             mongoClientSettings.credential(MongoCredential.createCredential(userName, dbName, password.toCharArray()));
         }
 
-        return MongoClients.create(mongoClientSettings.build());
+        return mongoClientSettings;
     }
 
 
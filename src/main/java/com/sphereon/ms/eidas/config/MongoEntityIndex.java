@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+
+import java.util.Set;
+
+/**
+ * The @Document and @Persistent classes of the application, so the mapping context does not have to scan the classpath
+ * at startup. TestMongoEntityIndex fails the build when a scan finds a different set
+ */
+public final class MongoEntityIndex {
+    public static final Set<Class<?>> ENTITIES = Set.of(EidasCertificate.class);
+
+    private MongoEntityIndex() {
+    }
+}
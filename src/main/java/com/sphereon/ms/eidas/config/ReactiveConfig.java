@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import com.sphereon.ms.eidas.service.Bulkheads;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Schedulers for the reactive deployment mode. Signing and single certificate imports are submitted to the sign bulkhead
+ * executor of the servlet mode (see {@link Bulkheads}), which also owns and shuts down that executor. Signature
+ * validation uses the validation bulkhead through the delegate. The bulk import and listing call the blocking
+ * certificate repository, so they get a bounded elastic scheduler to keep them off the request threads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sphereon.eidas-sign-poc.reactive.enable", havingValue = "true")
+public class ReactiveConfig {
+
+    @Value("${sphereon.eidas-sign-poc.reactive.blocking.threads:200}")
+    private int blockingThreads;
+
+    @Value("${sphereon.eidas-sign-poc.reactive.blocking.queue-size:100000}")
+    private int blockingQueueSize;
+
+
+    @Bean(name = "signingScheduler")
+    public Scheduler signingScheduler(Bulkheads bulkheads) {
+        return Schedulers.fromExecutorService(bulkheads.getSignExecutor(), "eidas-sign");
+    }
+
+
+    @Bean(name = "blockingScheduler", destroyMethod = "dispose")
+    public Scheduler blockingScheduler() {
+        return Schedulers.newBoundedElastic(blockingThreads, blockingQueueSize, "eidas-blocking");
+    }
+}
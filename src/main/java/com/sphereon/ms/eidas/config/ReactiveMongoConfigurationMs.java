@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+/**
+ * Reactive Mongo client and repositories, only active in the reactive deployment mode. Uses the same connection
+ * settings as the blocking client in {@link MongoConfigurationMs}
+ */
+@Configuration("ReactiveMongoConfiguration")
+@Profile("!" + FileStoreConfiguration.PROFILE)
+@ConditionalOnProperty(name = "sphereon.eidas-sign-poc.reactive.enable", havingValue = "true")
+@EnableReactiveMongoRepositories(basePackages = {"com.sphereon.ms.eidas"}, reactiveMongoTemplateRef = "msReactiveMongoTemplate")
+public class ReactiveMongoConfigurationMs {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(ReactiveMongoConfigurationMs.class);
+
+    private final MongoConfigurationMs mongoConfiguration;
+
+
+    public ReactiveMongoConfigurationMs(MongoConfigurationMs mongoConfiguration) {
+        this.mongoConfiguration = mongoConfiguration;
+    }
+
+
+    @Bean(name = "msReactiveMongoClient", destroyMethod = "close")
+    public MongoClient msReactiveMongoClient() {
+        logger.info("Initialising reactive Mongo client from eidas-sign-poc ReactiveMongoConfigurationMs.");
+        return MongoClients.create(mongoConfiguration.mongoClientSettings());
+    }
+
+
+    @Bean(name = "msReactiveMongoDbFactory")
+    public ReactiveMongoDatabaseFactory msReactiveMongoDbFactory(@Qualifier("msReactiveMongoClient") MongoClient msReactiveMongoClient) {
+        return new SimpleReactiveMongoDatabaseFactory(msReactiveMongoClient, mongoConfiguration.getDbName());
+    }
+
+
+    @Bean(name = {"msReactiveMongoTemplate", "reactiveMongoTemplate"})
+    ReactiveMongoTemplate msReactiveMongoTemplate(@Qualifier("msReactiveMongoDbFactory") ReactiveMongoDatabaseFactory msReactiveMongoDbFactory,
+        @Qualifier("msReactiveMappingMongoConverter") MappingMongoConverter msReactiveMappingMongoConverter) {
+        return new ReactiveMongoTemplate(msReactiveMongoDbFactory, msReactiveMappingMongoConverter);
+    }
+
+
+    @Bean(name = "msReactiveMappingMongoConverter")
+    MappingMongoConverter msReactiveMappingMongoConverter() {
+        return mongoConfiguration.createReactiveMappingMongoConverter();
+    }
+}
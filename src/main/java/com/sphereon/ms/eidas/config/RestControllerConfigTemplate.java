@@ -27,6 +27,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.common.collect.Sets;
+import com.sphereon.ms.eidas.rest.DocumentJson;
+import com.sphereon.ms.eidas.service.DocumentBuffers;
 import com.sphereon.ms.rest.response.RequestHeaderAccess;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
@@ -37,16 +39,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
-import javax.servlet.Filter;
 import javax.servlet.ServletContext;
-import org.apache.catalina.filters.RequestDumperFilter;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
@@ -55,7 +55,6 @@ import org.springframework.web.context.ServletContextAware;
 import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
-import org.springframework.web.filter.CommonsRequestLoggingFilter;
 import org.springframework.web.filter.CorsFilter;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -81,7 +80,6 @@ import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 
 @Configuration
-@EnableSwagger2
 public class RestControllerConfigTemplate implements ServletContextAware {
 
     private ServletContext servletContext;
@@ -107,67 +105,6 @@ public class RestControllerConfigTemplate implements ServletContextAware {
     }
 
 
-    @Bean
-    Map<Mode, Docket> dockets(SimplifiedDocketConfigurator docketConfigurator,
-        @Qualifier("sphereonDocketConfig") SphereonDocketConfig sphereonDocketConfig, SecurityScheme securitySchema,
-        SecurityContext securityContext, TypeResolver typeResolver) {
-        Map<Mode, Docket> docketMap = new HashMap<>();
-        for (Mode mode : Mode.values()) {
-            ApiInfo apiInfo = getApiInfo(docketConfigurator, mode);
-            Docket docket = new Docket(DocumentationType.SWAGGER_2)
-                .groupName(mode.getGroupName())
-                .apiInfo(apiInfo)
-                .host(mode == Mode.SDK ? sphereonDocketConfig.getGatewayHostName() : "localhost")
-                .protocols(mode == Mode.SDK ? Sets.newHashSet("https") : Sets.newHashSet("http"))
-                .select()
-                .apis(basePackage("com.sphereon.ms.eidas"))
-
-//                .apis(requestHandler -> sphereonDocketConfig.getApiSelector().test(requestHandler))
-                .paths(sphereonDocketConfig.getPathSelector())
-                .build()
-                .directModelSubstitute(LocalDate.class, java.sql.Date.class)
-                .directModelSubstitute(OffsetDateTime.class, Date.class)
-                // Add below substitution since models would be created otherwise
-                // Bug in Springfox: since a list of bytearrays would be returned otherwise
-                .directModelSubstitute(byte[].class, byte.class)
-                .genericModelSubstitutes(ResponseEntity.class)
-                .alternateTypeRules(
-                    newRule(typeResolver.resolve(List.class, OffsetDateTime.class), typeResolver.resolve(List.class, Date.class)),
-                    newRule(typeResolver.resolve(DeferredResult.class, typeResolver.resolve(ResponseEntity.class, WildcardType.class)),
-                        typeResolver.resolve(WildcardType.class)))
-                .securitySchemes(mode == Mode.STORE ? newArrayList() : newArrayList(securitySchema))
-                .securityContexts(mode == Mode.STORE ? newArrayList() : newArrayList(securityContext))
-                .enableUrlTemplating(false)
-                .useDefaultResponseMessages(false)
-                .tags(sphereonDocketConfig.getFirstTag(), sphereonDocketConfig.getAdditionalTags());
-            docketMap.put(mode, docket);
-        }
-        return docketMap;
-    }
-
-
-    @Bean
-    SecurityContext securityContext(@Qualifier("sphereonDocketConfig") SphereonDocketConfig sphereonSphereonDocketConfig,
-        List<SecurityReference> defaultAuth) {
-        return SecurityContext.builder()
-            .securityReferences(defaultAuth)
-            .forPaths(sphereonSphereonDocketConfig.getPathSelector())
-            .build();
-    }
-
-
-    @Bean
-    Docket docketStore(Map<Mode, Docket> dockets) {
-        return dockets.get(Mode.STORE);
-    }
-
-
-    @Bean
-    Docket docketSdk(Map<Mode, Docket> dockets) {
-        return dockets.get(Mode.SDK);
-    }
-
-
     @Bean
     FilterRegistrationBean corsFilter() {
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -189,48 +126,6 @@ public class RestControllerConfigTemplate implements ServletContextAware {
     }
 
 
-    @Bean
-    OAuth securitySchema(@Qualifier("sphereonDocketConfig") SphereonDocketConfig sphereonDocketConfig) {
-        AuthorizationScope authorizationScope = new AuthorizationScope("global", "accessEverything");
-        LoginEndpoint loginEndpoint = new LoginEndpoint("https://" + sphereonDocketConfig.getGatewayHostName() + "/token");
-        GrantType ownerGrantType = new ResourceOwnerPasswordCredentialsGrant(loginEndpoint.getUrl());
-        GrantType clientGrantType = new ClientCredentialsGrant(loginEndpoint.getUrl());
-        return new OAuth("oauth2schema", newArrayList(authorizationScope), newArrayList(ownerGrantType, clientGrantType));
-    }
-
-
-    @Bean
-    List<SecurityReference> defaultAuth() {
-        AuthorizationScope authorizationScope
-            = new AuthorizationScope("global", "accessEverything");
-        AuthorizationScope[] authorizationScopes = new AuthorizationScope[1];
-        authorizationScopes[0] = authorizationScope;
-        return newArrayList(new SecurityReference("oauth2schema", authorizationScopes));
-    }
-
-
-    @Bean
-    @ConditionalOnProperty(name = "sphereon.request-logging-filter.enable", havingValue = "true")
-    Filter logFilter() {
-        CommonsRequestLoggingFilter filter = new CommonsRequestLoggingFilter();
-        filter.setIncludeQueryString(true);
-        filter.setIncludePayload(true);
-        filter.setMaxPayloadLength(5120);
-        return filter;
-    }
-
-
-    @Bean
-    @ConditionalOnProperty(name = "sphereon.request-dumper-filter.enable", havingValue = "true")
-    public FilterRegistrationBean requestDumperFilter() {
-        FilterRegistrationBean registration = new FilterRegistrationBean();
-        Filter requestDumperFilter = new RequestDumperFilter();
-        registration.setFilter(requestDumperFilter);
-        registration.addUrlPatterns("/*");
-        return registration;
-    }
-
-
     @Bean
     MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(@Qualifier("primaryObjectMapper") ObjectMapper objectMapper) {
         MappingJackson2HttpMessageConverter jsonConverter = new MappingJackson2HttpMessageConverter();
@@ -247,10 +142,13 @@ public class RestControllerConfigTemplate implements ServletContextAware {
     @Bean
     @Primary
     @Qualifier("primaryObjectMapper")
-    public ObjectMapper primaryObjectMapper() {
+    public ObjectMapper primaryObjectMapper(DocumentBuffers documentBuffers) {
         ObjectMapper objectMapper = new ObjectMapper();
+        // The buffers that large base64 request fields are decoded into, see DocumentJson
+        objectMapper.setConfig(objectMapper.getDeserializationConfig().withAttribute(DocumentBuffers.class, documentBuffers));
         objectMapper.findAndRegisterModules();
         objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.registerModule(new DocumentJson.SignatureApiModule());
         objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
         objectMapper.configure(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS, false);
         objectMapper.configure(MapperFeature.DEFAULT_VIEW_INCLUSION, false);
@@ -403,21 +301,6 @@ public class RestControllerConfigTemplate implements ServletContextAware {
     }
 
 
-    @Bean
-    SphereonDocketConfig sphereonDocketConfig(SimplifiedDocketConfigurator docketConfigurator) {
-        SimplifiedDocketConfigurator.Builder docketBuilder = new SimplifiedDocketConfigurator.Builder();
-        docketConfigurator.configureDocket(docketBuilder);
-        return docketBuilder.build();
-    }
-
-
-    private ApiInfo getApiInfo(SimplifiedDocketConfigurator docketConfigurator, Mode mode) {
-        ApiInfoBuilder apiInfoBuilder = new ApiInfoBuilder();
-        docketConfigurator.configureApiInfo(apiInfoBuilder, mode);
-        return apiInfoBuilder.build();
-    }
-
-
     @Bean
     public WebMvcConfigurer forwardToIndex() {
         return new WebMvcConfigurer() {
@@ -435,4 +318,110 @@ public class RestControllerConfigTemplate implements ServletContextAware {
             }
         };
     }
+
+
+    /**
+     * The springfox dockets, skipped with the fast-startup profile, which serves the swagger JSON generated at build
+     * time instead, see {@link FastStartupConfiguration}
+     */
+    @Configuration
+    @Profile("!" + FastStartupConfiguration.PROFILE)
+    @EnableSwagger2
+    static class SwaggerDocumentation {
+
+        @Bean
+        Map<Mode, Docket> dockets(SimplifiedDocketConfigurator docketConfigurator,
+            @Qualifier("sphereonDocketConfig") SphereonDocketConfig sphereonDocketConfig, SecurityScheme securitySchema,
+            SecurityContext securityContext, TypeResolver typeResolver) {
+            Map<Mode, Docket> docketMap = new HashMap<>();
+            for (Mode mode : Mode.values()) {
+                ApiInfo apiInfo = getApiInfo(docketConfigurator, mode);
+                Docket docket = new Docket(DocumentationType.SWAGGER_2)
+                    .groupName(mode.getGroupName())
+                    .apiInfo(apiInfo)
+                    .host(mode == Mode.SDK ? sphereonDocketConfig.getGatewayHostName() : "localhost")
+                    .protocols(mode == Mode.SDK ? Sets.newHashSet("https") : Sets.newHashSet("http"))
+                    .select()
+                    .apis(basePackage("com.sphereon.ms.eidas"))
+
+    //                .apis(requestHandler -> sphereonDocketConfig.getApiSelector().test(requestHandler))
+                    .paths(sphereonDocketConfig.getPathSelector())
+                    .build()
+                    .directModelSubstitute(LocalDate.class, java.sql.Date.class)
+                    .directModelSubstitute(OffsetDateTime.class, Date.class)
+                    // Add below substitution since models would be created otherwise
+                    // Bug in Springfox: since a list of bytearrays would be returned otherwise
+                    .directModelSubstitute(byte[].class, byte.class)
+                    .genericModelSubstitutes(ResponseEntity.class)
+                    .alternateTypeRules(
+                        newRule(typeResolver.resolve(List.class, OffsetDateTime.class), typeResolver.resolve(List.class, Date.class)),
+                        newRule(typeResolver.resolve(DeferredResult.class, typeResolver.resolve(ResponseEntity.class, WildcardType.class)),
+                            typeResolver.resolve(WildcardType.class)))
+                    .securitySchemes(mode == Mode.STORE ? newArrayList() : newArrayList(securitySchema))
+                    .securityContexts(mode == Mode.STORE ? newArrayList() : newArrayList(securityContext))
+                    .enableUrlTemplating(false)
+                    .useDefaultResponseMessages(false)
+                    .tags(sphereonDocketConfig.getFirstTag(), sphereonDocketConfig.getAdditionalTags());
+                docketMap.put(mode, docket);
+            }
+            return docketMap;
+        }
+
+
+        @Bean
+        SecurityContext securityContext(@Qualifier("sphereonDocketConfig") SphereonDocketConfig sphereonSphereonDocketConfig,
+            List<SecurityReference> defaultAuth) {
+            return SecurityContext.builder()
+                .securityReferences(defaultAuth)
+                .forPaths(sphereonSphereonDocketConfig.getPathSelector())
+                .build();
+        }
+
+
+        @Bean
+        Docket docketStore(Map<Mode, Docket> dockets) {
+            return dockets.get(Mode.STORE);
+        }
+
+
+        @Bean
+        Docket docketSdk(Map<Mode, Docket> dockets) {
+            return dockets.get(Mode.SDK);
+        }
+
+
+        @Bean
+        OAuth securitySchema(@Qualifier("sphereonDocketConfig") SphereonDocketConfig sphereonDocketConfig) {
+            AuthorizationScope authorizationScope = new AuthorizationScope("global", "accessEverything");
+            LoginEndpoint loginEndpoint = new LoginEndpoint("https://" + sphereonDocketConfig.getGatewayHostName() + "/token");
+            GrantType ownerGrantType = new ResourceOwnerPasswordCredentialsGrant(loginEndpoint.getUrl());
+            GrantType clientGrantType = new ClientCredentialsGrant(loginEndpoint.getUrl());
+            return new OAuth("oauth2schema", newArrayList(authorizationScope), newArrayList(ownerGrantType, clientGrantType));
+        }
+
+
+        @Bean
+        List<SecurityReference> defaultAuth() {
+            AuthorizationScope authorizationScope
+                = new AuthorizationScope("global", "accessEverything");
+            AuthorizationScope[] authorizationScopes = new AuthorizationScope[1];
+            authorizationScopes[0] = authorizationScope;
+            return newArrayList(new SecurityReference("oauth2schema", authorizationScopes));
+        }
+
+
+        @Bean
+        SphereonDocketConfig sphereonDocketConfig(SimplifiedDocketConfigurator docketConfigurator) {
+            SimplifiedDocketConfigurator.Builder docketBuilder = new SimplifiedDocketConfigurator.Builder();
+            docketConfigurator.configureDocket(docketBuilder);
+            return docketBuilder.build();
+        }
+
+
+        private ApiInfo getApiInfo(SimplifiedDocketConfigurator docketConfigurator, Mode mode) {
+            ApiInfoBuilder apiInfoBuilder = new ApiInfoBuilder();
+            docketConfigurator.configureApiInfo(apiInfoBuilder, mode);
+            return apiInfoBuilder.build();
+        }
+    }
 }
@@ -17,8 +17,6 @@
 package com.sphereon.ms.eidas.config;
 
 import com.sphereon.ms.rest.response.RequestHeaderAccess;
-import javax.servlet.Filter;
-import org.apache.catalina.filters.RequestDumperFilter;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -27,7 +25,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
-import org.springframework.web.filter.CommonsRequestLoggingFilter;
 import org.springframework.web.filter.CorsFilter;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -35,25 +32,8 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class SpringConfig extends WebSecurityConfigurerAdapter {
 
-  // This is often created for you for some spring cloud starters
-
-  @Bean
-  public FilterRegistrationBean requestDumperFilter() {
-    FilterRegistrationBean registration = new FilterRegistrationBean();
-    Filter requestDumperFilter = new RequestDumperFilter();
-    registration.setFilter(requestDumperFilter);
-    registration.addUrlPatterns("/*");
-    return registration;
-  }
-
-  @Bean
-  public Filter logFilter() {
-    CommonsRequestLoggingFilter filter = new CommonsRequestLoggingFilter();
-    filter.setIncludeQueryString(true);
-    filter.setIncludePayload(true);
-    filter.setMaxPayloadLength(5120);
-    return filter;
-  }
+  // Requests are not dumped or logged with their payload, which would include documents and passwords. Sign and verify
+  // events and sampled request traces go to the audit pipeline instead (see AuditConfig)
 
   @Bean
   public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
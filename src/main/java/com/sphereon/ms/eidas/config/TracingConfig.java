@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import com.sphereon.ms.eidas.rest.TracingFilter;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * OpenTelemetry tracing with W3C trace-context propagation. Spans are exported to an OTLP collector (HTTP) with
+ * sphereon.eidas-sign-poc.tracing.exporter=otlp or written to the log with logging; tracing is a no-op by default
+ */
+@Configuration
+public class TracingConfig {
+    public static final String INSTRUMENTATION_NAME = "com.sphereon.ms.eidas";
+
+    @Value("${sphereon.eidas-sign-poc.tracing.exporter:none}")
+    private String exporter;
+
+    @Value("${sphereon.eidas-sign-poc.tracing.otlp.endpoint:http://localhost:4318/v1/traces}")
+    private String otlpEndpoint;
+
+    @Value("${sphereon.eidas-sign-poc.tracing.sample-ratio:1.0}")
+    private double sampleRatio;
+
+    @Value("${spring.application.name:eidas-sign-poc}")
+    private String serviceName;
+
+
+    @Bean
+    public OpenTelemetry openTelemetry() {
+        SpanExporter spanExporter;
+        switch (exporter) {
+            case "none":
+                return OpenTelemetry.noop();
+            case "logging":
+                spanExporter = LoggingSpanExporter.create();
+                break;
+            case "otlp":
+                spanExporter = OtlpHttpSpanExporter.builder().setEndpoint(otlpEndpoint).build();
+                break;
+            default:
+                throw new IllegalStateException("Unknown tracing exporter " + exporter + ", use none, logging or otlp");
+        }
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(Resource.create(
+                        Attributes.of(AttributeKey.stringKey("service.name"), serviceName))))
+                .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(sampleRatio)))
+                .addSpanProcessor(BatchSpanProcessor.builder(spanExporter).build())
+                .build();
+        // Closed by Spring on shutdown, which flushes the pending spans
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .build();
+    }
+
+
+    @Bean
+    public Tracer tracer(OpenTelemetry openTelemetry) {
+        return openTelemetry.getTracer(INSTRUMENTATION_NAME);
+    }
+
+
+    @Bean
+    public FilterRegistrationBean<TracingFilter> tracingFilter(OpenTelemetry openTelemetry, Tracer tracer) {
+        FilterRegistrationBean<TracingFilter> registration = new FilterRegistrationBean<>(new TracingFilter(openTelemetry, tracer));
+        registration.addUrlPatterns("/eidas/*");
+        // Before security and admission, so rejected requests are traced as well
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import com.sphereon.ms.eidas.nosql.EidasCertificateStore;
+import com.sphereon.ms.eidas.service.Bulkheads;
+import com.sphereon.ms.eidas.service.EidasDelegate;
+import com.sphereon.ms.eidas.service.KeyEnvelopeService;
+import com.sphereon.ms.eidas.service.WarmUp;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * The warm-up before the application reports ready, see {@link WarmUpProperties}
+ */
+@Configuration
+@EnableConfigurationProperties(WarmUpProperties.class)
+@ConditionalOnProperty(name = "sphereon.eidas-sign-poc.warm-up.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmUpConfig {
+
+    @Bean
+    public WarmUp warmUp(WarmUpProperties warmUpProperties, EidasDelegate eidasDelegate,
+                         EidasCertificateStore certificateRepository, KeyEnvelopeService keyEnvelopeService,
+                         Bulkheads bulkheads, ObjectProvider<MongoTemplate> mongoTemplate) {
+        // No Mongo with the file store profile
+        return new WarmUp(warmUpProperties, eidasDelegate, certificateRepository, keyEnvelopeService, bulkheads,
+                mongoTemplate.getIfAvailable());
+    }
+}
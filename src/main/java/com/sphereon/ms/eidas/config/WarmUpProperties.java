@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the warm-up does before the application reports ready
+ */
+@Data
+@ConfigurationProperties(prefix = "sphereon.eidas-sign-poc.warm-up")
+public class WarmUpProperties {
+    private boolean enabled = true;
+    /**
+     * Synthetic signatures and verifications per key algorithm
+     */
+    private int iterations = 20;
+    /**
+     * Key algorithms of the synthetic certificates, RSA and/or EC
+     */
+    private List<String> keyAlgorithms = new ArrayList<>(List.of("RSA", "EC"));
+    /**
+     * Mongo connections opened before the first request
+     */
+    private int mongoConnections = 10;
+    /**
+     * Tenants whose certificates are read and whose key envelope data keys are unwrapped ahead of their first request
+     */
+    private List<String> owners = new ArrayList<>();
+    /**
+     * OCSP responder and CRL URLs requested once, to resolve their hosts and load the HTTP client
+     */
+    private List<String> revocationUrls = new ArrayList<>();
+    /**
+     * The application reports ready after this time, even when the warm-up did not finish
+     */
+    private int timeoutSeconds = 120;
+    /**
+     * Fail the startup when a warm-up step fails, used to check a native image build
+     */
+    private boolean failOnError = false;
+}
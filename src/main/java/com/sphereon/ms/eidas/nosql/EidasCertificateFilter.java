@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import java.time.Instant;
+
+/**
+ * Optional filters for listing certificates. Null values do not filter
+ */
+public class EidasCertificateFilter {
+    private final String issuer;
+    private final String keyType;
+    private final Instant expiresAfter;
+    private final Instant expiresBefore;
+
+    public EidasCertificateFilter(String issuer, String keyType, Instant expiresAfter, Instant expiresBefore) {
+        this.issuer = issuer;
+        this.keyType = keyType;
+        this.expiresAfter = expiresAfter;
+        this.expiresBefore = expiresBefore;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public String getKeyType() {
+        return keyType;
+    }
+
+    public Instant getExpiresAfter() {
+        return expiresAfter;
+    }
+
+    public Instant getExpiresBefore() {
+        return expiresBefore;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.config.FileStoreConfiguration;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Creates the indexes declared on {@link EidasCertificate} at startup. Automatic index creation is disabled in Spring
+ * Data MongoDB, so without this the unique (owner, name) index and the listing indexes would not exist.
+ * <p>
+ * Certificate imports rely on the unique index to reject duplicate names, so startup fails when it cannot be created, for
+ * instance because the collection already holds duplicates. A missing listing index only makes listing slower
+ */
+@Component
+@Lazy(false)
+@Profile("!" + FileStoreConfiguration.PROFILE)
+public class EidasCertificateIndexes {
+    private static final XLogger logger = XLoggerFactory.getXLogger(EidasCertificateIndexes.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public EidasCertificateIndexes(@Qualifier("msMongoTemplate") MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        IndexOperations indexOperations = mongoTemplate.indexOps(EidasCertificate.class);
+        IndexResolver indexResolver = IndexResolver.create((MongoMappingContext) mongoTemplate.getConverter().getMappingContext());
+        indexResolver.resolveIndexFor(EidasCertificate.class).forEach(indexDefinition -> {
+            try {
+                indexOperations.ensureIndex(indexDefinition);
+            } catch (RuntimeException e) {
+                if (Boolean.TRUE.equals(indexDefinition.getIndexOptions().get("unique"))) {
+                    throw new IllegalStateException("Could not create the unique certificate index "
+                            + indexDefinition.getIndexOptions() + ", remove duplicate certificates first", e);
+                }
+                logger.error("Could not create certificate index " + indexDefinition.getIndexOptions() + ": " + e.getMessage(), e);
+            }
+        });
+    }
+}
@@ -16,14 +16,17 @@
 
 package com.sphereon.ms.eidas.nosql;
 import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
-import org.springframework.data.mongodb.core.index.CompoundIndex;
-import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.repository.CrudRepository;
 
 import java.util.Optional;
 
-@Document
-@CompoundIndex(def = "{'owner':1, 'name':1}", name = "owner_name")
-public interface EidasCertificateRepository extends CrudRepository<EidasCertificate, String> {
+/**
+ * The MongoDB {@link EidasCertificateStore}
+ */
+public interface EidasCertificateRepository extends CrudRepository<EidasCertificate, String>, EidasCertificateStore {
+    @Override
     Optional<EidasCertificate> findByOwnerAndName(String owner, String name);
+
+    @Override
+    <S extends EidasCertificate> S save(S certificate);
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateImportResult;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateInfo;
+
+import java.util.List;
+
+public interface EidasCertificateRepositoryCustom {
+
+    /**
+     * Inserts all certificates in one unordered bulk write. Duplicates on (owner, name) do not abort the batch but are
+     * reported per certificate
+     *
+     * @param certificates The certificates to insert
+     * @return One result per certificate, in the same order as the input
+     */
+    List<EidasCertificateImportResult> insertAll(List<EidasCertificate> certificates);
+
+    /**
+     * Keyset paged listing of the certificates of an owner, ordered by name. Only the listing fields are read, the
+     * certificate itself is never loaded
+     *
+     * @param owner     The tenant
+     * @param filter    The optional filters
+     * @param afterName Only return certificates with a name after this one, null for the first page
+     * @param limit     The maximum number of certificates to return
+     * @return The certificates
+     */
+    List<EidasCertificateInfo> findPage(String owner, EidasCertificateFilter filter, String afterName, int limit);
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateImportResult;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateInfo;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EidasCertificateRepositoryCustomImpl implements EidasCertificateRepositoryCustom {
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+
+    public EidasCertificateRepositoryCustomImpl(@Qualifier("msMongoTemplate") MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<EidasCertificateImportResult> insertAll(List<EidasCertificate> certificates) {
+        List<InsertOneModel<Document>> inserts = new ArrayList<>(certificates.size());
+        for (EidasCertificate certificate : certificates) {
+            Document document = new Document();
+            mongoTemplate.getConverter().write(certificate, document);
+            inserts.add(new InsertOneModel<>(document));
+        }
+
+        List<EidasCertificateImportResult> results = new ArrayList<>(certificates.size());
+        certificates.forEach(certificate -> results.add(EidasCertificateImportResult.imported(certificate.getName())));
+        if (inserts.isEmpty()) {
+            return results;
+        }
+        try {
+            mongoTemplate.getCollection(mongoTemplate.getCollectionName(EidasCertificate.class))
+                    .bulkWrite(inserts, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // Unordered: every insert is attempted, the errors refer to the index of the failed insert
+            for (BulkWriteError error : e.getWriteErrors()) {
+                String name = certificates.get(error.getIndex()).getName();
+                results.set(error.getIndex(), error.getCode() == DUPLICATE_KEY ?
+                        EidasCertificateImportResult.duplicate(name) :
+                        EidasCertificateImportResult.failed(name, error.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public List<EidasCertificateInfo> findPage(String owner, EidasCertificateFilter filter, String afterName, int limit) {
+        Criteria criteria = Criteria.where("owner").is(owner);
+        if (filter.getIssuer() != null) {
+            criteria.and("issuer").is(filter.getIssuer());
+        }
+        if (filter.getKeyType() != null) {
+            criteria.and("keyType").is(filter.getKeyType());
+        }
+        if (afterName != null) {
+            criteria.and("name").gt(afterName);
+        }
+        if (filter.getExpiresAfter() != null || filter.getExpiresBefore() != null) {
+            Criteria notAfter = criteria.and("notAfter");
+            if (filter.getExpiresAfter() != null) {
+                notAfter.gte(filter.getExpiresAfter());
+            }
+            if (filter.getExpiresBefore() != null) {
+                notAfter.lt(filter.getExpiresBefore());
+            }
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "name"))
+                .limit(limit);
+        query.fields().include("name").include("subject").include("issuer").include("keyType").include("notAfter").exclude("_id");
+        return mongoTemplate.find(query, EidasCertificateInfo.class, mongoTemplate.getCollectionName(EidasCertificate.class));
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.Optional;
+
+/**
+ * Stores the certificates, which are addressed by owner and name. Implemented by the MongoDB repository and by the
+ * embedded file store
+ */
+public interface EidasCertificateStore extends EidasCertificateRepositoryCustom {
+
+    Optional<EidasCertificate> findByOwnerAndName(String owner, String name);
+
+    /**
+     * Inserts a certificate
+     *
+     * @param certificate The certificate
+     * @return The stored certificate
+     * @throws DuplicateKeyException When the owner already has a certificate with the same name
+     */
+    <S extends EidasCertificate> S save(S certificate);
+}
@@ -0,0 +1,528 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateImportResult;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateInfo;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded certificate store for single node deployments, used instead of MongoDB with the filestore profile.
+ * <p>
+ * Certificates are kept in an append-only log file. Every record is prefixed with its length and a CRC32, so a record
+ * that was torn by a crash is detected and truncated on startup. Only an (owner, name) index with the file offsets and
+ * the listing metadata is kept in memory; the certificates themselves are read from the log on lookup. Deletes append a
+ * tombstone, and the log is compacted when the share of dead records grows too large.
+ */
+public class FileEidasCertificateRepository implements EidasCertificateStore, Closeable {
+    private static final XLogger logger = XLoggerFactory.getXLogger(FileEidasCertificateRepository.class);
+
+    private static final String LOG_FILE = "certificates.log";
+    private static final String COMPACT_FILE = "certificates.log.compact";
+    private static final int HEADER_SIZE = 8;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte PUT_WITH_ENVELOPE = 3;
+
+    private final Path logFile;
+    private final Path compactFile;
+    private final boolean syncWrites;
+    private final double compactionRatio;
+    private final long compactionMinBytes;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, ConcurrentNavigableMap<String, IndexEntry>> index = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    // The end of the last complete record, where the next one is appended
+    private long end;
+    private long liveBytes;
+
+    /**
+     * @param directory          The directory holding the log, created when missing
+     * @param syncWrites         Whether every write is forced to disk before returning
+     * @param compactionRatio    Compact when the dead share of the log exceeds this ratio
+     * @param compactionMinBytes Never compact logs smaller than this
+     */
+    public FileEidasCertificateRepository(Path directory, boolean syncWrites, double compactionRatio, long compactionMinBytes) {
+        this.logFile = directory.resolve(LOG_FILE);
+        this.compactFile = directory.resolve(COMPACT_FILE);
+        this.syncWrites = syncWrites;
+        this.compactionRatio = compactionRatio;
+        this.compactionMinBytes = compactionMinBytes;
+        try {
+            Files.createDirectories(directory);
+            // A leftover compaction file means we crashed before the swap; the original log is still complete
+            Files.deleteIfExists(compactFile);
+            channel = openLog(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover();
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not open certificate store " + logFile, e);
+        }
+    }
+
+    @Override
+    public Optional<EidasCertificate> findByOwnerAndName(String owner, String name) {
+        lock.readLock().lock();
+        try {
+            IndexEntry entry = getEntry(owner, name);
+            return entry == null ? Optional.empty() : Optional.of(readCertificate(entry));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public <S extends EidasCertificate> S save(S certificate) {
+        lock.writeLock().lock();
+        try {
+            if (getEntry(certificate.getOwner(), certificate.getName()) != null) {
+                throw new DuplicateKeyException("Name already exists: " + certificate.getName());
+            }
+            append(certificate);
+            return certificate;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<EidasCertificateImportResult> insertAll(List<EidasCertificate> certificates) {
+        List<EidasCertificateImportResult> results = new ArrayList<>(certificates.size());
+        lock.writeLock().lock();
+        try {
+            for (EidasCertificate certificate : certificates) {
+                if (getEntry(certificate.getOwner(), certificate.getName()) != null) {
+                    results.add(EidasCertificateImportResult.duplicate(certificate.getName()));
+                } else {
+                    append(certificate);
+                    results.add(EidasCertificateImportResult.imported(certificate.getName()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return results;
+    }
+
+    @Override
+    public List<EidasCertificateInfo> findPage(String owner, EidasCertificateFilter filter, String afterName, int limit) {
+        ConcurrentNavigableMap<String, IndexEntry> names = index.get(owner);
+        List<EidasCertificateInfo> page = new ArrayList<>();
+        if (names == null) {
+            return page;
+        }
+        for (IndexEntry entry : (afterName == null ? names : names.tailMap(afterName, false)).values()) {
+            if (entry.matches(filter)) {
+                page.add(new EidasCertificateInfo(entry.name, entry.subject, entry.issuer, entry.keyType, entry.notAfter));
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @return The number of certificates of all owners
+     */
+    public long count() {
+        return index.values().stream().mapToLong(Map::size).sum();
+    }
+
+    /**
+     * Deletes a certificate by its owner and name, compacting the log when enough of it is dead
+     */
+    public void delete(EidasCertificate certificate) {
+        lock.writeLock().lock();
+        try {
+            IndexEntry entry = getEntry(certificate.getOwner(), certificate.getName());
+            if (entry == null) {
+                return;
+            }
+            try {
+                writeRecord(encodeDelete(certificate.getOwner(), certificate.getName()));
+            } catch (IOException e) {
+                throw new DataAccessResourceFailureException("Could not delete certificate " + certificate.getName(), e);
+            }
+            index.get(certificate.getOwner()).remove(certificate.getName());
+            liveBytes -= entry.length;
+            // The delete is durable at this point, a failed compaction is logged and tried again on the next delete
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.force(true);
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Opens the log file. Can be overridden to wrap the channel, as tests do to inject write failures
+     */
+    protected FileChannel openLog(Path file, OpenOption... options) throws IOException {
+        return FileChannel.open(file, options);
+    }
+
+    private IndexEntry getEntry(String owner, String name) {
+        ConcurrentNavigableMap<String, IndexEntry> names = index.get(owner);
+        return names == null ? null : names.get(name);
+    }
+
+    private void append(EidasCertificate certificate) {
+        try {
+            byte[] record = encodePut(certificate);
+            long offset = writeRecord(record);
+            index.computeIfAbsent(certificate.getOwner(), owner -> new ConcurrentSkipListMap<>())
+                    .put(certificate.getName(), new IndexEntry(offset, record.length, certificate));
+            liveBytes += record.length;
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not store certificate " + certificate.getName(), e);
+        }
+    }
+
+    /**
+     * Appends a record, must be called holding the write lock. A failed append is truncated, so the next record does not
+     * follow torn bytes that would make recovery drop it. Should the truncation fail too, the next record still
+     * overwrites them, as it is written at the end of the last complete record
+     *
+     * @return The offset of the record
+     */
+    private long writeRecord(byte[] record) throws IOException {
+        long offset = end;
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            if (syncWrites) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(offset);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        end = offset + record.length;
+        return offset;
+    }
+
+    private EidasCertificate readCertificate(IndexEntry entry) {
+        try {
+            ByteBuffer buffer = readRecord(channel, entry);
+            return decodePut(buffer.get(), buffer);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not read certificate " + entry.name, e);
+        }
+    }
+
+    /**
+     * Rebuilds the index from the log. Stops at the first incomplete or corrupt record and truncates the log there
+     */
+    private void recover() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        long records = 0;
+        if (size > 0) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            while (mapped.remaining() >= HEADER_SIZE) {
+                int payloadLength = mapped.getInt();
+                int checksum = mapped.getInt();
+                if (payloadLength <= 0 || payloadLength > mapped.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = mapped.slice();
+                payload.limit(payloadLength);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                byte type = payload.get();
+                if (type == PUT || type == PUT_WITH_ENVELOPE) {
+                    EidasCertificate certificate = decodePut(type, payload);
+                    IndexEntry previous = index.computeIfAbsent(certificate.getOwner(), owner -> new ConcurrentSkipListMap<>())
+                            .put(certificate.getName(), new IndexEntry(position, HEADER_SIZE + payloadLength, certificate));
+                    liveBytes += HEADER_SIZE + payloadLength - (previous == null ? 0 : previous.length);
+                } else if (type == DELETE) {
+                    String owner = readString(payload);
+                    String name = readString(payload);
+                    IndexEntry removed = index.getOrDefault(owner, new ConcurrentSkipListMap<>()).remove(name);
+                    liveBytes -= removed == null ? 0 : removed.length;
+                } else {
+                    break;
+                }
+                mapped.position(mapped.position() + payloadLength);
+                position = mapped.position();
+                records++;
+            }
+        }
+        if (position < size) {
+            logger.warn(String.format("Certificate store %s has %d trailing bytes from an incomplete write, truncating",
+                    logFile, size - position));
+            channel.truncate(position);
+            channel.force(true);
+        }
+        end = position;
+        logger.info(String.format("Certificate store %s opened with %d certificates from %d records", logFile, count(), records));
+    }
+
+    /**
+     * Rewrites the log with only the live records when enough of it is dead. Must be called holding the write lock.
+     * The index is only moved to the new offsets once the compacted log has replaced the old one, so a failure leaves
+     * the old log and index in use. Failures are logged, compaction is tried again on the next delete
+     */
+    private void compactIfNeeded() {
+        long size;
+        try {
+            size = channel.size();
+        } catch (IOException e) {
+            logger.warn("Could not determine the size of certificate store " + logFile + ": " + e.getMessage());
+            return;
+        }
+        if (size < compactionMinBytes || (size - liveBytes) < size * compactionRatio) {
+            return;
+        }
+        logger.info(String.format("Compacting certificate store %s, %d of %d bytes are live", logFile, liveBytes, size));
+        Map<IndexEntry, IndexEntry> moved = new HashMap<>();
+        long compactedEnd = 0;
+        try {
+            Files.deleteIfExists(compactFile);
+            try (FileChannel compacted = FileChannel.open(compactFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                long offset = 0;
+                for (ConcurrentNavigableMap<String, IndexEntry> names : index.values()) {
+                    for (IndexEntry entry : names.values()) {
+                        ByteBuffer record = readRecord(channel, entry);
+                        record.rewind();
+                        while (record.hasRemaining()) {
+                            compacted.write(record);
+                        }
+                        moved.put(entry, entry.movedTo(offset));
+                        offset += entry.length;
+                    }
+                }
+                compacted.force(true);
+                compactedEnd = offset;
+            }
+        } catch (IOException e) {
+            logger.error("Could not compact certificate store " + logFile + ": " + e.getMessage(), e);
+            deleteCompactFile();
+            return;
+        }
+        boolean swapped = false;
+        try {
+            channel.close();
+            Files.move(compactFile, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            swapped = true;
+        } catch (IOException e) {
+            logger.error("Could not replace certificate store " + logFile + " with its compacted log: " + e.getMessage(), e);
+            deleteCompactFile();
+        }
+        try {
+            channel = openLog(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not reopen certificate store " + logFile, e);
+        }
+        if (swapped) {
+            for (ConcurrentNavigableMap<String, IndexEntry> names : index.values()) {
+                names.replaceAll((name, entry) -> moved.get(entry));
+            }
+            liveBytes = moved.values().stream().mapToLong(entry -> entry.length).sum();
+            end = compactedEnd;
+        }
+    }
+
+    private void deleteCompactFile() {
+        try {
+            Files.deleteIfExists(compactFile);
+        } catch (IOException e) {
+            logger.warn("Could not delete " + compactFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a whole record, a log that ends within the record is corrupt
+     *
+     * @return The record, positioned after its header
+     */
+    private static ByteBuffer readRecord(FileChannel channel, IndexEntry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of certificate store at offset " + (entry.offset + buffer.position()));
+            }
+        }
+        buffer.flip();
+        buffer.position(HEADER_SIZE);
+        return buffer;
+    }
+
+
+    private static byte[] encodePut(EidasCertificate certificate) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(PUT_WITH_ENVELOPE);
+        writeString(out, certificate.getOwner());
+        writeString(out, certificate.getName());
+        writeString(out, certificate.getBase64CertificateString());
+        writeString(out, certificate.getSubject());
+        writeString(out, certificate.getIssuer());
+        writeString(out, certificate.getKeyType());
+        out.writeLong(certificate.getNotAfter() == null ? Long.MIN_VALUE : certificate.getNotAfter().toEpochMilli());
+        writeString(out, certificate.getKeyEnvelope());
+        return frame(bytes.toByteArray());
+    }
+
+    private static byte[] encodeDelete(String owner, String name) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(DELETE);
+        writeString(out, owner);
+        writeString(out, name);
+        return frame(bytes.toByteArray());
+    }
+
+    private static byte[] frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(HEADER_SIZE + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .array();
+    }
+
+    private static EidasCertificate decodePut(byte type, ByteBuffer payload) {
+        String owner = readString(payload);
+        String name = readString(payload);
+        String base64Certificate = readString(payload);
+        String subject = readString(payload);
+        String issuer = readString(payload);
+        String keyType = readString(payload);
+        long notAfter = payload.getLong();
+        String keyEnvelope = type == PUT_WITH_ENVELOPE ? readString(payload) : null;
+        return new EidasCertificate(owner, name, base64Certificate, subject, issuer, keyType,
+                notAfter == Long.MIN_VALUE ? null : Instant.ofEpochMilli(notAfter), keyEnvelope);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Location of a live record plus the metadata needed for listing, so listings never touch the log
+     */
+    private static class IndexEntry {
+        private final long offset;
+        private final int length;
+        private final String name;
+        private final String subject;
+        private final String issuer;
+        private final String keyType;
+        private final Instant notAfter;
+
+        private IndexEntry(long offset, int length, EidasCertificate certificate) {
+            this(offset, length, certificate.getName(), certificate.getSubject(), certificate.getIssuer(),
+                    certificate.getKeyType(), certificate.getNotAfter());
+        }
+
+        private IndexEntry(long offset, int length, String name, String subject, String issuer, String keyType, Instant notAfter) {
+            this.offset = offset;
+            this.length = length;
+            this.name = name;
+            this.subject = subject;
+            this.issuer = issuer;
+            this.keyType = keyType;
+            this.notAfter = notAfter;
+        }
+
+        private IndexEntry movedTo(long newOffset) {
+            return new IndexEntry(newOffset, length, name, subject, issuer, keyType, notAfter);
+        }
+
+        private boolean matches(EidasCertificateFilter filter) {
+            if (filter.getIssuer() != null && !filter.getIssuer().equals(issuer)) {
+                return false;
+            }
+            if (filter.getKeyType() != null && !filter.getKeyType().equals(keyType)) {
+                return false;
+            }
+            if (filter.getExpiresAfter() != null && (notAfter == null || notAfter.isBefore(filter.getExpiresAfter()))) {
+                return false;
+            }
+            return filter.getExpiresBefore() == null || (notAfter != null && notAfter.isBefore(filter.getExpiresBefore()));
+        }
+    }
+}
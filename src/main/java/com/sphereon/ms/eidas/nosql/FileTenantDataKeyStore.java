@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+
+/**
+ * Keeps the wrapped tenant data keys of the file store, one file per tenant named after the SHA-256 of the owner
+ */
+public class FileTenantDataKeyStore implements TenantDataKeyStore {
+    private final Path directory;
+
+    public FileTenantDataKeyStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not create data key directory " + directory, e);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> findWrappedKey(String owner) {
+        try {
+            return Optional.of(Files.readAllBytes(keyFile(owner)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not read data key of " + owner, e);
+        }
+    }
+
+    @Override
+    public synchronized byte[] saveIfAbsent(String owner, byte[] wrappedKey) {
+        Path keyFile = keyFile(owner);
+        try {
+            // Write a temporary file and link it in place, so a crash never leaves a partial key behind
+            Path tempFile = Files.createTempFile(directory, "datakey", ".tmp");
+            try {
+                Files.write(tempFile, wrappedKey);
+                Files.createLink(keyFile, tempFile);
+                return wrappedKey;
+            } catch (FileAlreadyExistsException e) {
+                return Files.readAllBytes(keyFile);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not store data key of " + owner, e);
+        }
+    }
+
+    private Path keyFile(String owner) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(owner.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2 + 4);
+            for (byte b : hash) {
+                name.append(String.format("%02x", b));
+            }
+            return directory.resolve(name.append(".key").toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
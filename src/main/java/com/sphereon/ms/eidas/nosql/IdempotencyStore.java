@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import com.sphereon.ms.eidas.api.model.signature.IdempotentResponse;
+
+import java.util.Optional;
+
+/**
+ * Shared store of the responses to sign requests with an Idempotency-Key, so a retry on another node gets the same
+ * signature
+ */
+public interface IdempotencyStore {
+
+    /**
+     * @param key The hashed owner, certificate and idempotency key
+     * @return The stored response, if it has not expired
+     */
+    Optional<IdempotentResponse> find(String key);
+
+    void save(String key, IdempotentResponse response);
+}
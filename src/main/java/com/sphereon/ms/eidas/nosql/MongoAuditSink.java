@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import com.sphereon.ms.eidas.api.model.audit.AuditEvent;
+import com.sphereon.ms.eidas.service.AuditSink;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+
+/**
+ * Stores each batch of audit events with a single insertMany
+ */
+public class MongoAuditSink implements AuditSink {
+    public static final String COLLECTION = "auditEvent";
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoAuditSink(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void write(List<AuditEvent> events) {
+        mongoTemplate.insert(events, COLLECTION);
+    }
+}
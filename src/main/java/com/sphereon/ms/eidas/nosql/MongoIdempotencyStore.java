@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import com.sphereon.ms.eidas.api.model.signature.IdempotentResponse;
+import com.sphereon.ms.eidas.config.FileStoreConfiguration;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Keeps the idempotent responses in a collection with a TTL index, so Mongo removes them once they expire. The TTL
+ * monitor only runs once a minute, so expired documents are also filtered on lookup. The signature is kept in the
+ * document itself, so {@link com.sphereon.ms.eidas.service.IdempotencyCache} does not store responses that would not fit
+ * in the 16 MB document limit
+ */
+@Component
+@Profile("!" + FileStoreConfiguration.PROFILE)
+public class MongoIdempotencyStore implements IdempotencyStore {
+    public static final String COLLECTION = "idempotentResponse";
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoIdempotencyStore(@Qualifier("msMongoTemplate") MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(COLLECTION).ensureIndex(new Index()
+                .on("expiresAt", Sort.Direction.ASC)
+                .expire(0)
+                .named("expiresAt_ttl"));
+    }
+
+    @Override
+    public Optional<IdempotentResponse> find(String key) {
+        Document document = mongoTemplate.findOne(Query.query(Criteria.where("_id").is(key)
+                .and("expiresAt").gt(new Date())), Document.class, COLLECTION);
+        return Optional.ofNullable(document).map(found -> new IdempotentResponse(found.getString("requestHash"),
+                found.getString("signature"), found.getDate("expiresAt").toInstant()));
+    }
+
+    @Override
+    public void save(String key, IdempotentResponse response) {
+        mongoTemplate.save(new Document("_id", key)
+                .append("requestHash", response.getRequestHash())
+                .append("signature", response.getSignature())
+                .append("expiresAt", Date.from(response.getExpiresAt())), COLLECTION);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import com.sphereon.ms.eidas.config.FileStoreConfiguration;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Optional;
+
+@Component
+@Profile("!" + FileStoreConfiguration.PROFILE)
+public class MongoTenantDataKeyStore implements TenantDataKeyStore {
+    public static final String COLLECTION = "tenantDataKey";
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoTenantDataKeyStore(@Qualifier("msMongoTemplate") MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<byte[]> findWrappedKey(String owner) {
+        Document document = mongoTemplate.findOne(Query.query(Criteria.where("_id").is(owner)), Document.class, COLLECTION);
+        return Optional.ofNullable(document).map(found -> found.get("wrappedKey", Binary.class).getData());
+    }
+
+    @Override
+    public byte[] saveIfAbsent(String owner, byte[] wrappedKey) {
+        try {
+            // The owner is the _id, so a concurrent insert from another node fails instead of overwriting its key
+            mongoTemplate.insert(new Document("_id", owner)
+                    .append("wrappedKey", new Binary(wrappedKey))
+                    .append("created", new Date()), COLLECTION);
+            return wrappedKey;
+        } catch (DuplicateKeyException e) {
+            return findWrappedKey(owner).orElseThrow(() -> e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import com.sphereon.ms.eidas.api.model.usage.TenantUsage;
+import com.sphereon.ms.eidas.config.FileStoreConfiguration;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Keeps one document per tenant, operation and period. Each flush is a single unordered bulk write of $inc upserts
+ */
+@Component
+@Profile("!" + FileStoreConfiguration.PROFILE)
+public class MongoUsageStore implements UsageStore {
+    public static final String COLLECTION = "tenantUsage";
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoUsageStore(@Qualifier("msMongoTemplate") MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        // Lets every upsert find its document through the index, instead of scanning the collection
+        mongoTemplate.indexOps(COLLECTION).ensureIndex(new Index()
+                .on("owner", Sort.Direction.ASC)
+                .on("period", Sort.Direction.ASC)
+                .on("operation", Sort.Direction.ASC)
+                .unique()
+                .named("owner_period_operation"));
+    }
+
+    @Override
+    public void increment(Instant period, List<TenantUsage> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+        Date periodStart = Date.from(period);
+        for (TenantUsage usage : increments) {
+            Query query = Query.query(Criteria.where("owner").is(usage.getOwner())
+                    .and("operation").is(usage.getOperation())
+                    .and("period").is(periodStart));
+            Update update = new Update()
+                    .inc("count", usage.getCount())
+                    .inc("bytes", usage.getBytes())
+                    .inc("cpuTimeNanos", usage.getCpuTimeNanos());
+            bulkOperations.upsert(query, update);
+        }
+        bulkOperations.execute();
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import java.util.Optional;
+
+/**
+ * Stores the per tenant data keys used for the key envelopes. The keys are only ever stored wrapped by the master key
+ */
+public interface TenantDataKeyStore {
+
+    Optional<byte[]> findWrappedKey(String owner);
+
+    /**
+     * Stores the wrapped data key of a tenant unless one already exists
+     *
+     * @param owner      The tenant
+     * @param wrappedKey The wrapped data key
+     * @return The wrapped key that is stored for the tenant, which is the existing one if another node was first
+     */
+    byte[] saveIfAbsent(String owner, byte[] wrappedKey);
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import org.bson.BsonValue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates a client span for every Mongo command, as a child of the span that is current when the command is sent. Only
+ * the command and collection names are recorded, never the command itself, which may contain certificates and keys
+ */
+public class TracingCommandListener implements CommandListener {
+    private final Tracer tracer;
+    private final Map<Integer, Span> spans = new ConcurrentHashMap<>();
+
+    public TracingCommandListener(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        BsonValue collection = event.getCommand().get(event.getCommandName());
+        String collectionName = collection != null && collection.isString() ? collection.asString().getValue() : null;
+        Span span = tracer.spanBuilder(collectionName == null ? event.getCommandName() : event.getCommandName() + " " + collectionName)
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute("db.system", "mongodb")
+                .setAttribute("db.name", event.getDatabaseName())
+                .setAttribute("db.operation", event.getCommandName())
+                .setAttribute("net.peer.name", event.getConnectionDescription().getServerAddress().toString())
+                .startSpan();
+        if (collectionName != null) {
+            span.setAttribute("db.mongodb.collection", collectionName);
+        }
+        spans.put(event.getRequestId(), span);
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Span span = spans.remove(event.getRequestId());
+        if (span != null) {
+            span.end();
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Span span = spans.remove(event.getRequestId());
+        if (span != null) {
+            span.recordException(event.getThrowable());
+            span.setStatus(StatusCode.ERROR);
+            span.end();
+        }
+    }
+}
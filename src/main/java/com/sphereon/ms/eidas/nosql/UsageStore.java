@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.nosql;
+
+import com.sphereon.ms.eidas.api.model.usage.TenantUsage;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Persists the metered tenant usage for billing and capacity planning
+ */
+public interface UsageStore {
+
+    /**
+     * Adds the usage increments to the totals of a period, in a single batch
+     *
+     * @param period     The start of the period
+     * @param increments The usage since the previous flush
+     */
+    void increment(Instant period, List<TenantUsage> increments);
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.rest;
+
+import com.sphereon.ms.eidas.service.TenantAdmission;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.List;
+
+/**
+ * Exposes the per tenant admission counters at /actuator/admission
+ */
+@Endpoint(id = "admission")
+public class AdmissionEndpoint {
+    private final TenantAdmission tenantAdmission;
+
+    public AdmissionEndpoint(TenantAdmission tenantAdmission) {
+        this.tenantAdmission = tenantAdmission;
+    }
+
+    @ReadOperation
+    public List<TenantAdmission.TenantAdmissionState> admission() {
+        return tenantAdmission.states();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sphereon.ms.eidas.service.EidasDelegate;
+import com.sphereon.ms.eidas.service.OwnerResolver;
+import com.sphereon.ms.eidas.service.TenantAdmission;
+import com.sphereon.ms.rest.response.error.ErrorResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Applies the per tenant rate and concurrency limits in front of the API. Requests over a limit are rejected right away
+ * with 429 and a Retry-After header, before they take up any further resources
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+    private final TenantAdmission tenantAdmission;
+    private final OwnerResolver ownerResolver;
+    private final ObjectMapper objectMapper;
+
+    public AdmissionFilter(TenantAdmission tenantAdmission, OwnerResolver ownerResolver, ObjectMapper objectMapper) {
+        this.tenantAdmission = tenantAdmission;
+        this.ownerResolver = ownerResolver;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String owner;
+        try {
+            owner = ownerResolver.resolve();
+        } catch (RuntimeException e) {
+            // Requests without a valid JWT share one limit; the API itself decides whether they are allowed
+            owner = null;
+        }
+        TenantAdmission.Admission admission = tenantAdmission.tryAdmit(owner == null ? EidasDelegate.ANONYMOUS_OWNER : owner);
+        if (!admission.isAdmitted()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    new ErrorResponse("429", "Too many requests, retry after " + admission.getRetryAfterSeconds() + " seconds"));
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Async (signing, verification and reactive) endpoints complete later on another thread; keep the slot until the response is done
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(admission));
+            } else {
+                admission.release();
+            }
+        }
+    }
+
+    private static final class ReleasingAsyncListener implements AsyncListener {
+        private final TenantAdmission.Admission admission;
+
+        private ReleasingAsyncListener(TenantAdmission.Admission admission) {
+            this.admission = admission;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            admission.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            admission.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            admission.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Not re-registered on a new async cycle, the slot is released when this one ends
+        }
+    }
+}
@@ -22,11 +22,15 @@ import com.sphereon.ms.rest.response.error.ErrorResponse;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * Created by niels on 17-9-16.
  */
@@ -42,6 +46,22 @@ public class ControllerAdvice {
     }
 
 
+    @ExceptionHandler(RestException.OverloadedException.class)
+    ResponseEntity<ErrorResponse> overloadedExceptionHandler(RestException.OverloadedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(handleError(ex));
+    }
+
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    ResponseEntity<ErrorResponse> rejectedExecutionExceptionHandler(RejectedExecutionException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(handleError(ex));
+    }
+
+
     @ResponseBody
     @ExceptionHandler(RestException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureRequest;
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureResponse;
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureVerifyRequest;
+import com.sphereon.ms.eidas.service.DocumentBuffer;
+import com.sphereon.ms.eidas.service.DocumentBuffers;
+import com.sphereon.ms.eidas.service.MemoryGovernor;
+import com.sphereon.ms.eidas.service.PemCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+
+/**
+ * JSON handling of the large fields of the signature API. Requests are decoded into a {@link DocumentBuffer} from the
+ * {@link DocumentBuffers} attribute of the object mapper. Base64 content is decoded while it is parsed, so its text is
+ * never held. Signatures in responses are PEM encoded while they are written. The (de)serializers are bound to the
+ * signature models by {@link SignatureApiModule}, so the models do not depend on this package
+ */
+public final class DocumentJson {
+    private static final DocumentBuffers DEFAULT_BUFFERS = new DocumentBuffers(1024 * 1024, "");
+
+    private DocumentJson() {
+    }
+
+    /**
+     * Registers the (de)serializers of the signature models as mix-ins
+     */
+    public static class SignatureApiModule extends SimpleModule {
+        public SignatureApiModule() {
+            super(SignatureApiModule.class.getName());
+            setMixInAnnotation(CadesSignatureRequest.class, SignatureRequestMixIn.class);
+            setMixInAnnotation(CadesSignatureVerifyRequest.class, SignatureVerifyRequestMixIn.class);
+            setMixInAnnotation(CadesSignatureResponse.class, SignatureResponseMixIn.class);
+        }
+    }
+
+    abstract static class SignatureRequestMixIn {
+        SignatureRequestMixIn(@JsonDeserialize(using = Base64Deserializer.class) DocumentBuffer content, String password) {
+        }
+
+        @JsonSerialize(using = Base64Serializer.class)
+        abstract DocumentBuffer getContent();
+    }
+
+    abstract static class SignatureVerifyRequestMixIn {
+        SignatureVerifyRequestMixIn(@JsonDeserialize(using = PemDeserializer.class) DocumentBuffer signature) {
+        }
+
+        @JsonSerialize(using = PemSerializer.class)
+        abstract DocumentBuffer getSignature();
+    }
+
+    @JsonSerialize(using = SignatureResponseSerializer.class)
+    abstract static class SignatureResponseMixIn {
+    }
+
+    /**
+     * A base64 string, like the content to sign
+     */
+    public static class Base64Deserializer extends StdDeserializer<DocumentBuffer> {
+        public Base64Deserializer() {
+            super(DocumentBuffer.class);
+        }
+
+        @Override
+        public DocumentBuffer deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+            if (parser.currentToken() != JsonToken.VALUE_STRING) {
+                return (DocumentBuffer) ctxt.handleUnexpectedToken(DocumentBuffer.class, parser);
+            }
+            DocumentBuffer buffer = getBuffers(ctxt).create();
+            try {
+                parser.readBinaryValue(ctxt.getBase64Variant(), buffer.outputStream());
+                buffer.finish();
+                return buffer;
+            } catch (IOException | RuntimeException e) {
+                buffer.close();
+                throw e;
+            }
+        }
+    }
+
+    public static class Base64Serializer extends StdSerializer<DocumentBuffer> {
+        public Base64Serializer() {
+            super(DocumentBuffer.class);
+        }
+
+        @Override
+        public void serialize(DocumentBuffer value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            try (InputStream in = value.openStream()) {
+                gen.writeBinary(provider.getConfig().getBase64Variant(), in,
+                        value.size() > Integer.MAX_VALUE ? -1 : (int) value.size());
+            }
+        }
+    }
+
+    /**
+     * A PEM signature, or plain base64, like the signature to verify. The parser cannot decode base64 with the PEM armour
+     * itself, so it reads the whole string into its text buffer first, at two bytes per character. That buffer counts
+     * towards the memory budget while it is decoded
+     */
+    public static class PemDeserializer extends StdDeserializer<DocumentBuffer> {
+        public PemDeserializer() {
+            super(DocumentBuffer.class);
+        }
+
+        @Override
+        public DocumentBuffer deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+            if (parser.currentToken() != JsonToken.VALUE_STRING) {
+                return (DocumentBuffer) ctxt.handleUnexpectedToken(DocumentBuffer.class, parser);
+            }
+            DocumentBuffers buffers = getBuffers(ctxt);
+            // Reads the string into the parser's text buffer
+            long textBytes = 2L * parser.getTextLength();
+            DocumentBuffer buffer = buffers.create();
+            try (MemoryGovernor.Reservation text = buffers.reserve(textBytes)) {
+                // Hands over the buffered segments without copying them into a string
+                try (Writer writer = PemCodec.decodingWriter(buffer.outputStream())) {
+                    parser.getText(writer);
+                }
+                buffer.finish();
+                return buffer;
+            } catch (IllegalArgumentException e) {
+                buffer.close();
+                return (DocumentBuffer) ctxt.handleWeirdStringValue(DocumentBuffer.class, "<signature>", "%s", e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                buffer.close();
+                throw e;
+            }
+        }
+    }
+
+    public static class PemSerializer extends StdSerializer<DocumentBuffer> {
+        public PemSerializer() {
+            super(DocumentBuffer.class);
+        }
+
+        @Override
+        public void serialize(DocumentBuffer value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            writePem(gen, value.toByteArray());
+        }
+    }
+
+    /**
+     * Writes the signature of a response from its DER bytes, without creating the PEM string
+     */
+    public static class SignatureResponseSerializer extends StdSerializer<CadesSignatureResponse> {
+        public SignatureResponseSerializer() {
+            super(CadesSignatureResponse.class);
+        }
+
+        @Override
+        public void serialize(CadesSignatureResponse value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            gen.writeFieldName("signature");
+            if (value.getCms() != null) {
+                writePem(gen, value.getCms());
+            } else {
+                gen.writeString(value.getSignature());
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writePem(JsonGenerator gen, byte[] der) throws IOException {
+        if (gen instanceof TokenBuffer) {
+            // Buffers hold whole values
+            gen.writeString(PemCodec.encode(der));
+            return;
+        }
+        gen.writeString(PemCodec.encodingReader(der), PemCodec.encodedLength(der.length));
+    }
+
+    private static DocumentBuffers getBuffers(DeserializationContext ctxt) {
+        Object buffers = ctxt.getAttribute(DocumentBuffers.class);
+        return buffers instanceof DocumentBuffers ? (DocumentBuffers) buffers : DEFAULT_BUFFERS;
+    }
+}
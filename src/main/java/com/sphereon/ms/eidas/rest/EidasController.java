@@ -16,23 +16,47 @@
 
 package com.sphereon.ms.eidas.rest;
 
+import com.sphereon.ms.eidas.service.Bulkheads;
+import com.sphereon.ms.eidas.service.DocumentBuffer;
 import com.sphereon.ms.eidas.service.EidasDelegate;
+import com.sphereon.ms.eidas.service.IdempotencyCache;
+import com.sphereon.ms.eidas.service.MemoryGovernor;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateBulkImportRequest;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateBulkImportResponse;
 import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateImportRequest;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificatePage;
 import com.sphereon.ms.eidas.api.model.signature.CadesSignatureRequest;
 import com.sphereon.ms.eidas.api.model.signature.CadesSignatureResponse;
 import com.sphereon.ms.eidas.api.model.signature.CadesSignatureVerifyRequest;
 import com.sphereon.ms.eidas.api.model.signature.CadesSignatureVerifyResponse;
+import com.sphereon.ms.eidas.nosql.EidasCertificateFilter;
 import io.swagger.annotations.ApiOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Signing and verification run on their own bulkhead executors (see {@link Bulkheads}) and release the request thread
+ * while in progress. Their concurrency limit permits are taken on the request thread, before they are queued. The owner and certificate are resolved on the request thread, which the JWT context is bound to.
+ * Large documents wait on the request thread for room in the {@link MemoryGovernor} budget
+ */
 @RestController
 @RequestMapping(value = "/eidas/1.0")
+@ConditionalOnProperty(name = "sphereon.eidas-sign-poc.reactive.enable", havingValue = "false", matchIfMissing = true)
 public class EidasController {
     private final EidasDelegate eidasDelegate;
+    private final IdempotencyCache idempotencyCache;
+    private final MemoryGovernor memoryGovernor;
 
-    public EidasController(EidasDelegate eidasDelegate) {
+    public EidasController(EidasDelegate eidasDelegate, IdempotencyCache idempotencyCache, MemoryGovernor memoryGovernor) {
         this.eidasDelegate = eidasDelegate;
+        this.idempotencyCache = idempotencyCache;
+        this.memoryGovernor = memoryGovernor;
     }
 
     @ApiOperation(nickname = "ImportCertificate", value = "Import certificate", notes = "Import a X509 certificate in base65 form", tags = {"Certificates"})
@@ -42,19 +66,62 @@ public class EidasController {
         return ResponseEntity.ok().build();
     }
 
-    @ApiOperation(nickname = "Sign", value = "Sign input data", notes = "Create a signature using the named certificate", tags = {"Certificates"})
+    @ApiOperation(nickname = "ImportCertificates", value = "Import certificates in bulk", notes = "Import many X509 certificates in base64 form. Returns a result per certificate", tags = {"Certificates"})
+    @PostMapping(value = "/certificates/bulk")
+    public EidasCertificateBulkImportResponse importCertificates(@RequestBody EidasCertificateBulkImportRequest bulkImportRequest) {
+        return eidasDelegate.importEidasCertificates(bulkImportRequest);
+    }
+
+    @ApiOperation(nickname = "ListCertificates", value = "List certificates", notes = "List the certificates, ordered by name. Use the returned cursor to get the next page", tags = {"Certificates"})
+    @GetMapping(value = "/certificates")
+    public EidasCertificatePage listCertificates(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "100") int limit,
+        @RequestParam(required = false) String issuer,
+        @RequestParam(required = false) String keyType,
+        @RequestParam(required = false) Instant expiresAfter,
+        @RequestParam(required = false) Instant expiresBefore) {
+        return eidasDelegate.listCertificates(new EidasCertificateFilter(issuer, keyType, expiresAfter, expiresBefore), cursor, limit);
+    }
+
+    @ApiOperation(nickname = "Sign", value = "Sign input data", notes = "Create a signature using the named certificate. Retries with the same Idempotency-Key header return the first signature", tags = {"Certificates"})
     @PostMapping(value = "/certificates/{name}/sign")
-    public CadesSignatureResponse sign(
+    public CompletableFuture<CadesSignatureResponse> sign(
         @PathVariable String name,
+        @RequestHeader(value = IdempotencyCache.HEADER, required = false) String idempotencyKey,
         @RequestBody CadesSignatureRequest cadesSignatureRequest) {
-        var signature = eidasDelegate.signWithCertificate(name, cadesSignatureRequest.getPassword(), cadesSignatureRequest.getContent());
-        return new CadesSignatureResponse(signature);
+        DocumentBuffer content = cadesSignatureRequest.getContent();
+        return releasing(content, eidasDelegate::getOwner, owner -> idempotencyCache.execute(owner, name, idempotencyKey, content, () -> {
+            var certificate = eidasDelegate.getCertificate(name);
+            return eidasDelegate.signDocumentAsync(certificate, cadesSignatureRequest.getPassword(), content)
+                .thenApply(CadesSignatureResponse::ofCms);
+        }));
     }
 
     @ApiOperation(nickname = "Verify", value = "Verify input data", notes = "Verifies a signature", tags = {"Signatures"})
     @PostMapping(value = "/signatures")
-    public CadesSignatureVerifyResponse verifyCadesSignature(
+    public CompletableFuture<CadesSignatureVerifyResponse> verifyCadesSignature(
         @RequestBody CadesSignatureVerifyRequest cadesSignatureVerifyRequest) {
-        return eidasDelegate.verify(cadesSignatureVerifyRequest.getSignature());
+        DocumentBuffer signature = cadesSignatureVerifyRequest.getSignature();
+        return releasing(signature, eidasDelegate::getOwnerOrAnonymous, owner -> eidasDelegate.verifyAsync(owner, signature));
+    }
+
+    /**
+     * Resolves the owner, admits the request document to the memory budget and releases it, deleting a spilled document,
+     * once the operation completes, or right away when it could not be started
+     */
+    private <T> CompletableFuture<T> releasing(DocumentBuffer document, Supplier<String> owner,
+                                               Function<String, CompletableFuture<T>> operation) {
+        if (document == null) {
+            throw new RestException.InvalidRequestException("The request has no document");
+        }
+        try {
+            String resolvedOwner = owner.get();
+            memoryGovernor.admit(document);
+            return operation.apply(resolvedOwner).whenComplete((result, error) -> document.close());
+        } catch (RuntimeException e) {
+            document.close();
+            throw e;
+        }
     }
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.rest;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateBulkImportRequest;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateBulkImportResponse;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateImportRequest;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificatePage;
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureRequest;
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureResponse;
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureVerifyRequest;
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureVerifyResponse;
+import com.sphereon.ms.eidas.nosql.EidasCertificateFilter;
+import com.sphereon.ms.eidas.nosql.ReactiveEidasCertificateRepository;
+import com.sphereon.ms.eidas.service.DocumentBuffer;
+import com.sphereon.ms.eidas.service.EidasDelegate;
+import com.sphereon.ms.eidas.service.IdempotencyCache;
+import com.sphereon.ms.eidas.service.MemoryGovernor;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * Reactive variant of {@link EidasController}, serving the same paths when sphereon.eidas-sign-poc.reactive.enable is set.
+ * Certificate lookups use the non-blocking Mongo driver, signing and verification run on their bulkheads (with the
+ * blocking OCSP/CRL I/O inside DSS on the revocation bulkhead), so request threads are released while work is in flight. Large documents wait for room in the {@link MemoryGovernor} budget on the bounded
+ * elastic scheduler, never on an event loop thread.
+ */
+@RestController
+@RequestMapping(value = "/eidas/1.0")
+@ConditionalOnProperty(name = "sphereon.eidas-sign-poc.reactive.enable", havingValue = "true")
+public class ReactiveEidasController {
+    private final EidasDelegate eidasDelegate;
+    private final ReactiveEidasCertificateRepository certificateRepository;
+    private final Scheduler signingScheduler;
+    private final Scheduler blockingScheduler;
+    private final IdempotencyCache idempotencyCache;
+    private final MemoryGovernor memoryGovernor;
+
+    public ReactiveEidasController(EidasDelegate eidasDelegate,
+                                   ReactiveEidasCertificateRepository certificateRepository,
+                                   IdempotencyCache idempotencyCache,
+                                   MemoryGovernor memoryGovernor,
+                                   @Qualifier("signingScheduler") Scheduler signingScheduler,
+                                   @Qualifier("blockingScheduler") Scheduler blockingScheduler) {
+        this.eidasDelegate = eidasDelegate;
+        this.certificateRepository = certificateRepository;
+        this.signingScheduler = signingScheduler;
+        this.blockingScheduler = blockingScheduler;
+        this.idempotencyCache = idempotencyCache;
+        this.memoryGovernor = memoryGovernor;
+    }
+
+    @ApiOperation(nickname = "ImportCertificate", value = "Import certificate", notes = "Import a X509 certificate in base65 form", tags = {"Certificates"})
+    @PostMapping(value = "/certificates")
+    public Mono<ResponseEntity<Void>> importCertificate(@RequestBody EidasCertificateImportRequest certificateImportRequest) {
+        // The owner comes from the JWT context, which is bound to the request thread
+        String owner = eidasDelegate.getOwner();
+        return Mono.fromCallable(() -> eidasDelegate.prepareCertificate(owner, certificateImportRequest))
+            .subscribeOn(signingScheduler)
+            .flatMap(certificateRepository::save)
+            .onErrorMap(DuplicateKeyException.class, e -> new RestException.DuplicateNameException(certificateImportRequest.getName()))
+            .map(certificate -> ResponseEntity.ok().<Void>build());
+    }
+
+    @ApiOperation(nickname = "ImportCertificates", value = "Import certificates in bulk", notes = "Import many X509 certificates in base64 form. Returns a result per certificate", tags = {"Certificates"})
+    @PostMapping(value = "/certificates/bulk")
+    public Mono<EidasCertificateBulkImportResponse> importCertificates(@RequestBody EidasCertificateBulkImportRequest bulkImportRequest) {
+        String owner = eidasDelegate.getOwner();
+        return Mono.fromCallable(() -> eidasDelegate.importEidasCertificates(owner, bulkImportRequest))
+            .subscribeOn(blockingScheduler);
+    }
+
+    @ApiOperation(nickname = "ListCertificates", value = "List certificates", notes = "List the certificates, ordered by name. Use the returned cursor to get the next page", tags = {"Certificates"})
+    @GetMapping(value = "/certificates")
+    public Mono<EidasCertificatePage> listCertificates(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "100") int limit,
+        @RequestParam(required = false) String issuer,
+        @RequestParam(required = false) String keyType,
+        @RequestParam(required = false) Instant expiresAfter,
+        @RequestParam(required = false) Instant expiresBefore) {
+        String owner = eidasDelegate.getOwner();
+        var filter = new EidasCertificateFilter(issuer, keyType, expiresAfter, expiresBefore);
+        return Mono.fromCallable(() -> eidasDelegate.listCertificates(owner, filter, cursor, limit))
+            .subscribeOn(blockingScheduler);
+    }
+
+    @ApiOperation(nickname = "Sign", value = "Sign input data", notes = "Create a signature using the named certificate. Retries with the same Idempotency-Key header return the first signature", tags = {"Certificates"})
+    @PostMapping(value = "/certificates/{name}/sign")
+    public Mono<CadesSignatureResponse> sign(
+        @PathVariable String name,
+        @RequestHeader(value = IdempotencyCache.HEADER, required = false) String idempotencyKey,
+        @RequestBody CadesSignatureRequest cadesSignatureRequest) {
+        String owner = resolveOwner(cadesSignatureRequest.getContent(), eidasDelegate::getOwner);
+        // The spilled request document is deleted when the response completes or the request is cancelled
+        return Mono.using(() -> requireDocument(cadesSignatureRequest.getContent()),
+            content -> admit(content).then(Mono.defer(() -> Mono.fromFuture(idempotencyCache.execute(owner, name,
+                idempotencyKey, content,
+                () -> certificateRepository.findByOwnerAndName(owner, name)
+                    .switchIfEmpty(Mono.defer(() -> Mono.error(new RestException.InvalidNameException(name))))
+                    .flatMap(certificate -> Mono.fromFuture(eidasDelegate.signDocumentAsync(certificate,
+                        cadesSignatureRequest.getPassword(), content)))
+                    .map(CadesSignatureResponse::ofCms)
+                    .toFuture())))),
+            DocumentBuffer::close);
+    }
+
+    @ApiOperation(nickname = "Verify", value = "Verify input data", notes = "Verifies a signature", tags = {"Signatures"})
+    @PostMapping(value = "/signatures")
+    public Mono<CadesSignatureVerifyResponse> verifyCadesSignature(
+        @RequestBody CadesSignatureVerifyRequest cadesSignatureVerifyRequest) {
+        String owner = resolveOwner(cadesSignatureVerifyRequest.getSignature(), eidasDelegate::getOwnerOrAnonymous);
+        return Mono.using(() -> requireDocument(cadesSignatureVerifyRequest.getSignature()),
+            signature -> admit(signature).then(Mono.defer(() -> Mono.fromFuture(eidasDelegate.verifyAsync(owner, signature)))),
+            DocumentBuffer::close);
+    }
+
+    /**
+     * Waits for room in the memory budget, the reservation is released when the document is closed
+     */
+    private Mono<Void> admit(DocumentBuffer document) {
+        return Mono.<Void>fromRunnable(() -> memoryGovernor.admit(document))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Resolves the owner on the request thread, closing the request document when that fails
+     */
+    private static String resolveOwner(DocumentBuffer document, Supplier<String> owner) {
+        try {
+            return owner.get();
+        } catch (RuntimeException e) {
+            if (document != null) {
+                document.close();
+            }
+            throw e;
+        }
+    }
+
+    private static DocumentBuffer requireDocument(DocumentBuffer document) {
+        if (document == null) {
+            throw new RestException.InvalidRequestException("The request has no document");
+        }
+        return document;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.rest;
+
+import com.sphereon.ms.eidas.service.AuditLog;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Records a trace (method, path, status and latency) of a sample of the requests in the audit log. Replaces the request
+ * dumper and payload logging filters, which logged headers and bodies of every request synchronously
+ */
+public class RequestTraceFilter extends OncePerRequestFilter {
+    private final AuditLog auditLog;
+
+    public RequestTraceFilter(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!auditLog.sampleTrace()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // The status and latency are only known once the async request completes on another thread
+                request.getAsyncContext().addListener(new TracingAsyncListener(request, start));
+            } else {
+                auditLog.recordTrace(request.getMethod(), request.getRequestURI(), response.getStatus(), System.nanoTime() - start);
+            }
+        }
+    }
+
+    private final class TracingAsyncListener implements AsyncListener {
+        private final String method;
+        private final String path;
+        private final long start;
+
+        private TracingAsyncListener(HttpServletRequest request, long start) {
+            this.method = request.getMethod();
+            this.path = request.getRequestURI();
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            HttpServletResponse response = (HttpServletResponse) event.getSuppliedResponse();
+            auditLog.recordTrace(method, path, response.getStatus(), System.nanoTime() - start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // Followed by onComplete once the timeout response is written
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // Followed by onComplete once the error response is written
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Not re-registered on a new async cycle, the trace is recorded when this one ends
+        }
+    }
+}
@@ -86,4 +86,26 @@ public class RestException extends RuntimeException {
             super(msg);
         }
     }
+
+    public static class InvalidCertificateException extends RestException {
+        public InvalidCertificateException(String msg) {
+            super(msg);
+        }
+    }
+
+    public static class InvalidRequestException extends RestException {
+        public InvalidRequestException(String msg) {
+            super(msg);
+        }
+    }
+
+    public static class OverloadedException extends RestException {
+        public OverloadedException(String operation, int limit) {
+            super(String.format("Too many %s requests in progress (limit %d), please retry later", operation, limit));
+        }
+
+        public OverloadedException(String msg) {
+            super(msg);
+        }
+    }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.rest;
+
+import com.sphereon.ms.eidas.config.RestControllerConfigTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the swagger JSON generated at build time by WriteSwaggerJsonTest at the springfox URL /v2/api-docs, when
+ * springfox is not started. Not a component, it is only registered by {@link com.sphereon.ms.eidas.config.FastStartupConfiguration}
+ */
+@RequestMapping
+public class StaticApiDocsController {
+
+    @GetMapping(value = "/v2/api-docs", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Resource> apiDocs(@RequestParam(value = "group", required = false) String group) {
+        String file = RestControllerConfigTemplate.Mode.STORE.getGroupName().equals(group) ? "swagger.store.json" : "swagger.sdk.json";
+        Resource resource = new ClassPathResource("swagger/" + file);
+        if (!resource.exists()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS))
+                .body(resource);
+    }
+}
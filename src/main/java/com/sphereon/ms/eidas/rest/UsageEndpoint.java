@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.rest;
+
+import com.sphereon.ms.eidas.api.model.usage.TenantUsage;
+import com.sphereon.ms.eidas.service.UsageMeter;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Exposes the metered tenant usage since startup at /actuator/usage and /actuator/usage/{owner}
+ */
+@Component
+@Endpoint(id = "usage")
+public class UsageEndpoint {
+    private final UsageMeter usageMeter;
+
+    public UsageEndpoint(UsageMeter usageMeter) {
+        this.usageMeter = usageMeter;
+    }
+
+    @ReadOperation
+    public List<TenantUsage> usage() {
+        return usageMeter.totals();
+    }
+
+    @ReadOperation
+    public List<TenantUsage> usageOfOwner(@Selector String owner) {
+        return usageMeter.totals().stream()
+                .filter(usage -> usage.getOwner().equals(owner))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.sphereon.ms.eidas.rest.RestException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Concurrency limit that adapts to the observed latency (gradient algorithm). It keeps a fast and a slow moving average
+ * of the latency; when the recent latency rises above the long term latency (for instance because OCSP responders slow
+ * down) the limit shrinks, and when latency is stable it grows by roughly the square root of the limit. Requests over
+ * the limit are rejected right away instead of queueing until they time out. Take the permit before the work is queued on
+ * a bulkhead, see {@link #supplyAsync}, so the limit sheds load when the bulkhead backs up and the latency includes the
+ * time in the queue
+ */
+public class AdaptiveLimiter {
+    private static final double SHORT_RTT_WEIGHT = 0.1;
+    private static final double LONG_RTT_WEIGHT = 0.01;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+    // Guarded by this
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Acquires a slot, which needs to be released when the work is done
+     *
+     * @return The permit
+     * @throws RestException.OverloadedException When the limit is reached
+     */
+    public Permit acquire() {
+        int current;
+        int currentLimit;
+        do {
+            current = inFlight.get();
+            currentLimit = getLimit();
+            if (current >= currentLimit) {
+                rejected.increment();
+                throw new RestException.OverloadedException(name, currentLimit);
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return new Permit(current + 1);
+    }
+
+    /**
+     * Runs the operation on the executor under a permit, which is acquired on the calling thread before the operation is
+     * queued and completed or released when the operation finishes
+     *
+     * @param operation The work
+     * @param executor  The bulkhead to run it on
+     * @return The result of the operation
+     * @throws RestException.OverloadedException When the limit is reached
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> operation, Executor executor) {
+        Permit permit = acquire();
+        try {
+            return CompletableFuture.supplyAsync(operation, executor).whenComplete((result, error) -> {
+                if (error == null) {
+                    permit.complete();
+                } else {
+                    permit.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            // Rejected by a full bulkhead
+            permit.release();
+            throw e;
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        shortRtt = shortRtt == 0 ? rttNanos : shortRtt * (1 - SHORT_RTT_WEIGHT) + rttNanos * SHORT_RTT_WEIGHT;
+        longRtt = longRtt == 0 ? rttNanos : longRtt * (1 - LONG_RTT_WEIGHT) + rttNanos * LONG_RTT_WEIGHT;
+        // Let the baseline follow quickly when latency drops, otherwise the limit keeps growing on a stale baseline
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        double currentLimit = limit;
+        if (inFlightAtStart < currentLimit / 2) {
+            // Not enough load to say anything about the limit
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / shortRtt));
+        double newLimit = currentLimit * gradient + Math.sqrt(currentLimit);
+        newLimit = currentLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public final class Permit {
+        private final long start = System.nanoTime();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Releases the slot and feeds the latency of the successful request to the limit
+         */
+        public void complete() {
+            if (released.compareAndSet(false, true)) {
+                onSample(System.nanoTime() - start, inFlightAtStart);
+                inFlight.decrementAndGet();
+            }
+        }
+
+        /**
+         * Releases the slot without a latency sample, for failed requests. Does nothing after {@link #complete()}
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.sphereon.ms.eidas.api.model.audit.AuditEvent;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Audit pipeline for sign and verify events. Recording only appends to a bounded lock-free queue; a single background
+ * thread drains it in batches to the {@link AuditSink}. When the queue is full events are dropped and counted, so a slow
+ * sink never blocks or slows down requests. Request traces (for debugging) are sampled
+ */
+@Component
+public class AuditLog {
+    private static final XLogger logger = XLoggerFactory.getXLogger(AuditLog.class);
+
+    private final AuditSink sink;
+    private final int capacity;
+    private final int batchSize;
+    private final double traceSampleRate;
+    private final ConcurrentLinkedQueue<AuditEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final ScheduledExecutorService flusher;
+
+    public AuditLog(AuditSink sink,
+                    @Value("${sphereon.eidas-sign-poc.audit.queue-capacity:100000}") int capacity,
+                    @Value("${sphereon.eidas-sign-poc.audit.batch-size:500}") int batchSize,
+                    @Value("${sphereon.eidas-sign-poc.audit.flush-interval-ms:1000}") long flushIntervalMs,
+                    @Value("${sphereon.eidas-sign-poc.audit.trace-sample-rate:0.0}") double traceSampleRate) {
+        this.sink = sink;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.traceSampleRate = traceSampleRate;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "eidas-audit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::drain, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a sign or verify operation
+     *
+     * @param type          The operation
+     * @param owner         The tenant
+     * @param certificate   The certificate name, null for verify
+     * @param data          The signed content or the verified signature; only its digest is recorded
+     * @param durationNanos The latency
+     * @param error         The error, or null when the operation succeeded
+     */
+    public void recordOperation(AuditEvent.Type type, String owner, String certificate, byte[] data, long durationNanos, Throwable error) {
+        recordOperation(type, owner, certificate, digest(data), durationNanos, error);
+    }
+
+    /**
+     * Records a sign or verify operation on a buffered document, which is read again for the digest
+     *
+     * @see #recordOperation(AuditEvent.Type, String, String, byte[], long, Throwable)
+     */
+    public void recordOperation(AuditEvent.Type type, String owner, String certificate, DocumentBuffer data, long durationNanos, Throwable error) {
+        recordOperation(type, owner, certificate, digest(data), durationNanos, error);
+    }
+
+    private void recordOperation(AuditEvent.Type type, String owner, String certificate, String digest, long durationNanos, Throwable error) {
+        offer(new AuditEvent(Instant.now(), type, owner, certificate, digest,
+                TimeUnit.NANOSECONDS.toMicros(durationNanos),
+                error == null ? AuditEvent.Outcome.SUCCESS : AuditEvent.Outcome.FAILURE,
+                error == null ? null : error.getClass().getSimpleName(),
+                null, null, null));
+    }
+
+    /**
+     * @return Whether the current request should be traced, according to the trace sample rate
+     */
+    public boolean sampleTrace() {
+        return traceSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < traceSampleRate;
+    }
+
+    /**
+     * Records a request trace. The query string, headers and body are never recorded
+     */
+    public void recordTrace(String method, String path, int status, long durationNanos) {
+        offer(new AuditEvent(Instant.now(), AuditEvent.Type.REQUEST_TRACE, null, null, null,
+                TimeUnit.NANOSECONDS.toMicros(durationNanos), status < 500 ? AuditEvent.Outcome.SUCCESS : AuditEvent.Outcome.FAILURE,
+                null, method, path, status));
+    }
+
+    /**
+     * @return The number of events dropped because the queue was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void offer(AuditEvent event) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        queue.offer(event);
+    }
+
+    /**
+     * Writes everything that is queued, in batches of at most the batch size
+     */
+    void drain() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        AuditEvent event;
+        while ((event = queue.poll()) != null) {
+            size.decrementAndGet();
+            batch.add(event);
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<AuditEvent> batch) {
+        try {
+            sink.write(batch);
+        } catch (RuntimeException e) {
+            dropped.add(batch.size());
+            logger.warn("Could not write " + batch.size() + " audit events: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        drain();
+    }
+
+    private static String digest(DocumentBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        try (InputStream in = data.openStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (IOException e) {
+            logger.warn("Could not read the document for its digest: " + e.getMessage());
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String digest(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
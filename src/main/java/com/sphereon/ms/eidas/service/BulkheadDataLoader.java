@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.spi.client.http.DataLoader;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the requests of a DSS data loader on the revocation executor and gives up after a timeout. A failed or timed out
+ * request surfaces as a {@link DSSException}, which DSS treats as unavailable revocation data
+ */
+class BulkheadDataLoader implements DataLoader {
+    private static final long serialVersionUID = 1L;
+
+    private final DataLoader dataLoader;
+    private final transient ExecutorService executor;
+    private final long timeoutMs;
+
+    BulkheadDataLoader(DataLoader dataLoader, ExecutorService executor, long timeoutMs) {
+        this.dataLoader = dataLoader;
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public byte[] get(String url) {
+        return call(url, () -> dataLoader.get(url));
+    }
+
+    @Override
+    public DataAndUrl get(List<String> urlStrings) {
+        return call(String.join(", ", urlStrings), () -> dataLoader.get(urlStrings));
+    }
+
+    @Override
+    public byte[] get(String url, boolean refresh) {
+        return call(url, () -> dataLoader.get(url, refresh));
+    }
+
+    @Override
+    public byte[] post(String url, byte[] content) {
+        return call(url, () -> dataLoader.post(url, content));
+    }
+
+    @Override
+    public void setContentType(String contentType) {
+        dataLoader.setContentType(contentType);
+    }
+
+    private <T> T call(String url, Callable<T> request) {
+        Future<T> future;
+        try {
+            future = executor.submit(request);
+        } catch (RejectedExecutionException e) {
+            throw new DSSException("Too many revocation requests in progress, skipped " + url, e);
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new DSSException(String.format("Request to %s timed out after %d ms", url, timeoutMs), e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new DSSException("Interrupted while waiting for " + url, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DSSException("Request to " + url + " failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.sphereon.ms.eidas.config.BulkheadProperties;
+import eu.europa.esig.dss.spi.client.http.DataLoader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.opentelemetry.context.Context;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Separate bounded executors for signing, signature validation and revocation/AIA I/O. Each has its own threads and
+ * queue, so a stalled OCSP responder or CRL distribution point can only exhaust the revocation threads and never delays
+ * signing. Tasks beyond a full queue are rejected right away (503) instead of piling up. The executors are published as
+ * executor.* metrics tagged with name eidas.[bulkhead], next to an eidas.bulkhead.rejected counter. Tasks run in the
+ * trace context of the thread that submitted them
+ */
+public class Bulkheads {
+    public static final String SIGN = "sign";
+    public static final String VALIDATION = "validation";
+    public static final String REVOCATION = "revocation";
+
+    private final ThreadPoolExecutor signExecutor;
+    private final ThreadPoolExecutor validationExecutor;
+    private final ThreadPoolExecutor revocationExecutor;
+    private final ExecutorService tracedSignExecutor;
+    private final ExecutorService tracedValidationExecutor;
+    private final ExecutorService tracedRevocationExecutor;
+    private final long revocationTimeoutMs;
+
+    public Bulkheads(BulkheadProperties properties, MeterRegistry meterRegistry) {
+        this.signExecutor = createExecutor(SIGN, properties.getSign(), meterRegistry);
+        this.validationExecutor = createExecutor(VALIDATION, properties.getValidation(), meterRegistry);
+        this.revocationExecutor = createExecutor(REVOCATION, properties.getRevocation(), meterRegistry);
+        this.tracedSignExecutor = Context.taskWrapping(signExecutor);
+        this.tracedValidationExecutor = Context.taskWrapping(validationExecutor);
+        this.tracedRevocationExecutor = Context.taskWrapping(revocationExecutor);
+        this.revocationTimeoutMs = properties.getRevocationTimeoutMs();
+    }
+
+    public ExecutorService getSignExecutor() {
+        return tracedSignExecutor;
+    }
+
+    public ExecutorService getValidationExecutor() {
+        return tracedValidationExecutor;
+    }
+
+    public ExecutorService getRevocationExecutor() {
+        return tracedRevocationExecutor;
+    }
+
+    /**
+     * Wraps a DSS data loader, so its OCSP, CRL and AIA requests run on the revocation executor with a time limit
+     *
+     * @param dataLoader The data loader doing the actual requests
+     * @return The bulkheaded data loader
+     */
+    public DataLoader revocationDataLoader(DataLoader dataLoader) {
+        return new BulkheadDataLoader(dataLoader, tracedRevocationExecutor, revocationTimeoutMs);
+    }
+
+    public void shutdown() {
+        signExecutor.shutdownNow();
+        validationExecutor.shutdownNow();
+        revocationExecutor.shutdownNow();
+    }
+
+    private static ThreadPoolExecutor createExecutor(String name, BulkheadProperties.Pool pool, MeterRegistry meterRegistry) {
+        Counter rejected = Counter.builder("eidas.bulkhead.rejected")
+                .tag("name", name)
+                .description("Tasks rejected because the bulkhead queue was full")
+                .register(meterRegistry);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(pool.getThreads(), pool.getThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(pool.getQueueSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "eidas-" + name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, threadPoolExecutor) -> {
+                    rejected.increment();
+                    throw new RejectedExecutionException(String.format("The %s bulkhead is full, please retry later", name));
+                });
+        executor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(executor, "eidas." + name, Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+}
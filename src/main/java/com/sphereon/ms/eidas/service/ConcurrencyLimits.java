@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The adaptive concurrency limits of signing (CPU-bound) and verification (mostly waiting on OCSP/CRL responders). They
+ * are separate, so slow revocation sources shrink the verification limit without affecting signing
+ */
+@Component
+public class ConcurrencyLimits {
+    private final AdaptiveLimiter signLimiter;
+    private final AdaptiveLimiter verifyLimiter;
+
+    public ConcurrencyLimits(@Value("${sphereon.eidas-sign-poc.concurrency-limit.sign.initial:#{2 * T(java.lang.Runtime).getRuntime().availableProcessors()}}") int signInitial,
+                             @Value("${sphereon.eidas-sign-poc.concurrency-limit.sign.min:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int signMin,
+                             @Value("${sphereon.eidas-sign-poc.concurrency-limit.sign.max:#{8 * T(java.lang.Runtime).getRuntime().availableProcessors()}}") int signMax,
+                             @Value("${sphereon.eidas-sign-poc.concurrency-limit.verify.initial:50}") int verifyInitial,
+                             @Value("${sphereon.eidas-sign-poc.concurrency-limit.verify.min:10}") int verifyMin,
+                             @Value("${sphereon.eidas-sign-poc.concurrency-limit.verify.max:400}") int verifyMax) {
+        this.signLimiter = new AdaptiveLimiter("sign", signInitial, signMin, signMax);
+        this.verifyLimiter = new AdaptiveLimiter("verify", verifyInitial, verifyMin, verifyMax);
+    }
+
+    public AdaptiveLimiter getSignLimiter() {
+        return signLimiter;
+    }
+
+    public AdaptiveLimiter getVerifyLimiter() {
+        return verifyLimiter;
+    }
+}
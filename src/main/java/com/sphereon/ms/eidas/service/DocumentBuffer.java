@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.FileDocument;
+import eu.europa.esig.dss.model.InMemoryDocument;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A document decoded from a request, on the heap up to the spill threshold and in a temporary file beyond it. Write it
+ * through {@link #outputStream()} and {@link #finish()} it before reading. Closing deletes the file.
+ * <p>
+ * With a {@link MemoryGovernor} the bytes on the heap count towards its budget, and the buffer spills early when the
+ * budget is exhausted. Closing releases them, together with the reservation of {@link MemoryGovernor#admit}. A buffer
+ * that is never closed, for instance because the rest of the request could not be read, has its file deleted and its
+ * reservation released once it is garbage collected
+ */
+public class DocumentBuffer implements Closeable {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int spillThreshold;
+    private final Path directory;
+    private final Resources resources;
+    private final Cleaner.Cleanable cleanable;
+    private byte[] memory;
+    private int count;
+    private long size;
+    private TemporaryFile file;
+
+    DocumentBuffer(int spillThreshold, Path directory, MemoryGovernor governor) {
+        this.spillThreshold = spillThreshold;
+        this.directory = directory;
+        this.resources = new Resources(governor);
+        this.cleanable = CLEANER.register(this, resources);
+        this.memory = new byte[Math.min(spillThreshold, 8192)];
+    }
+
+    private DocumentBuffer(byte[] bytes) {
+        this.spillThreshold = Integer.MAX_VALUE;
+        this.directory = null;
+        this.resources = new Resources(null);
+        this.cleanable = CLEANER.register(this, resources);
+        this.memory = bytes;
+        this.count = bytes.length;
+        this.size = bytes.length;
+    }
+
+    /**
+     * @param bytes The document, which is not copied
+     * @return A buffer on the heap
+     */
+    public static DocumentBuffer of(byte[] bytes) {
+        return new DocumentBuffer(bytes);
+    }
+
+    /**
+     * @return A stream that appends to the buffer. Closing it does not finish the buffer
+     */
+    public OutputStream outputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                DocumentBuffer.this.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                DocumentBuffer.this.write(b, off, len);
+            }
+        };
+    }
+
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (file == null) {
+            if (count + (long) length > spillThreshold) {
+                spill(false);
+            } else if (!resources.tryReserve(length)) {
+                spill(true);
+            }
+        }
+        if (file != null) {
+            file.out.write(bytes, offset, length);
+        } else {
+            if (count + length > memory.length) {
+                memory = Arrays.copyOf(memory, (int) Math.min(spillThreshold, Math.max(memory.length * 2L, count + length)));
+            }
+            System.arraycopy(bytes, offset, memory, count, length);
+            count += length;
+        }
+        size += length;
+    }
+
+    /**
+     * Completes writing, the buffer can be read from now on
+     */
+    public void finish() throws IOException {
+        if (file != null) {
+            file.out.close();
+        }
+    }
+
+    /**
+     * @return The number of bytes in the buffer
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return Whether the document is in a temporary file
+     */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    public InputStream openStream() throws IOException {
+        if (file != null) {
+            return new BufferedInputStream(Files.newInputStream(file.path));
+        }
+        return new ByteArrayInputStream(memory, 0, count);
+    }
+
+    /**
+     * @return The document on the heap, which is the buffer's own array when it fits exactly
+     */
+    public byte[] toByteArray() throws IOException {
+        if (file != null) {
+            return Files.readAllBytes(file.path);
+        }
+        return count == memory.length ? memory : Arrays.copyOf(memory, count);
+    }
+
+    /**
+     * @return A DSS document, backed by the temporary file when the buffer spilled
+     */
+    public DSSDocument toDSSDocument() {
+        if (file != null) {
+            return new FileDocument(file.path.toFile());
+        }
+        try {
+            return new InMemoryDocument(toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes the temporary file, if any, and releases the reservation
+     */
+    @Override
+    public void close() {
+        memory = null;
+        cleanable.clean();
+    }
+
+    long getReservedBytes() {
+        return resources.getReservedBytes();
+    }
+
+    void addReservation(MemoryGovernor governor, long bytes) {
+        resources.addReservation(governor, bytes);
+    }
+
+    private void spill(boolean overBudget) throws IOException {
+        Path path = directory == null ? Files.createTempFile("eidas-document", ".bin")
+                : Files.createTempFile(directory, "eidas-document", ".bin");
+        try {
+            file = new TemporaryFile(path);
+        } catch (IOException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        resources.setFile(file);
+        file.out.write(memory, 0, count);
+        memory = null;
+        count = 0;
+        resources.spilled(overBudget);
+    }
+
+    /**
+     * The cleaning action, which must not refer to the buffer itself. Guarded by itself, a request may be cancelled while
+     * it is admitted
+     */
+    private static final class Resources implements Runnable {
+        private MemoryGovernor governor;
+        private long reservedBytes;
+        private TemporaryFile file;
+        private boolean closed;
+
+        private Resources(MemoryGovernor governor) {
+            this.governor = governor;
+        }
+
+        @Override
+        public synchronized void run() {
+            closed = true;
+            if (file != null) {
+                file.delete();
+            }
+            release();
+        }
+
+        private synchronized long getReservedBytes() {
+            return reservedBytes;
+        }
+
+        private synchronized boolean tryReserve(long bytes) {
+            if (governor == null) {
+                return true;
+            }
+            if (closed || !governor.tryReserve(bytes)) {
+                return false;
+            }
+            reservedBytes += bytes;
+            return true;
+        }
+
+        private synchronized void addReservation(MemoryGovernor governor, long bytes) {
+            if (closed) {
+                governor.release(bytes);
+                return;
+            }
+            this.governor = governor;
+            reservedBytes += bytes;
+        }
+
+        private synchronized void setFile(TemporaryFile file) throws IOException {
+            if (closed) {
+                file.delete();
+                throw new IOException("The document buffer is closed");
+            }
+            this.file = file;
+        }
+
+        private synchronized void spilled(boolean overBudget) {
+            if (governor != null) {
+                governor.recordSpill(overBudget);
+                release();
+            }
+        }
+
+        private void release() {
+            if (reservedBytes > 0) {
+                governor.release(reservedBytes);
+                reservedBytes = 0;
+            }
+        }
+    }
+
+    private static final class TemporaryFile {
+        private final Path path;
+        private final OutputStream out;
+
+        private TemporaryFile(Path path) throws IOException {
+            this.path = path;
+            this.out = Files.newOutputStream(path);
+        }
+
+        private void delete() {
+            try {
+                out.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // The file is in the temporary directory, which is cleaned eventually
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Creates the {@link DocumentBuffer}s that the sign content and verify signature of JSON requests are decoded into. The
+ * JSON deserializers find it as an attribute of the object mapper. The heap of the buffers counts towards the
+ * {@link MemoryGovernor} budget, when there is one
+ */
+@Component
+public class DocumentBuffers {
+    private final int spillThreshold;
+    private final Path directory;
+    private final MemoryGovernor governor;
+
+    public DocumentBuffers(int spillThreshold, String directory) {
+        this(spillThreshold, directory, null);
+    }
+
+    @Autowired
+    public DocumentBuffers(@Value("${sphereon.eidas-sign-poc.document-buffer.spill-threshold-bytes:1048576}") int spillThreshold,
+                           @Value("${sphereon.eidas-sign-poc.document-buffer.directory:}") String directory,
+                           MemoryGovernor governor) {
+        this.spillThreshold = spillThreshold;
+        this.directory = directory.isBlank() ? null : Paths.get(directory);
+        this.governor = governor;
+    }
+
+    /**
+     * @return An empty buffer to write a document into
+     */
+    public DocumentBuffer create() {
+        return new DocumentBuffer(spillThreshold, directory, governor);
+    }
+
+    /**
+     * Counts heap that is already taken towards the budget, when there is one
+     *
+     * @see MemoryGovernor#reserve(long)
+     */
+    public MemoryGovernor.Reservation reserve(long bytes) {
+        return governor == null ? () -> {
+        } : governor.reserve(bytes);
+    }
+
+    public int getSpillThreshold() {
+        return spillThreshold;
+    }
+}
@@ -16,16 +16,22 @@
 
 package com.sphereon.ms.eidas.service;
 
-import com.sphereon.ms.auth.jwt.JWTContext;
+import com.sphereon.ms.eidas.api.model.audit.AuditEvent;
 import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateBulkImportRequest;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateBulkImportResponse;
 import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateImportRequest;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateImportResult;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateInfo;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificatePage;
 import com.sphereon.ms.eidas.api.model.signature.CadesSignatureVerifyResponse;
-import com.sphereon.ms.eidas.nosql.EidasCertificateRepository;
+import com.sphereon.ms.eidas.nosql.EidasCertificateFilter;
+import com.sphereon.ms.eidas.nosql.EidasCertificateStore;
 import com.sphereon.ms.eidas.rest.RestException;
 import eu.europa.esig.dss.cades.CAdESSignatureParameters;
 import eu.europa.esig.dss.cades.signature.CAdESService;
 import eu.europa.esig.dss.cades.signature.CMSSignedDocument;
-import eu.europa.esig.dss.cades.validation.CAdESCertificateSource;
+import eu.europa.esig.dss.cades.validation.CMSDocumentValidator;
 import eu.europa.esig.dss.enumerations.DigestAlgorithm;
 import eu.europa.esig.dss.enumerations.SignatureLevel;
 import eu.europa.esig.dss.enumerations.SignaturePackaging;
@@ -35,47 +41,90 @@ import eu.europa.esig.dss.model.SignatureValue;
 import eu.europa.esig.dss.model.ToBeSigned;
 import eu.europa.esig.dss.service.crl.OnlineCRLSource;
 import eu.europa.esig.dss.service.http.commons.CommonsDataLoader;
+import eu.europa.esig.dss.service.http.commons.OCSPDataLoader;
 import eu.europa.esig.dss.service.ocsp.OnlineOCSPSource;
 import eu.europa.esig.dss.simplereport.SimpleReport;
-import eu.europa.esig.dss.spi.x509.CertificateSource;
 import eu.europa.esig.dss.spi.x509.CommonTrustedCertificateSource;
 import eu.europa.esig.dss.token.DSSPrivateKeyEntry;
 import eu.europa.esig.dss.token.Pkcs12SignatureToken;
+import eu.europa.esig.dss.token.SignatureTokenConnection;
 import eu.europa.esig.dss.validation.AdvancedSignature;
 import eu.europa.esig.dss.validation.CertificateVerifier;
 import eu.europa.esig.dss.validation.CommonCertificateVerifier;
-import eu.europa.esig.dss.validation.DocumentValidator;
-import eu.europa.esig.dss.validation.SignedDocumentValidator;
 import eu.europa.esig.dss.validation.reports.Reports;
-import org.bouncycastle.asn1.ASN1Sequence;
-import org.bouncycastle.asn1.cms.ContentInfo;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.Pfx;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cms.CMSException;
+import org.bouncycastle.cms.CMSProcessableByteArray;
 import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.CMSTypedData;
 import org.bouncycastle.cms.SignerInformation;
-import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import static org.springframework.beans.factory.config.ConfigurableBeanFactory.SCOPE_PROTOTYPE;
 
 @Component
 @Scope(SCOPE_PROTOTYPE)
 public class EidasDelegate {
-    private final JWTContext jwtContext;
-    private final EidasCertificateRepository certificateRepository;
+    private static final int MAX_PAGE_SIZE = 1000;
+    public static final String ANONYMOUS_OWNER = "anonymous";
 
-    public EidasDelegate(JWTContext jwtContext, EidasCertificateRepository certificateRepository) {
-        this.jwtContext = jwtContext;
+    private final OwnerResolver ownerResolver;
+    private final EidasCertificateStore certificateRepository;
+    private final KeyEnvelopeService keyEnvelopeService;
+    private final UsageMeter usageMeter;
+    private final AuditLog auditLog;
+    private final ConcurrencyLimits concurrencyLimits;
+    private final Bulkheads bulkheads;
+    private final PhaseTimers phaseTimers;
+    private final SlowRequestRecorder slowRequestRecorder;
+    private TrustedCertificates trustedCertificates;
+
+    public EidasDelegate(OwnerResolver ownerResolver, EidasCertificateStore certificateRepository,
+                         KeyEnvelopeService keyEnvelopeService, UsageMeter usageMeter, AuditLog auditLog,
+                         ConcurrencyLimits concurrencyLimits, Bulkheads bulkheads, PhaseTimers phaseTimers,
+                         SlowRequestRecorder slowRequestRecorder) {
+        this.ownerResolver = ownerResolver;
         this.certificateRepository = certificateRepository;
+        this.keyEnvelopeService = keyEnvelopeService;
+        this.usageMeter = usageMeter;
+        this.auditLog = auditLog;
+        this.concurrencyLimits = concurrencyLimits;
+        this.bulkheads = bulkheads;
+        this.phaseTimers = phaseTimers;
+        this.slowRequestRecorder = slowRequestRecorder;
+    }
+
+    @Autowired(required = false)
+    public void setTrustedCertificates(TrustedCertificates trustedCertificates) {
+        this.trustedCertificates = trustedCertificates;
     }
 
     /**
@@ -87,14 +136,171 @@ public class EidasDelegate {
      */
     public EidasCertificate persistEidasCertificate(EidasCertificateImportRequest certificateImportRequest)
             throws RestException.DuplicateNameException {
-        certificateRepository.findByOwnerAndName(getOwner(), certificateImportRequest.getName())
-                .ifPresent(certificate -> {
-                    throw new RestException.DuplicateNameException(certificate.getName());
-                });
-        var certificate = new EidasCertificate(getOwner(),
-                certificateImportRequest.getName(),
-                certificateImportRequest.getBase64Certificate());
-        return certificateRepository.save(certificate);
+        var certificate = prepareCertificate(getOwner(), certificateImportRequest);
+        try {
+            // The unique owner_name index rejects duplicates, so no lookup is needed upfront
+            return certificateRepository.save(certificate);
+        } catch (DuplicateKeyException e) {
+            throw new RestException.DuplicateNameException(certificate.getName());
+        }
+    }
+
+    /**
+     * Imports many eidas certificates at once. The certificates are validated in parallel and the valid ones are inserted
+     * using a single unordered bulk write, so one invalid or duplicate certificate does not fail the others
+     *
+     * @param bulkImportRequest The certificates in base64 form and their names
+     * @return The result per certificate, in request order
+     */
+    public EidasCertificateBulkImportResponse importEidasCertificates(EidasCertificateBulkImportRequest bulkImportRequest) {
+        return importEidasCertificates(getOwner(), bulkImportRequest);
+    }
+
+    /**
+     * Imports many eidas certificates at once for an already resolved owner, so it can run off the request thread
+     *
+     * @param owner             The tenant
+     * @param bulkImportRequest The certificates in base64 form and their names
+     * @return The result per certificate, in request order
+     */
+    public EidasCertificateBulkImportResponse importEidasCertificates(String owner, EidasCertificateBulkImportRequest bulkImportRequest) {
+        List<EidasCertificateImportRequest> importRequests = Optional.ofNullable(bulkImportRequest.getCertificates())
+                .orElse(List.of());
+        List<PreparedImport> preparedImports = importRequests.parallelStream()
+                .map(importRequest -> {
+                    try {
+                        return new PreparedImport(prepareCertificate(owner, importRequest), null);
+                    } catch (RestException e) {
+                        return new PreparedImport(null, EidasCertificateImportResult.invalid(importRequest.getName(), e.getMessage()));
+                    }
+                })
+                .collect(Collectors.toList());
+
+        List<EidasCertificate> certificates = preparedImports.stream()
+                .filter(preparedImport -> preparedImport.certificate != null)
+                .map(preparedImport -> preparedImport.certificate)
+                .collect(Collectors.toList());
+        Iterator<EidasCertificateImportResult> insertResults = certificateRepository.insertAll(certificates).iterator();
+
+        List<EidasCertificateImportResult> results = new ArrayList<>(importRequests.size());
+        int imported = 0;
+        for (PreparedImport preparedImport : preparedImports) {
+            EidasCertificateImportResult result = preparedImport.certificate != null ? insertResults.next() : preparedImport.rejection;
+            if (result.getStatus() == EidasCertificateImportResult.Status.IMPORTED) {
+                imported++;
+            }
+            results.add(result);
+        }
+        return new EidasCertificateBulkImportResponse(imported, results.size() - imported, results);
+    }
+
+    /**
+     * Lists the certificates of the current owner, ordered by name, using keyset paging
+     *
+     * @param filter The optional filters
+     * @param cursor The cursor from the previous page, null for the first page
+     * @param limit  The page size
+     * @return The page, including the cursor of the next page if there is one
+     */
+    public EidasCertificatePage listCertificates(EidasCertificateFilter filter, String cursor, int limit) {
+        return listCertificates(getOwner(), filter, cursor, limit);
+    }
+
+    /**
+     * Lists the certificates of an already resolved owner, ordered by name, using keyset paging
+     *
+     * @param owner  The tenant
+     * @param filter The optional filters
+     * @param cursor The cursor from the previous page, null for the first page
+     * @param limit  The page size
+     * @return The page, including the cursor of the next page if there is one
+     */
+    public EidasCertificatePage listCertificates(String owner, EidasCertificateFilter filter, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RestException.InvalidRequestException(String.format("The page limit should be between 1 and %d", MAX_PAGE_SIZE));
+        }
+        String afterName = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                afterName = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new RestException.InvalidRequestException("Invalid cursor supplied: " + cursor);
+            }
+        }
+        // Read one extra to know whether there is a next page
+        List<EidasCertificateInfo> certificates = certificateRepository.findPage(owner, filter, afterName, limit + 1);
+        String nextCursor = null;
+        if (certificates.size() > limit) {
+            certificates = certificates.subList(0, limit);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    certificates.get(limit - 1).getName().getBytes(StandardCharsets.UTF_8));
+        }
+        return new EidasCertificatePage(certificates, nextCursor);
+    }
+
+    /**
+     * Checks that the import request has a name and contains a structurally valid PKCS#12 file. When a password is
+     * supplied the file is opened to store the signing certificate metadata used for listing, and to seal the key into an
+     * envelope when requested. Performs no database access, apart from creating the tenant data key on first use
+     *
+     * @param owner         The tenant
+     * @param importRequest The import request
+     * @return The certificate to persist
+     * @throws RestException.InvalidCertificateException When the request is invalid
+     */
+    public EidasCertificate prepareCertificate(String owner, EidasCertificateImportRequest importRequest) {
+        String name = importRequest.getName();
+        if (name == null || name.isBlank()) {
+            throw new RestException.InvalidCertificateException("A certificate name is required");
+        }
+        if (importRequest.getBase64Certificate() == null) {
+            throw new RestException.InvalidCertificateException("A base64 certificate is required for " + name);
+        }
+        byte[] p12bytes;
+        try {
+            p12bytes = Base64.getDecoder().decode(importRequest.getBase64Certificate());
+            Pfx.getInstance(ASN1Primitive.fromByteArray(p12bytes));
+        } catch (IOException | RuntimeException e) {
+            throw new RestException.InvalidCertificateException("Not a valid base64 PKCS#12 certificate: " + name);
+        }
+        if (importRequest.getPassword() == null) {
+            if (importRequest.isWrapKey()) {
+                throw new RestException.InvalidCertificateException("A password is required to wrap the key of " + name);
+            }
+            return new EidasCertificate(owner, name, importRequest.getBase64Certificate());
+        }
+
+        DSSPrivateKeyEntry privateKey;
+        Pkcs12SignatureToken signatureToken = null;
+        try {
+            signatureToken = getSignatureToken(p12bytes, importRequest.getPassword());
+            privateKey = signatureToken.getKeys().get(0);
+        } catch (RuntimeException e) {
+            throw new RestException.InvalidCertificateException(String.format("Could not open certificate %s with the supplied password", name));
+        } finally {
+            if (signatureToken != null) {
+                signatureToken.close();
+            }
+        }
+        String keyEnvelope = importRequest.isWrapKey()
+                ? keyEnvelopeService.seal(owner, name, privateKey, importRequest.getPassword()) : null;
+        X509Certificate signingCertificate = privateKey.getCertificate().getCertificate();
+        return new EidasCertificate(owner, name, importRequest.getBase64Certificate(),
+                signingCertificate.getSubjectX500Principal().getName(),
+                signingCertificate.getIssuerX500Principal().getName(),
+                signingCertificate.getPublicKey().getAlgorithm(),
+                signingCertificate.getNotAfter().toInstant(),
+                keyEnvelope);
+    }
+
+    private static class PreparedImport {
+        private final EidasCertificate certificate;
+        private final EidasCertificateImportResult rejection;
+
+        private PreparedImport(EidasCertificate certificate, EidasCertificateImportResult rejection) {
+            this.certificate = certificate;
+            this.rejection = rejection;
+        }
     }
 
     /**
@@ -106,14 +312,145 @@ public class EidasDelegate {
      * @return The PEM signature object
      */
     public String signWithCertificate(String certificateName, String password, String contentBase64) {
-        byte[] p12bytes = getCertificate(certificateName);
-        Pkcs12SignatureToken signatureToken = getSignatureToken(p12bytes, password);
-        byte[] content = Base64.getDecoder().decode(contentBase64);
+        return signWithCertificate(getCertificate(certificateName), password, contentBase64);
+    }
+
+    /**
+     * Sign the content using an already retrieved certificate, using the provided password
+     *
+     * @param certificate   The certificate
+     * @param password      The certificate password
+     * @param contentBase64 The content to be signed
+     * @return The PEM signature object
+     * @throws RestException.OverloadedException When too many signatures are in progress
+     * @see #signDocument(EidasCertificate, String, DocumentBuffer)
+     */
+    public String signWithCertificate(EidasCertificate certificate, String password, String contentBase64) {
+        byte[] cms = signDocument(certificate, password, DocumentBuffer.of(Base64.getDecoder().decode(contentBase64)));
+        return phaseTimers.time(UsageMeter.Operation.SIGN, PhaseTimers.PEM_ENCODING, certificate.getKeyType(),
+                () -> PemCodec.encode(cms));
+    }
+
+    /**
+     * Sign the content using an already retrieved certificate, using the provided password. Performs no database access,
+     * so it can be run on a separate (bounded) scheduler once the certificate has been looked up. Certificates imported
+     * with a key envelope are unlocked with a single AES-GCM decrypt instead of opening the PKCS#12 file
+     * <p>
+     * Signing is subject to the adaptive sign concurrency limit
+     *
+     * @param certificate The certificate
+     * @param password    The certificate password
+     * @param content     The content to be signed, which DSS reads from the temporary file when it spilled
+     * @return The DER encoded signature
+     * @throws RestException.OverloadedException When too many signatures are in progress
+     */
+    public byte[] signDocument(EidasCertificate certificate, String password, DocumentBuffer content) {
+        AdaptiveLimiter.Permit permit = concurrencyLimits.getSignLimiter().acquire();
+        try {
+            byte[] cms = signMetered(certificate, password, content);
+            permit.complete();
+            return cms;
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Signs the content on the sign bulkhead. The permit of the adaptive sign concurrency limit is taken on the calling
+     * thread before the signature is queued, so requests are rejected once the bulkhead backs up
+     *
+     * @param certificate The certificate
+     * @param password    The certificate password
+     * @param content     The content to be signed, which DSS reads from the temporary file when it spilled
+     * @return The DER encoded signature
+     * @throws RestException.OverloadedException When too many signatures are in progress
+     * @throws java.util.concurrent.RejectedExecutionException When the sign bulkhead is full
+     * @see #signDocument(EidasCertificate, String, DocumentBuffer)
+     */
+    public CompletableFuture<byte[]> signDocumentAsync(EidasCertificate certificate, String password, DocumentBuffer content) {
+        return concurrencyLimits.getSignLimiter().supplyAsync(() -> signMetered(certificate, password, content),
+                bulkheads.getSignExecutor());
+    }
+
+    private byte[] signMetered(EidasCertificate certificate, String password, DocumentBuffer content) {
+        long start = System.nanoTime();
+        long cpuStart = usageMeter.currentThreadCpuTime();
+        OperationEvent event = slowRequestRecorder.begin(UsageMeter.Operation.SIGN, certificate.getOwner(),
+                certificate.getName(), content.size());
         try {
-            byte[] signature = signWithPkcs12Token(signatureToken, content);
-            return toPem(signature);
+            byte[] cms = sign(phaseTimers, certificate, password, content.toDSSDocument());
+            usageMeter.record(certificate.getOwner(), UsageMeter.Operation.SIGN, content.size(),
+                    usageMeter.currentThreadCpuTime() - cpuStart);
+            auditLog.recordOperation(AuditEvent.Type.SIGN, certificate.getOwner(), certificate.getName(), content,
+                    System.nanoTime() - start, null);
+            slowRequestRecorder.end(event, System.nanoTime() - start, true);
+            return cms;
+        } catch (RuntimeException e) {
+            auditLog.recordOperation(AuditEvent.Type.SIGN, certificate.getOwner(), certificate.getName(), content,
+                    System.nanoTime() - start, e);
+            slowRequestRecorder.end(event, System.nanoTime() - start, false);
+            throw e;
+        }
+    }
+
+    /**
+     * Signs content and verifies the result without metering, auditing, phase timers or concurrency limits. Used by the
+     * warm-up at startup, so the signing and validation code is loaded and compiled before the first request without
+     * adding its samples to the request metrics, traces and flight recordings
+     *
+     * @param certificate A (synthetic) certificate
+     * @param password    The certificate password
+     * @param content     The content to sign
+     * @return The verification result
+     */
+    public CadesSignatureVerifyResponse signAndVerifyUnmetered(EidasCertificate certificate, String password, byte[] content) {
+        try {
+            byte[] signature = sign(PhaseTimers.noop(), certificate, password, new InMemoryDocument(content));
+            return verifySignature(PhaseTimers.noop(), new ByteArrayInputStream(signature));
+        } catch (CMSException e) {
+            throw new RestException.InvalidSignatureException("Could not verify signature");
+        }
+    }
+
+    private byte[] sign(PhaseTimers timers, EidasCertificate certificate, String password, DSSDocument content) {
+        String keyAlgorithm = certificate.getKeyType();
+        UnlockedKey unlockedKey = timers.time(UsageMeter.Operation.SIGN, PhaseTimers.UNLOCK, keyAlgorithm,
+                () -> unlock(certificate, password));
+        try {
+            return signWithToken(timers, unlockedKey.token, unlockedKey.privateKey, content, keyAlgorithm);
         } catch (IOException e) {
-            throw new RestException.InvalidSignatureException(String.format("Could not sign content with certificate %s.", certificateName));
+            throw new RestException.InvalidSignatureException(String.format("Could not sign content with certificate %s.", certificate.getName()));
+        } finally {
+            unlockedKey.token.close();
+        }
+    }
+
+    /**
+     * Opens the signature token and decrypts the private key, which DSS does again on every call to getKeys()
+     */
+    private UnlockedKey unlock(EidasCertificate certificate, String password) {
+        SignatureTokenConnection signatureToken;
+        if (certificate.getKeyEnvelope() != null && keyEnvelopeService.isEnabled()) {
+            signatureToken = keyEnvelopeService.unlock(certificate, password);
+        } else {
+            byte[] p12bytes = Base64.getDecoder().decode(certificate.getBase64CertificateString());
+            signatureToken = getSignatureToken(p12bytes, password);
+        }
+        try {
+            return new UnlockedKey(signatureToken, signatureToken.getKeys().get(0));
+        } catch (RuntimeException e) {
+            signatureToken.close();
+            throw e;
+        }
+    }
+
+    private static final class UnlockedKey {
+        private final SignatureTokenConnection token;
+        private final DSSPrivateKeyEntry privateKey;
+
+        private UnlockedKey(SignatureTokenConnection token, DSSPrivateKeyEntry privateKey) {
+            this.token = token;
+            this.privateKey = privateKey;
         }
     }
 
@@ -123,11 +460,78 @@ public class EidasDelegate {
      * @return
      */
     public CadesSignatureVerifyResponse verify(String signaturePem) {
-        byte[] signature = fromPem(signaturePem);
+        return verify(getOwnerOrAnonymous(), signaturePem);
+    }
+
+    /**
+     * Verifies a signature for correctness, metering it for an already resolved owner. Verification is subject to the
+     * adaptive verify concurrency limit
+     *
+     * @param owner        The tenant, used for metering only
+     * @param signaturePem The PEM signature object
+     * @return The verification result
+     * @throws RestException.OverloadedException When too many verifications are in progress
+     */
+    public CadesSignatureVerifyResponse verify(String owner, String signaturePem) {
+        return verify(owner, DocumentBuffer.of(PemCodec.decode(signaturePem)));
+    }
+
+    /**
+     * Verifies a signature for correctness, metering it for an already resolved owner. Verification is subject to the
+     * adaptive verify concurrency limit
+     *
+     * @param owner     The tenant, used for metering only
+     * @param signature The DER signature, which is parsed from the buffer's stream
+     * @return The verification result
+     * @throws RestException.OverloadedException When too many verifications are in progress
+     */
+    public CadesSignatureVerifyResponse verify(String owner, DocumentBuffer signature) {
+        AdaptiveLimiter.Permit permit = concurrencyLimits.getVerifyLimiter().acquire();
         try {
-            return verifySignatureBytes(signature);
+            CadesSignatureVerifyResponse response = verifyMetered(owner, signature);
+            permit.complete();
+            return response;
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Verifies a signature on the validation bulkhead. The permit of the adaptive verify concurrency limit is taken on
+     * the calling thread before the verification is queued, so requests are rejected once the bulkhead backs up
+     *
+     * @param owner     The tenant, used for metering only
+     * @param signature The DER signature, which is parsed from the buffer's stream
+     * @return The verification result
+     * @throws RestException.OverloadedException When too many verifications are in progress
+     * @throws java.util.concurrent.RejectedExecutionException When the validation bulkhead is full
+     * @see #verify(String, DocumentBuffer)
+     */
+    public CompletableFuture<CadesSignatureVerifyResponse> verifyAsync(String owner, DocumentBuffer signature) {
+        return concurrencyLimits.getVerifyLimiter().supplyAsync(() -> verifyMetered(owner, signature),
+                bulkheads.getValidationExecutor());
+    }
+
+    private CadesSignatureVerifyResponse verifyMetered(String owner, DocumentBuffer signature) {
+        long start = System.nanoTime();
+        long cpuStart = usageMeter.currentThreadCpuTime();
+        OperationEvent event = slowRequestRecorder.begin(UsageMeter.Operation.VERIFY, owner, null, signature.size());
+        try (InputStream in = signature.openStream()) {
+            CadesSignatureVerifyResponse response = verifySignature(phaseTimers, in);
+            usageMeter.record(owner, UsageMeter.Operation.VERIFY, signature.size(),
+                    usageMeter.currentThreadCpuTime() - cpuStart);
+            auditLog.recordOperation(AuditEvent.Type.VERIFY, owner, null, signature, System.nanoTime() - start, null);
+            slowRequestRecorder.end(event, System.nanoTime() - start, true);
+            return response;
         } catch (CMSException e) {
-            throw new RestException.InvalidSignatureException("Could not verify signature");
+            RestException.InvalidSignatureException error = new RestException.InvalidSignatureException("Could not verify signature");
+            auditLog.recordOperation(AuditEvent.Type.VERIFY, owner, null, signature, System.nanoTime() - start, error);
+            slowRequestRecorder.end(event, System.nanoTime() - start, false);
+            throw error;
+        } catch (IOException | RuntimeException e) {
+            auditLog.recordOperation(AuditEvent.Type.VERIFY, owner, null, signature, System.nanoTime() - start, e);
+            slowRequestRecorder.end(event, System.nanoTime() - start, false);
+            throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
         }
     }
 
@@ -138,38 +542,69 @@ public class EidasDelegate {
      * @return A simple report and validation information based upon the provided signature
      * @throws CMSException
      */
-    private CadesSignatureVerifyResponse verifySignatureBytes(byte[] signature) throws CMSException {
-        CMSSignedData cmsSignedData = new CMSSignedData(signature);
-        CertificateVerifier cv = getCertificateVerifier(cmsSignedData);
-        DSSDocument document = new CMSSignedDocument(cmsSignedData);
-        SignedDocumentValidator documentValidator = SignedDocumentValidator.fromDocument(document);
+    CadesSignatureVerifyResponse verifySignatureBytes(byte[] signature) throws CMSException {
+        return verifySignature(phaseTimers, new ByteArrayInputStream(signature));
+    }
+
+    private CadesSignatureVerifyResponse verifySignature(PhaseTimers timers, InputStream signature) throws CMSException {
+        long parseStart = System.nanoTime();
+        CMSSignedData cmsSignedData;
+        SignerInformation signerInformation;
+        try {
+            cmsSignedData = new CMSSignedData(signature);
+            signerInformation = getSignerInformation(cmsSignedData);
+        } catch (CMSException | RuntimeException e) {
+            timers.record(UsageMeter.Operation.VERIFY, PhaseTimers.CMS_PARSE, null, System.nanoTime() - parseStart, false);
+            throw e;
+        }
+        String keyAlgorithm = getKeyAlgorithm(cmsSignedData, signerInformation);
+        timers.record(UsageMeter.Operation.VERIFY, PhaseTimers.CMS_PARSE, keyAlgorithm, System.nanoTime() - parseStart, true);
+
+        // The validator works on the parsed structure, so DSS neither re-encodes nor re-parses the DER, and the signature
+        // it creates holds the signer and certificates that the trust source and the original data below share
+        CMSDocumentValidator documentValidator = new CMSDocumentValidator(cmsSignedData);
+        CertificateVerifier cv = getCertificateVerifier(timers, keyAlgorithm);
         documentValidator.setCertificateVerifier(cv);
-        Reports reports = documentValidator.validateDocument();
-        SimpleReport simpleReport = reports.getSimpleReport();
-        String originalData = getSignedData(documentValidator);
+        addTrustedCertSources(cv, documentValidator.getSignatures().get(0));
+        Reports reports = timers.time(UsageMeter.Operation.VERIFY, PhaseTimers.VALIDATION, keyAlgorithm,
+                documentValidator::validateDocument);
+        SimpleReport simpleReport = timers.time(UsageMeter.Operation.VERIFY, PhaseTimers.REPORT, keyAlgorithm,
+                reports::getSimpleReport);
+        byte[] originalData = timers.time(UsageMeter.Operation.VERIFY, PhaseTimers.ORIGINAL_DATA, keyAlgorithm,
+                () -> getSignedData(cmsSignedData));
         return new CadesSignatureVerifyResponse(simpleReport.isValid(simpleReport.getFirstSignatureId()),
                 originalData, simpleReport.getJaxbModel());
     }
 
     /**
-     * Signs the input content with a PKCS12 signature token
+     * Signs the input content with a signature token (PKCS12 or key envelope)
      *
      * @param token
+     * @param privateKey   The already decrypted private key of the token
      * @param content
+     * @param keyAlgorithm The key algorithm, for the phase timers
      * @return
      * @throws IOException
      */
-    private byte[] signWithPkcs12Token(Pkcs12SignatureToken token, byte[] content) throws IOException {
-        var toSignDocument = new InMemoryDocument(content);
-        DSSPrivateKeyEntry privateKey = token.getKeys().get(0);
+    byte[] signWithToken(SignatureTokenConnection token, DSSPrivateKeyEntry privateKey, byte[] content,
+                         String keyAlgorithm) throws IOException {
+        return signWithToken(phaseTimers, token, privateKey, new InMemoryDocument(content), keyAlgorithm);
+    }
+
+    private byte[] signWithToken(PhaseTimers timers, SignatureTokenConnection token, DSSPrivateKeyEntry privateKey,
+                                 DSSDocument toSignDocument, String keyAlgorithm) throws IOException {
         CAdESSignatureParameters parameters = construcCadesBSignatureParameters(privateKey);
         CommonCertificateVerifier commonCertificateVerifier = new CommonCertificateVerifier();
         CAdESService service = new CAdESService(commonCertificateVerifier);
-        ToBeSigned dataToSign = service.getDataToSign(toSignDocument, parameters);
+        ToBeSigned dataToSign = timers.time(UsageMeter.Operation.SIGN, PhaseTimers.DATA_TO_SIGN, keyAlgorithm,
+                () -> service.getDataToSign(toSignDocument, parameters));
         DigestAlgorithm digestAlgorithm = parameters.getDigestAlgorithm();
-        SignatureValue signatureValue = token.sign(dataToSign, digestAlgorithm, privateKey);
-        CMSSignedDocument signedDocument = (CMSSignedDocument) service.signDocument(toSignDocument, parameters, signatureValue);
-        return signedDocument.getCMSSignedData().getEncoded();
+        SignatureValue signatureValue = timers.time(UsageMeter.Operation.SIGN, PhaseTimers.PRIVATE_KEY, keyAlgorithm,
+                () -> token.sign(dataToSign, digestAlgorithm, privateKey));
+        CMSSignedDocument signedDocument = timers.time(UsageMeter.Operation.SIGN, PhaseTimers.SIGN_DOCUMENT, keyAlgorithm,
+                () -> (CMSSignedDocument) service.signDocument(toSignDocument, parameters, signatureValue));
+        return timers.time(UsageMeter.Operation.SIGN, PhaseTimers.DER_ENCODING, keyAlgorithm,
+                () -> signedDocument.getCMSSignedData().getEncoded());
     }
 
     private CAdESSignatureParameters construcCadesBSignatureParameters(DSSPrivateKeyEntry privateKey) {
@@ -183,88 +618,123 @@ public class EidasDelegate {
     }
 
     private SignerInformation getSignerInformation(CMSSignedData cmsSignedData) {
-        return new ArrayList<>(cmsSignedData.getSignerInfos().getSigners()).get(0);
+        // todo: POC assumption
+        return cmsSignedData.getSignerInfos().iterator().next();
     }
 
-    private CertificateVerifier getCertificateVerifier(CMSSignedData cmsSignedData) {
-        SignerInformation signerInformation = getSignerInformation(cmsSignedData);
+    /**
+     * @return The algorithm of the signer's public key in JCA naming (RSA, EC, ...), like the stored certificate key type.
+     * Other algorithms are unknown, so signatures sent for verification cannot add tag values to the phase timers
+     */
+    private String getKeyAlgorithm(CMSSignedData cmsSignedData, SignerInformation signerInformation) {
+        @SuppressWarnings("unchecked")
+        Collection<X509CertificateHolder> signerCertificates = cmsSignedData.getCertificates().getMatches(signerInformation.getSID());
+        if (signerCertificates.isEmpty()) {
+            return PhaseTimers.UNKNOWN;
+        }
+        ASN1ObjectIdentifier algorithm = signerCertificates.iterator().next().getSubjectPublicKeyInfo().getAlgorithm().getAlgorithm();
+        if (PKCSObjectIdentifiers.rsaEncryption.equals(algorithm)) {
+            return "RSA";
+        } else if (X9ObjectIdentifiers.id_ecPublicKey.equals(algorithm)) {
+            return "EC";
+        } else if (X9ObjectIdentifiers.id_dsa.equals(algorithm)) {
+            return "DSA";
+        } else if (EdECObjectIdentifiers.id_Ed25519.equals(algorithm) || EdECObjectIdentifiers.id_Ed448.equals(algorithm)) {
+            return "EdDSA";
+        }
+        return PhaseTimers.UNKNOWN;
+    }
+
+    private CertificateVerifier getCertificateVerifier(PhaseTimers timers, String keyAlgorithm) {
         CertificateVerifier cv = new CommonCertificateVerifier();
-        cv.setDataLoader(new CommonsDataLoader());
-        cv.setOcspSource(new OnlineOCSPSource());
-        cv.setCrlSource(new OnlineCRLSource());
+        // Revocation and AIA requests run on their own executor, so a slow CA only holds up validations that need it
+        cv.setDataLoader(timers.timedDataLoader(PhaseTimers.AIA_FETCH, keyAlgorithm,
+                bulkheads.revocationDataLoader(new CommonsDataLoader())));
+        cv.setOcspSource(new OnlineOCSPSource(timers.timedDataLoader(PhaseTimers.OCSP_FETCH, keyAlgorithm,
+                bulkheads.revocationDataLoader(new OCSPDataLoader()))));
+        cv.setCrlSource(new OnlineCRLSource(timers.timedDataLoader(PhaseTimers.CRL_FETCH, keyAlgorithm,
+                bulkheads.revocationDataLoader(new CommonsDataLoader()))));
+        return cv;
+    }
+
+    private void addTrustedCertSources(CertificateVerifier cv, AdvancedSignature signature) {
+        if (trustedCertificates != null && trustedCertificates.isConfigured()) {
+            // The chain is built to the configured trust anchors and its revocation status is checked
+            cv.addTrustedCertSources(trustedCertificates.getSource());
+            return;
+        }
         CommonTrustedCertificateSource trustedCertSource = new CommonTrustedCertificateSource();
         // todo: POC. This allows all certificates (should be update before production)
-        CertificateSource certificateSource = new CAdESCertificateSource(cmsSignedData, signerInformation);
-        trustedCertSource.importAsTrusted(certificateSource);
+        // The tokens of the signature's own certificate source, which validation uses as well
+        trustedCertSource.importAsTrusted(signature.getCertificateSource());
         cv.addTrustedCertSources(trustedCertSource);
-        return cv;
     }
 
-    private Pkcs12SignatureToken getSignatureToken(byte[] p12bytes, String password) {
+    Pkcs12SignatureToken getSignatureToken(byte[] p12bytes, String password) {
         return new Pkcs12SignatureToken(p12bytes,
                 new KeyStore.PasswordProtection(password.toCharArray()));
     }
 
-    private byte[] getCertificate(String name) {
-        EidasCertificate eidasCertificate = certificateRepository.findByOwnerAndName(getOwner(), name)
-                .orElseThrow(() -> new RestException.InvalidNameException(name));
-        return Base64.getDecoder().decode(eidasCertificate.getBase64CertificateString());
-    }
-
-
     /**
-     * Get the document from the input
+     * Looks up a certificate of the current owner
      *
-     * @param documentValidator
-     * @return
+     * @param name The certificate name
+     * @return The certificate
+     * @throws RestException.InvalidNameException When the owner has no certificate with this name
      */
-    private String getSignedData(DocumentValidator documentValidator) {
-        List<AdvancedSignature> signatures = documentValidator.getSignatures();
-        // todo: POC assumption
-        AdvancedSignature advancedSignature = signatures.get(0);
-        List<DSSDocument> originalDocuments = documentValidator.getOriginalDocuments(advancedSignature.getId());
-        // todo: POC assumption
-        InMemoryDocument original = (InMemoryDocument) originalDocuments.get(0);
-        return original.getBase64Encoded();
+    public EidasCertificate getCertificate(String name) {
+        String owner = getOwner();
+        long start = System.nanoTime();
+        Optional<EidasCertificate> certificate = certificateRepository.findByOwnerAndName(owner, name);
+        phaseTimers.record(UsageMeter.Operation.SIGN, PhaseTimers.CERTIFICATE_LOOKUP,
+                certificate.map(EidasCertificate::getKeyType).orElse(null), System.nanoTime() - start, certificate.isPresent());
+        return certificate.orElseThrow(() -> new RestException.InvalidNameException(name));
     }
 
 
     /**
-     * Create a PEM string from the input bytes
+     * Get the document from the input, straight from the parsed signed content. The octets of id-data (or any content
+     * in an OCTET STRING) are returned as they are, other content types (PKCS#7 style structured content) as the DER
+     * encoding of their ASN.1 object
      *
-     * @param cms
-     * @return
-     * @throws IOException
+     * @param cmsSignedData
+     * @return The content, or null for a detached signature
      */
-    private String toPem(byte[] cms) throws IOException {
-        try (StringWriter sw = new StringWriter(); JcaPEMWriter writer = new JcaPEMWriter(sw)) {
-            ContentInfo ci = ContentInfo.getInstance(ASN1Sequence.fromByteArray(cms));
-            writer.writeObject(ci);
-            writer.close();
-            return sw.toString();
+    private byte[] getSignedData(CMSSignedData cmsSignedData) {
+        CMSTypedData signedContent = cmsSignedData.getSignedContent();
+        if (signedContent == null) {
+            return null;
+        }
+        if (signedContent instanceof CMSProcessableByteArray) {
+            return (byte[]) signedContent.getContent();
+        }
+        try {
+            return ((ASN1Encodable) signedContent.getContent()).toASN1Primitive().getEncoded(ASN1Encoding.DER);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
     /**
-     * Returns the bytes from a PEM string
+     * Get tenant info from the JWT claim, resolved once per request and cached per token. Needs to be called on the
+     * request thread
      *
-     * @param pem
      * @return
      */
-    private byte[] fromPem(String pem) {
-        String base64 = pem.replace("-----BEGIN PKCS7-----", "")
-                .replace("\n", "")
-                .replace("\r", "")
-                .replace("-----END PKCS7-----", "");
-        return Base64.getDecoder().decode(base64);
+    public String getOwner() {
+        return ownerResolver.resolve();
     }
 
     /**
-     * Get tenant info from the JWT claim
+     * Get the tenant for operations that do not require a JWT, like verify. Needs to be called on the request thread
      *
-     * @return
+     * @return The tenant, or {@link #ANONYMOUS_OWNER} when the request has no (valid) JWT
      */
-    private String getOwner() {
-        return jwtContext.claimAccess().getSphereonIdentifier(Optional.empty(), Optional.empty());
+    public String getOwnerOrAnonymous() {
+        try {
+            return Optional.ofNullable(getOwner()).orElse(ANONYMOUS_OWNER);
+        } catch (RuntimeException e) {
+            return ANONYMOUS_OWNER;
+        }
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import eu.europa.esig.dss.token.AbstractSignatureTokenConnection;
+import eu.europa.esig.dss.token.DSSPrivateKeyEntry;
+
+import java.util.List;
+
+/**
+ * A signature token holding a single private key that was unlocked from a key envelope
+ */
+public class EnvelopeSignatureToken extends AbstractSignatureTokenConnection {
+    private final DSSPrivateKeyEntry privateKeyEntry;
+
+    public EnvelopeSignatureToken(DSSPrivateKeyEntry privateKeyEntry) {
+        this.privateKeyEntry = privateKeyEntry;
+    }
+
+    @Override
+    public List<DSSPrivateKeyEntry> getKeys() {
+        return List.of(privateKeyEntry);
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release, the key only lives as long as this token
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureResponse;
+import com.sphereon.ms.eidas.api.model.signature.IdempotentResponse;
+import com.sphereon.ms.eidas.nosql.IdempotencyStore;
+import com.sphereon.ms.eidas.rest.RestException;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Makes sign requests with an Idempotency-Key header idempotent. The key is scoped to the owner and certificate and maps
+ * to the response for a configurable window. Responses are kept in memory, where concurrent duplicates wait for the
+ * first execution, and in the shared {@link IdempotencyStore}, so a retry on another node gets the same signature.
+ * Duplicates that arrive on different nodes at the same moment are not detected, only sequential retries are
+ * <p>
+ * Memory holds the signatures in progress and at most max-entries responses of together at most max-bytes, which also
+ * count towards the {@link MemoryGovernor} budget. Beyond that the oldest completed responses are evicted, and a response
+ * that does not fit is not kept at all; retries for them are answered by the shared store. The store is written in the
+ * background after the response is returned, and responses over max-stored-bytes are not stored, as they would not fit
+ * in a Mongo document
+ */
+@Component
+@Lazy(false)
+public class IdempotencyCache {
+    public static final String HEADER = "Idempotency-Key";
+    private static final XLogger logger = XLoggerFactory.getXLogger(IdempotencyCache.class);
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int STORE_QUEUE_CAPACITY = 1000;
+
+    private final IdempotencyStore store;
+    private final MemoryGovernor memoryGovernor;
+    private final Executor storeExecutor;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxStoredBytes;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Completed entries in the order they completed, the eviction order
+    private final Queue<Entry> completed = new ConcurrentLinkedQueue<>();
+    // Response bytes of the completed entries
+    private final AtomicLong bytes = new AtomicLong();
+
+    @Autowired
+    public IdempotencyCache(ObjectProvider<IdempotencyStore> store, MemoryGovernor memoryGovernor,
+                            @Value("${sphereon.eidas-sign-poc.idempotency.ttl-seconds:86400}") long ttlSeconds,
+                            @Value("${sphereon.eidas-sign-poc.idempotency.max-entries:100000}") int maxEntries,
+                            @Value("${sphereon.eidas-sign-poc.idempotency.max-bytes:67108864}") long maxBytes,
+                            @Value("${sphereon.eidas-sign-poc.idempotency.max-stored-bytes:8388608}") long maxStoredBytes) {
+        this(store, memoryGovernor, storeWriter(), ttlSeconds, maxEntries, maxBytes, maxStoredBytes);
+    }
+
+    /**
+     * @param storeExecutor Runs the writes to the shared store
+     */
+    public IdempotencyCache(ObjectProvider<IdempotencyStore> store, MemoryGovernor memoryGovernor, Executor storeExecutor,
+                            long ttlSeconds, int maxEntries, long maxBytes, long maxStoredBytes) {
+        this.store = store.getIfAvailable();
+        this.memoryGovernor = memoryGovernor;
+        this.storeExecutor = storeExecutor;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxStoredBytes = maxStoredBytes;
+    }
+
+    private static ExecutorService storeWriter() {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(STORE_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "eidas-idempotency-store");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Signs at most once per idempotency key. Needs to be called on the request thread, the signer is called right away
+     * when this is the first request with the key
+     *
+     * @param owner           The tenant
+     * @param certificateName The certificate name
+     * @param idempotencyKey  The Idempotency-Key header, null to always sign
+     * @param content         The content to be signed, which needs to be the same for every request with the key
+     * @param signer          Starts the signature
+     * @return The response of the first request with the key
+     * @throws RestException.InvalidRequestException When the key is invalid or was used for different content
+     */
+    public CompletableFuture<CadesSignatureResponse> execute(String owner, String certificateName, String idempotencyKey,
+                                                             String content, Supplier<CompletableFuture<CadesSignatureResponse>> signer) {
+        return execute(owner, certificateName, idempotencyKey, () -> sha256(content == null ? "" : content), signer);
+    }
+
+    /**
+     * Signs at most once per idempotency key, for decoded content. The request hash is the same as for the base64 content
+     *
+     * @see #execute(String, String, String, String, Supplier)
+     */
+    public CompletableFuture<CadesSignatureResponse> execute(String owner, String certificateName, String idempotencyKey,
+                                                             DocumentBuffer content, Supplier<CompletableFuture<CadesSignatureResponse>> signer) {
+        return execute(owner, certificateName, idempotencyKey, () -> content == null ? sha256("") : base64Sha256(content), signer);
+    }
+
+    private CompletableFuture<CadesSignatureResponse> execute(String owner, String certificateName, String idempotencyKey,
+                                                              Supplier<String> contentHash,
+                                                              Supplier<CompletableFuture<CadesSignatureResponse>> signer) {
+        if (idempotencyKey == null) {
+            return signer.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new RestException.InvalidRequestException(
+                    String.format("The %s header should have between 1 and %d characters", HEADER, MAX_KEY_LENGTH));
+        }
+        String key = sha256(owner + '\0' + certificateName + '\0' + idempotencyKey);
+        String requestHash = contentHash.get();
+        long now = System.currentTimeMillis();
+
+        Entry created = new Entry(key, requestHash, now + ttlMillis);
+        Entry entry = entries.compute(key, (k, existing) -> existing != null && existing.expiresAt > now
+                ? existing : created);
+        if (entry != created) {
+            return entry.response(requestHash, idempotencyKey);
+        }
+        try {
+            Optional<IdempotentResponse> stored = store == null ? Optional.empty() : store.find(key);
+            if (stored.isPresent()) {
+                if (!stored.get().getRequestHash().equals(requestHash)) {
+                    throw keyReused(idempotencyKey);
+                }
+                CadesSignatureResponse response = new CadesSignatureResponse(stored.get().getSignature());
+                created.future.complete(response);
+                remember(created, response);
+            } else {
+                signer.get().whenComplete((response, error) -> complete(key, created, response, error));
+            }
+        } catch (RuntimeException e) {
+            entries.remove(key, created);
+            created.future.completeExceptionally(e);
+            throw e;
+        }
+        return created.response(requestHash, idempotencyKey);
+    }
+
+    @Scheduled(fixedDelayString = "${sphereon.eidas-sign-poc.idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        completed.removeIf(entry -> {
+            if (entry.expiresAt > now) {
+                return false;
+            }
+            evict(entry);
+            return true;
+        });
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (storeExecutor instanceof ExecutorService) {
+            ((ExecutorService) storeExecutor).shutdown();
+        }
+    }
+
+    /**
+     * @return The number of responses and signatures in progress in memory
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The bytes of the responses in memory
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Keeps a completed response, evicting the oldest completed ones over the maximums. A response that does not fit in
+     * the cache or in the memory budget is dropped right away
+     */
+    private void remember(Entry entry, CadesSignatureResponse response) {
+        long size = responseBytes(response);
+        if (size > maxBytes || !memoryGovernor.tryReserve(size)) {
+            entries.remove(entry.key, entry);
+            return;
+        }
+        entry.bytes = size;
+        bytes.addAndGet(size);
+        completed.add(entry);
+        while (entries.size() > maxEntries || bytes.get() > maxBytes) {
+            Entry oldest = completed.poll();
+            if (oldest == null) {
+                // Only signatures in progress are left
+                return;
+            }
+            evict(oldest);
+        }
+    }
+
+    /**
+     * Removes a completed entry that was taken off the completed queue and releases its bytes
+     */
+    private void evict(Entry entry) {
+        entries.remove(entry.key, entry);
+        bytes.addAndGet(-entry.bytes);
+        memoryGovernor.release(entry.bytes);
+    }
+
+    private void complete(String key, Entry entry, CadesSignatureResponse response, Throwable error) {
+        if (error != null) {
+            // Failures are not remembered, so the client can retry with the same key
+            entries.remove(key, entry);
+            entry.future.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error);
+            return;
+        }
+        entry.future.complete(response);
+        remember(entry, response);
+        store(key, entry, response);
+    }
+
+    /**
+     * Writes the response to the shared store in the background. When it is not stored, a retry on another node will
+     * just sign again
+     */
+    private void store(String key, Entry entry, CadesSignatureResponse response) {
+        if (store == null) {
+            return;
+        }
+        long pemBytes = response.getCms() == null ? response.getSignature().length() : response.getCms().length * 4L / 3;
+        if (pemBytes > maxStoredBytes) {
+            logger.warn(String.format("Not storing an idempotent response of about %d bytes, over the maximum of %d bytes",
+                    pemBytes, maxStoredBytes));
+            return;
+        }
+        try {
+            storeExecutor.execute(() -> {
+                try {
+                    store.save(key, new IdempotentResponse(entry.requestHash, response.getSignature(),
+                            Instant.ofEpochMilli(entry.expiresAt)));
+                } catch (RuntimeException e) {
+                    logger.warn("Could not store the idempotent response: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Could not store the idempotent response, too many responses are waiting to be stored");
+        }
+    }
+
+    /**
+     * @return The heap the response takes, its CMS bytes or its PEM characters
+     */
+    private static long responseBytes(CadesSignatureResponse response) {
+        return response.getCms() != null ? response.getCms().length : response.getSignature().length() * 2L;
+    }
+
+    private static RestException.InvalidRequestException keyReused(String idempotencyKey) {
+        return new RestException.InvalidRequestException(
+                String.format("%s %s was already used for a different request", HEADER, idempotencyKey));
+    }
+
+    private static String sha256(String value) {
+        try {
+            return Base64.getEncoder().encodeToString(
+                    MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The hash of the base64 form of the content, encoded while it is hashed
+     */
+    private static String base64Sha256(DocumentBuffer content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = content.openStream();
+                 OutputStream out = Base64.getEncoder().wrap(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+                in.transferTo(out);
+            }
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String requestHash;
+        private final long expiresAt;
+        private final CompletableFuture<CadesSignatureResponse> future = new CompletableFuture<>();
+        // The reserved response bytes once completed, set before the entry is added to the completed queue
+        private volatile long bytes;
+
+        private Entry(String key, String requestHash, long expiresAt) {
+            this.key = key;
+            this.requestHash = requestHash;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @return A dependent future, so a caller cancelling its copy does not cancel the one other duplicates wait for
+         */
+        private CompletableFuture<CadesSignatureResponse> response(String requestHash, String idempotencyKey) {
+            if (!this.requestHash.equals(requestHash)) {
+                throw keyReused(idempotencyKey);
+            }
+            return future.thenApply(Function.identity());
+        }
+    }
+}
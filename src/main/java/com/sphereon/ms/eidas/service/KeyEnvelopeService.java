@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.nosql.TenantDataKeyStore;
+import com.sphereon.ms.eidas.rest.RestException;
+import eu.europa.esig.dss.model.x509.CertificateToken;
+import eu.europa.esig.dss.token.DSSPrivateKeyEntry;
+import eu.europa.esig.dss.token.KSPrivateKeyEntry;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Re-wraps imported private keys into an internal envelope, so signing does not have to decrypt the PKCS#12 file with
+ * its (often very high) PBKDF iteration count every time. The envelope is encrypted with AES-GCM using a data key per
+ * tenant. The data keys are stored wrapped by a master key from a local keystore and are cached unwrapped in memory,
+ * which makes unlocking a key a single AES-GCM decrypt.
+ * <p>
+ * The certificate password is still required to sign. It is checked against an HMAC (keyed with the data key) stored
+ * inside the envelope
+ */
+@Component
+@Lazy(false)
+public class KeyEnvelopeService {
+    private static final XLogger logger = XLoggerFactory.getXLogger(KeyEnvelopeService.class);
+    private static final byte VERSION = 1;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final int VERIFIER_LENGTH = 32;
+
+    private final TenantDataKeyStore dataKeyStore;
+    private final SecretKey masterKey;
+    private final Map<String, SecretKey> dataKeys = new ConcurrentHashMap<>();
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public KeyEnvelopeService(TenantDataKeyStore dataKeyStore,
+                              @Value("${sphereon.eidas-sign-poc.key-envelope.enable:false}") boolean enabled,
+                              @Value("${sphereon.eidas-sign-poc.key-envelope.keystore.path:}") String keystorePath,
+                              @Value("${sphereon.eidas-sign-poc.key-envelope.keystore.type:PKCS12}") String keystoreType,
+                              @Value("${sphereon.eidas-sign-poc.key-envelope.keystore.password:}") String keystorePassword,
+                              @Value("${sphereon.eidas-sign-poc.key-envelope.master-key.alias:eidas-master}") String masterKeyAlias,
+                              @Value("${sphereon.eidas-sign-poc.key-envelope.master-key.password:}") String masterKeyPassword) {
+        this.dataKeyStore = dataKeyStore;
+        this.masterKey = enabled ? loadMasterKey(keystorePath, keystoreType, keystorePassword, masterKeyAlias,
+                masterKeyPassword.isEmpty() ? keystorePassword : masterKeyPassword) : null;
+    }
+
+    public boolean isEnabled() {
+        return masterKey != null;
+    }
+
+    /**
+     * Seals a private key and its chain into an envelope bound to the owner and certificate name
+     *
+     * @param owner      The tenant
+     * @param name       The certificate name
+     * @param privateKey The private key entry, opened from the PKCS#12 file
+     * @param password   The certificate password, needed again to unlock the envelope
+     * @return The base64 envelope
+     */
+    public String seal(String owner, String name, DSSPrivateKeyEntry privateKey, String password) {
+        if (!isEnabled()) {
+            throw new RestException.InvalidRequestException("Key envelopes are not enabled on this server");
+        }
+        SecretKey dataKey = getDataKey(owner);
+        byte[] encodedKey = ((KSPrivateKeyEntry) privateKey).getPrivateKey().getEncoded();
+        try {
+            ByteArrayOutputStream plaintext = new ByteArrayOutputStream(encodedKey.length + 4096);
+            DataOutputStream out = new DataOutputStream(plaintext);
+            out.write(passwordVerifier(dataKey, owner, name, password));
+            out.writeUTF(((KSPrivateKeyEntry) privateKey).getPrivateKey().getAlgorithm());
+            out.writeInt(encodedKey.length);
+            out.write(encodedKey);
+            CertificateToken[] chain = privateKey.getCertificateChain();
+            out.writeInt(chain.length);
+            for (CertificateToken certificate : chain) {
+                byte[] encoded = certificate.getEncoded();
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+            return Base64.getEncoder().encodeToString(encrypt(dataKey, aad(owner, name), plaintext.toByteArray()));
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Could not seal the key of certificate " + name, e);
+        } finally {
+            Arrays.fill(encodedKey, (byte) 0);
+        }
+    }
+
+    /**
+     * Opens the envelope of a certificate
+     *
+     * @param certificate The certificate, which needs to have a key envelope
+     * @param password    The certificate password
+     * @return A signature token holding the private key
+     * @throws RestException.InvalidCertificateException When the password is wrong
+     */
+    public EnvelopeSignatureToken unlock(EidasCertificate certificate, String password) {
+        String owner = certificate.getOwner();
+        String name = certificate.getName();
+        SecretKey dataKey = getDataKey(owner);
+        byte[] plaintext;
+        try {
+            plaintext = decrypt(dataKey, aad(owner, name), Base64.getDecoder().decode(certificate.getKeyEnvelope()));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Key envelope of certificate " + name + " could not be decrypted", e);
+        }
+        byte[] encodedKey = null;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(plaintext));
+            byte[] verifier = new byte[VERIFIER_LENGTH];
+            in.readFully(verifier);
+            if (!MessageDigest.isEqual(verifier, passwordVerifier(dataKey, owner, name, password))) {
+                throw new RestException.InvalidCertificateException(String.format("Could not open certificate %s with the supplied password", name));
+            }
+            String algorithm = in.readUTF();
+            encodedKey = new byte[in.readInt()];
+            in.readFully(encodedKey);
+            PrivateKey privateKey = KeyFactory.getInstance(algorithm).generatePrivate(new PKCS8EncodedKeySpec(encodedKey));
+            CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+            Certificate[] chain = new Certificate[in.readInt()];
+            for (int i = 0; i < chain.length; i++) {
+                byte[] encoded = new byte[in.readInt()];
+                in.readFully(encoded);
+                chain[i] = certificateFactory.generateCertificate(new ByteArrayInputStream(encoded));
+            }
+            return new EnvelopeSignatureToken(new KSPrivateKeyEntry(name, new KeyStore.PrivateKeyEntry(privateKey, chain)));
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Key envelope of certificate " + name + " is corrupt", e);
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+            if (encodedKey != null) {
+                Arrays.fill(encodedKey, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Unwraps the data key of a tenant into the cache ahead of its first request. Does not create a key for tenants that
+     * do not have one
+     *
+     * @param owner The tenant
+     */
+    public void preload(String owner) {
+        if (isEnabled() && dataKeyStore.findWrappedKey(owner).isPresent()) {
+            getDataKey(owner);
+        }
+    }
+
+    /**
+     * Gets the data key of a tenant from the cache, or unwraps it from the store. A new key is created for tenants that
+     * do not have one yet
+     */
+    private SecretKey getDataKey(String owner) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Key envelopes are not enabled on this server");
+        }
+        return dataKeys.computeIfAbsent(owner, tenant -> {
+            try {
+                byte[] wrappedKey = dataKeyStore.findWrappedKey(tenant).orElse(null);
+                if (wrappedKey == null) {
+                    KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+                    keyGenerator.init(256, secureRandom);
+                    byte[] newKey = keyGenerator.generateKey().getEncoded();
+                    wrappedKey = dataKeyStore.saveIfAbsent(tenant, encrypt(masterKey, aad(tenant, ""), newKey));
+                    Arrays.fill(newKey, (byte) 0);
+                }
+                return new SecretKeySpec(decrypt(masterKey, aad(tenant, ""), wrappedKey), "AES");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Could not unwrap the data key of " + tenant, e);
+            }
+        });
+    }
+
+    private byte[] passwordVerifier(SecretKey dataKey, String owner, String name, String password) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(dataKey.getEncoded(), "HmacSHA256"));
+        mac.update(aad(owner, name));
+        return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private byte[] encrypt(SecretKey key, byte[] aad, byte[] plaintext) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        secureRandom.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        cipher.updateAAD(aad);
+        byte[] envelope = new byte[1 + IV_LENGTH + cipher.getOutputSize(plaintext.length)];
+        envelope[0] = VERSION;
+        System.arraycopy(iv, 0, envelope, 1, IV_LENGTH);
+        cipher.doFinal(plaintext, 0, plaintext.length, envelope, 1 + IV_LENGTH);
+        return envelope;
+    }
+
+    private static byte[] decrypt(SecretKey key, byte[] aad, byte[] envelope) throws GeneralSecurityException {
+        if (envelope.length < 1 + IV_LENGTH || envelope[0] != VERSION) {
+            throw new AEADBadTagException("Unsupported envelope version");
+        }
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, envelope, 1, IV_LENGTH));
+        cipher.updateAAD(aad);
+        return cipher.doFinal(envelope, 1 + IV_LENGTH, envelope.length - 1 - IV_LENGTH);
+    }
+
+    /**
+     * Binds an envelope to its owner and name, so it cannot be copied to another certificate or tenant
+     */
+    private static byte[] aad(String owner, String name) {
+        return (owner + '\u0000' + name).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static SecretKey loadMasterKey(String path, String type, String storePassword, String alias, String keyPassword) {
+        try (InputStream in = Files.newInputStream(Paths.get(path))) {
+            KeyStore keyStore = KeyStore.getInstance(type);
+            keyStore.load(in, storePassword.toCharArray());
+            SecretKey key = (SecretKey) keyStore.getKey(alias, keyPassword.toCharArray());
+            if (key == null) {
+                throw new IllegalStateException(String.format("No master key with alias %s in keystore %s", alias, path));
+            }
+            logger.info("Key envelopes enabled using master key {} from {}", alias, path);
+            return key;
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Could not load the key envelope master key from " + path, e);
+        }
+    }
+}
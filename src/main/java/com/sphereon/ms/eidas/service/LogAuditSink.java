@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sphereon.ms.eidas.api.model.audit.AuditEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Writes the audit events as JSON lines to the eidas.audit logger, which logback-spring.xml sends to a rolling file
+ */
+public class LogAuditSink implements AuditSink {
+    public static final String LOGGER_NAME = "eidas.audit";
+    private static final Logger auditLogger = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final ObjectMapper objectMapper;
+
+    public LogAuditSink(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void write(List<AuditEvent> events) {
+        for (AuditEvent event : events) {
+            try {
+                auditLogger.info(objectMapper.writeValueAsString(event));
+            } catch (JsonProcessingException e) {
+                auditLogger.warn("Could not serialize audit event of type " + event.getType());
+            }
+        }
+    }
+}
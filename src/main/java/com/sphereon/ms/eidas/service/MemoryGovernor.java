@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.sphereon.ms.eidas.rest.RestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Budget for the request documents in flight across all requests, in payload bytes. A document counts while it is
+ * buffered on the heap and while it is signed or verified, at most once for its size, until its {@link DocumentBuffer}
+ * is closed. Buffers that would go over the budget spill to disk instead. Documents of at least the large document size
+ * wait for room in the budget before they are processed and are rejected when none comes up in time; smaller documents
+ * are always admitted, so they are never held up behind a large one.
+ * <p>
+ * Signing and verification hold several copies of a document, so the budget defaults to a quarter of the heap
+ */
+@Component
+public class MemoryGovernor {
+    private static final String SPILL_THRESHOLD = "threshold";
+    private static final String SPILL_BUDGET = "budget";
+
+    private final long budget;
+    private final long largeDocumentBytes;
+    private final long maxWaitMs;
+    private final Counter thresholdSpills;
+    private final Counter budgetSpills;
+    private final Counter rejected;
+    private final Timer waits;
+    // Guarded by this
+    private long inFlight;
+    private int waiting;
+
+    public MemoryGovernor(@Value("${sphereon.eidas-sign-poc.memory.budget-bytes:#{T(java.lang.Runtime).getRuntime().maxMemory() / 4}}") long budget,
+                          @Value("${sphereon.eidas-sign-poc.memory.large-document-bytes:1048576}") long largeDocumentBytes,
+                          @Value("${sphereon.eidas-sign-poc.memory.max-wait-ms:5000}") long maxWaitMs,
+                          MeterRegistry meterRegistry) {
+        this.budget = budget;
+        this.largeDocumentBytes = largeDocumentBytes;
+        this.maxWaitMs = maxWaitMs;
+        Gauge.builder("eidas.memory.budget", this, MemoryGovernor::getBudget)
+                .baseUnit("bytes")
+                .description("Payload bytes that may be in flight")
+                .register(meterRegistry);
+        Gauge.builder("eidas.memory.in_flight", this, MemoryGovernor::getInFlight)
+                .baseUnit("bytes")
+                .description("Payload bytes of the documents buffered on the heap or being processed")
+                .register(meterRegistry);
+        Gauge.builder("eidas.memory.waiting", this, MemoryGovernor::getWaiting)
+                .description("Large documents waiting for room in the budget")
+                .register(meterRegistry);
+        this.thresholdSpills = spillCounter(SPILL_THRESHOLD, meterRegistry);
+        this.budgetSpills = spillCounter(SPILL_BUDGET, meterRegistry);
+        this.rejected = Counter.builder("eidas.memory.rejected")
+                .description("Large documents rejected because the budget stayed exhausted")
+                .register(meterRegistry);
+        this.waits = Timer.builder("eidas.memory.wait")
+                .description("Time large documents waited for room in the budget")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserves the rest of the document's size before it is processed, waiting up to the maximum wait for a large
+     * document. The reservation is released when the document is closed
+     *
+     * @param document The finished request document
+     * @throws RestException.OverloadedException When there is no room for a large document in time
+     */
+    public void admit(DocumentBuffer document) {
+        long size = document.size();
+        // A document over the budget needs the whole budget, so it is processed on its own instead of never
+        long needed = Math.min(size, budget) - document.getReservedBytes();
+        if (needed <= 0) {
+            return;
+        }
+        if (size < largeDocumentBytes) {
+            synchronized (this) {
+                inFlight += needed;
+            }
+            document.addReservation(this, needed);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean waited = false;
+        synchronized (this) {
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+            while (inFlight + needed > budget) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    rejected.increment();
+                    throw new RestException.OverloadedException(String.format(
+                            "Not enough memory for a document of %d bytes (%d of %d bytes in use), please retry later",
+                            size, inFlight, budget));
+                }
+                waited = true;
+                waiting++;
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RestException.OverloadedException("Interrupted while waiting for memory, please retry later");
+                } finally {
+                    waiting--;
+                }
+            }
+            inFlight += needed;
+        }
+        if (waited) {
+            waits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        document.addReservation(this, needed);
+    }
+
+    /**
+     * Counts heap that is already taken and cannot wait for the budget, like the text of a JSON string that the parser
+     * buffered. Other documents wait or spill while it is counted
+     *
+     * @param bytes The bytes taken
+     * @return The reservation, which releases the bytes when it is closed
+     */
+    public Reservation reserve(long bytes) {
+        synchronized (this) {
+            inFlight += bytes;
+        }
+        return () -> release(bytes);
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public synchronized long getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting;
+    }
+
+    public long getRejected() {
+        return (long) rejected.count();
+    }
+
+    /**
+     * Reserves heap for a buffer, without waiting
+     *
+     * @return Whether the bytes fit in the budget
+     */
+    synchronized boolean tryReserve(long bytes) {
+        if (inFlight + bytes > budget) {
+            return false;
+        }
+        inFlight += bytes;
+        return true;
+    }
+
+    synchronized void release(long bytes) {
+        inFlight -= bytes;
+        notifyAll();
+    }
+
+    void recordSpill(boolean overBudget) {
+        (overBudget ? budgetSpills : thresholdSpills).increment();
+    }
+
+    /**
+     * Heap counted by {@link #reserve(long)}
+     */
+    public interface Reservation extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static Counter spillCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("eidas.memory.spills")
+                .tag("reason", reason)
+                .description("Request documents moved to a temporary file")
+                .register(meterRegistry);
+    }
+}
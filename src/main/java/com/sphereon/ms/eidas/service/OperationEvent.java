@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event spanning a complete sign or verify operation. The phases are recorded as {@link PhaseEvent}s on
+ * the same thread
+ */
+@Name(OperationEvent.NAME)
+@Label("eIDAS Operation")
+@Category("eIDAS")
+@Description("A signature or verification, with the tenant, certificate and payload size")
+@StackTrace(false)
+public class OperationEvent extends jdk.jfr.Event {
+    public static final String NAME = "com.sphereon.eidas.Operation";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Owner")
+    String owner;
+
+    @Label("Certificate")
+    String certificateName;
+
+    @Label("Payload Size")
+    @DataAmount
+    long payloadSize;
+
+    @Label("Success")
+    boolean success;
+}
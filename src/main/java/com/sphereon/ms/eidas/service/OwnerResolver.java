@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sphereon.ms.auth.jwt.JWTContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the owner (tenant) of the current request from the JWT. Clients reuse the same bearer token for hours, so the
+ * owner of a validated token is cached, keyed by the SHA-256 of the token, until the token expires. Within a request the
+ * owner is resolved once and kept as a request attribute
+ */
+@Component
+public class OwnerResolver {
+    public static final String OWNER_ATTRIBUTE = OwnerResolver.class.getName() + ".owner";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JWTContext jwtContext;
+    private final ObjectMapper objectMapper;
+    private final int maxSize;
+    private final long maxTtlMillis;
+    private final Map<String, CachedOwner> cache = new ConcurrentHashMap<>();
+
+    public OwnerResolver(JWTContext jwtContext, ObjectMapper objectMapper,
+                         @Value("${sphereon.eidas-sign-poc.owner-cache.max-size:10000}") int maxSize,
+                         @Value("${sphereon.eidas-sign-poc.owner-cache.max-ttl-seconds:3600}") long maxTtlSeconds) {
+        this.jwtContext = jwtContext;
+        this.objectMapper = objectMapper;
+        this.maxSize = maxSize;
+        this.maxTtlMillis = maxTtlSeconds * 1000;
+    }
+
+    /**
+     * Get the owner of the current request. Needs to be called on the request thread
+     *
+     * @return The tenant
+     */
+    public String resolve() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null) {
+            Object owner = requestAttributes.getAttribute(OWNER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (owner != null) {
+                return (String) owner;
+            }
+        }
+
+        String owner;
+        String token = bearerToken(requestAttributes);
+        if (token == null || maxSize <= 0) {
+            owner = resolveFromJwt();
+        } else {
+            String key = sha256(token);
+            long now = System.currentTimeMillis();
+            CachedOwner cached = cache.get(key);
+            if (cached != null && cached.expiresAt > now) {
+                owner = cached.owner;
+            } else {
+                // Only cache owners that passed the JWT validation of the JWT context
+                owner = resolveFromJwt();
+                long expiresAt = Math.min(expiry(token), now + maxTtlMillis);
+                if (owner != null && expiresAt > now) {
+                    put(key, new CachedOwner(owner, expiresAt), now);
+                }
+            }
+        }
+        if (requestAttributes != null && owner != null) {
+            requestAttributes.setAttribute(OWNER_ATTRIBUTE, owner, RequestAttributes.SCOPE_REQUEST);
+        }
+        return owner;
+    }
+
+    private String resolveFromJwt() {
+        return jwtContext.claimAccess().getSphereonIdentifier(Optional.empty(), Optional.empty());
+    }
+
+    private void put(String key, CachedOwner cachedOwner, long now) {
+        if (cache.size() >= maxSize) {
+            cache.values().removeIf(entry -> entry.expiresAt <= now);
+            if (cache.size() >= maxSize) {
+                // Still full with live tokens; those clients are served from the cache, this one is not cached
+                return;
+            }
+        }
+        cache.put(key, cachedOwner);
+    }
+
+    private static String bearerToken(RequestAttributes requestAttributes) {
+        if (!(requestAttributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        String authorization = ((ServletRequestAttributes) requestAttributes).getRequest().getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+        return authorization.substring(BEARER_PREFIX.length()).trim();
+    }
+
+    /**
+     * @return The exp claim of the token in milliseconds, or 0 when it has none. The token has already been validated
+     */
+    private long expiry(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length < 2) {
+            return 0;
+        }
+        try {
+            JsonNode claims = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[1]));
+            return claims.path("exp").asLong(0) * 1000;
+        } catch (IOException | IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+    private static String sha256(String token) {
+        try {
+            return Base64.getEncoder().encodeToString(
+                    MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class CachedOwner {
+        private final String owner;
+        private final long expiresAt;
+
+        private CachedOwner(String owner, long expiresAt) {
+            this.owner = owner;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * PEM encoding of PKCS#7 (CMS) signatures, without intermediate strings or ASN.1 objects. Encoding writes the base64 of
+ * the DER bytes with 64 character lines, as the BouncyCastle PEM writer does. Decoding skips the {@code -----BEGIN ...-----}
+ * and {@code -----END ...-----} markers and whitespace, on their own lines or not, and decodes the base64 as it is read
+ */
+public final class PemCodec {
+    private static final byte[] HEADER = "-----BEGIN PKCS7-----\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FOOTER = "-----END PKCS7-----\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BEGIN = "BEGIN ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "END ".getBytes(StandardCharsets.US_ASCII);
+    private static final int DASHES = 5;
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final int[] VALUES = new int[128];
+
+    // 48 DER bytes make one line of 64 base64 characters and a newline
+    private static final int LINE_BYTES = 48;
+    private static final int LINE_LENGTH = 65;
+    private static final int BUFFER_LINES = 64;
+
+    static {
+        Arrays.fill(VALUES, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = i;
+        }
+    }
+
+    private PemCodec() {
+    }
+
+    /**
+     * @param derLength The length of the DER encoded signature
+     * @return The length of its PEM encoding
+     */
+    public static int encodedLength(int derLength) {
+        int lines = (derLength + LINE_BYTES - 1) / LINE_BYTES;
+        int lastLine = derLength - (lines - 1) * LINE_BYTES;
+        int body = lines == 0 ? 0 : (lines - 1) * LINE_LENGTH + (lastLine + 2) / 3 * 4 + 1;
+        return HEADER.length + body + FOOTER.length;
+    }
+
+    /**
+     * Create a PEM string from the DER bytes, with a single copy for the string itself
+     *
+     * @param der The DER encoded signature
+     * @return The PEM string
+     */
+    public static String encode(byte[] der) {
+        byte[] pem = new byte[encodedLength(der.length)];
+        int pos = put(HEADER, pem, 0);
+        for (int from = 0; from < der.length; from += LINE_BYTES) {
+            pos = encodeLine(der, from, Math.min(from + LINE_BYTES, der.length), pem, pos);
+        }
+        put(FOOTER, pem, pos);
+        return new String(pem, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes the PEM encoding of the DER bytes to a stream, through a buffer of a few kilobytes
+     *
+     * @param der The DER encoded signature
+     * @param out The stream to write to, which is not closed
+     * @throws IOException
+     */
+    public static void encode(byte[] der, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_LINES * LINE_LENGTH];
+        out.write(HEADER);
+        int pos = 0;
+        for (int from = 0; from < der.length; from += LINE_BYTES) {
+            if (pos == buffer.length) {
+                out.write(buffer, 0, pos);
+                pos = 0;
+            }
+            pos = encodeLine(der, from, Math.min(from + LINE_BYTES, der.length), buffer, pos);
+        }
+        out.write(buffer, 0, pos);
+        out.write(FOOTER);
+    }
+
+    /**
+     * Returns the DER bytes from a PEM string. The string is read twice, to size the result exactly
+     *
+     * @param pem The PEM signature, or plain base64
+     * @return The DER bytes
+     * @throws IllegalArgumentException When the input is not valid base64
+     */
+    public static byte[] decode(CharSequence pem) {
+        Decoder counter = new Decoder();
+        int length = 0;
+        for (int i = 0; i < pem.length(); i++) {
+            length = counter.accept(pem.charAt(i), null, length);
+        }
+        byte[] der = new byte[counter.finish(null, length)];
+        Decoder decoder = new Decoder();
+        int pos = 0;
+        for (int i = 0; i < pem.length(); i++) {
+            pos = decoder.accept(pem.charAt(i), der, pos);
+        }
+        decoder.finish(der, pos);
+        return der;
+    }
+
+    /**
+     * Decodes a PEM signature from a stream
+     *
+     * @param in  The PEM signature, or plain base64, which is read to the end but not closed
+     * @param out The stream for the DER bytes
+     * @throws IOException
+     * @throws IllegalArgumentException When the input is not valid base64
+     */
+    public static void decode(InputStream in, OutputStream out) throws IOException {
+        byte[] input = new byte[BUFFER_LINES * LINE_LENGTH];
+        byte[] output = new byte[input.length / 4 * 3 + 3];
+        Decoder decoder = new Decoder();
+        int read;
+        while ((read = in.read(input)) != -1) {
+            int pos = 0;
+            for (int i = 0; i < read; i++) {
+                pos = decoder.accept(input[i] & 0xff, output, pos);
+            }
+            out.write(output, 0, pos);
+        }
+        out.write(output, 0, decoder.finish(output, 0));
+    }
+
+    /**
+     * Decodes a PEM signature from a stream
+     *
+     * @param in The PEM signature, or plain base64, which is read to the end but not closed
+     * @return The DER bytes
+     * @throws IOException
+     * @throws IllegalArgumentException When the input is not valid base64
+     */
+    public static byte[] decode(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        decode(in, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @param der The DER encoded signature
+     * @return A reader of the PEM encoding, which encodes a few kilobytes at a time as it is read
+     */
+    public static Reader encodingReader(byte[] der) {
+        return new EncodingReader(der);
+    }
+
+    /**
+     * @param out The stream for the DER bytes, which is not closed
+     * @return A writer for a PEM signature, or plain base64, that decodes as it is written. Closing it writes the last
+     * bytes
+     * @throws IllegalArgumentException From the writer, when the input is not valid base64
+     */
+    public static Writer decodingWriter(OutputStream out) {
+        return new DecodingWriter(out);
+    }
+
+    private static int put(byte[] bytes, byte[] target, int pos) {
+        System.arraycopy(bytes, 0, target, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    private static int encodeLine(byte[] der, int from, int to, byte[] target, int pos) {
+        int i = from;
+        for (; i + 3 <= to; i += 3) {
+            int bits = (der[i] & 0xff) << 16 | (der[i + 1] & 0xff) << 8 | der[i + 2] & 0xff;
+            target[pos++] = ALPHABET[bits >>> 18];
+            target[pos++] = ALPHABET[bits >>> 12 & 0x3f];
+            target[pos++] = ALPHABET[bits >>> 6 & 0x3f];
+            target[pos++] = ALPHABET[bits & 0x3f];
+        }
+        if (i < to) {
+            int bits = (der[i] & 0xff) << 16 | (i + 1 < to ? (der[i + 1] & 0xff) << 8 : 0);
+            target[pos++] = ALPHABET[bits >>> 18];
+            target[pos++] = ALPHABET[bits >>> 12 & 0x3f];
+            target[pos++] = i + 1 < to ? ALPHABET[bits >>> 6 & 0x3f] : (byte) '=';
+            target[pos++] = '=';
+        }
+        target[pos++] = '\n';
+        return pos;
+    }
+
+    private static final class EncodingReader extends Reader {
+        private final byte[] der;
+        private final byte[] chunk = new byte[BUFFER_LINES * LINE_LENGTH];
+        private int chunkLength;
+        private int chunkPos;
+        private int from;
+        private boolean header = true;
+        private boolean footer = true;
+
+        private EncodingReader(byte[] der) {
+            this.der = der;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (chunkPos == chunkLength && !fill()) {
+                return -1;
+            }
+            int n = Math.min(len, chunkLength - chunkPos);
+            for (int i = 0; i < n; i++) {
+                cbuf[off + i] = (char) chunk[chunkPos + i];
+            }
+            chunkPos += n;
+            return n;
+        }
+
+        private boolean fill() {
+            chunkPos = 0;
+            chunkLength = 0;
+            if (header) {
+                header = false;
+                chunkLength = put(HEADER, chunk, 0);
+                return true;
+            }
+            while (from < der.length && chunkLength + LINE_LENGTH <= chunk.length) {
+                chunkLength = encodeLine(der, from, Math.min(from + LINE_BYTES, der.length), chunk, chunkLength);
+                from += LINE_BYTES;
+            }
+            if (chunkLength > 0) {
+                return true;
+            }
+            if (footer) {
+                footer = false;
+                chunkLength = put(FOOTER, chunk, 0);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class DecodingWriter extends Writer {
+        private final OutputStream out;
+        private final byte[] output = new byte[BUFFER_LINES * LINE_BYTES + 3];
+        private final Decoder decoder = new Decoder();
+        private boolean closed;
+
+        private DecodingWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            int pos = 0;
+            for (int i = off; i < off + len; i++) {
+                pos = decoder.accept(cbuf[i], output, pos);
+                if (pos > output.length - 3) {
+                    out.write(output, 0, pos);
+                    pos = 0;
+                }
+            }
+            out.write(output, 0, pos);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                out.write(output, 0, decoder.finish(output, 0));
+            }
+        }
+    }
+
+    /**
+     * Base64 decoding state across the characters of the input. Without an output array it only counts the bytes
+     */
+    private static final class Decoder {
+        private static final int BASE64 = 0;
+        private static final int OPENING_DASHES = 1;
+        private static final int KEYWORD = 2;
+        private static final int LABEL = 3;
+
+        private int state = BASE64;
+        private int dashes;
+        private byte[] keyword;
+        private int keywordPos;
+        private int bits;
+        private int count;
+        private int padding;
+
+        int accept(int c, byte[] out, int pos) {
+            switch (state) {
+                case OPENING_DASHES:
+                    if (c != '-') {
+                        throw illegal('-');
+                    }
+                    if (++dashes == DASHES) {
+                        state = KEYWORD;
+                        keyword = null;
+                        keywordPos = 0;
+                    }
+                    return pos;
+                case KEYWORD:
+                    if (keyword == null) {
+                        keyword = c == 'B' ? BEGIN : c == 'E' ? END : null;
+                    }
+                    if (keyword == null || c != keyword[keywordPos]) {
+                        throw new IllegalArgumentException("Expected BEGIN or END after -----");
+                    }
+                    if (++keywordPos == keyword.length) {
+                        state = LABEL;
+                        dashes = 0;
+                    }
+                    return pos;
+                case LABEL:
+                    // The label runs up to the closing dashes, and may itself contain single dashes
+                    if (c == '\n' || c == '\r') {
+                        throw new IllegalArgumentException("Unterminated PEM marker");
+                    }
+                    dashes = c == '-' ? dashes + 1 : 0;
+                    if (dashes == DASHES) {
+                        state = BASE64;
+                    }
+                    return pos;
+                default:
+                    break;
+            }
+            if (c == '\n' || c == '\r' || c == ' ' || c == '\t') {
+                return pos;
+            }
+            if (c == '-') {
+                state = OPENING_DASHES;
+                dashes = 1;
+                return pos;
+            }
+            if (c == '=') {
+                padding++;
+                return pos;
+            }
+            int value = c < VALUES.length ? VALUES[c] : -1;
+            if (value < 0 || padding > 0) {
+                throw illegal(c);
+            }
+            bits = bits << 6 | value;
+            if (++count < 4) {
+                return pos;
+            }
+            if (out != null) {
+                out[pos] = (byte) (bits >> 16);
+                out[pos + 1] = (byte) (bits >> 8);
+                out[pos + 2] = (byte) bits;
+            }
+            bits = 0;
+            count = 0;
+            return pos + 3;
+        }
+
+        int finish(byte[] out, int pos) {
+            if (state != BASE64) {
+                throw new IllegalArgumentException("Unterminated PEM marker");
+            }
+            if (count == 1 || padding > 2 || padding > 0 && count + padding != 4) {
+                throw new IllegalArgumentException("Incomplete base64 input");
+            }
+            if (count == 2) {
+                if (out != null) {
+                    out[pos] = (byte) (bits >> 4);
+                }
+                return pos + 1;
+            }
+            if (count == 3) {
+                if (out != null) {
+                    out[pos] = (byte) (bits >> 10);
+                    out[pos + 1] = (byte) (bits >> 2);
+                }
+                return pos + 2;
+            }
+            return pos;
+        }
+
+        private static IllegalArgumentException illegal(int c) {
+            return new IllegalArgumentException(String.format("Illegal base64 character %s", Character.toString(c)));
+        }
+    }
+}
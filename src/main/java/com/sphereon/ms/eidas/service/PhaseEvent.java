@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for a single phase of signing or verification, see {@link PhaseTimers}. Phases that are only
+ * recorded afterwards have no event duration, their duration is in the phaseDuration field
+ */
+@Name(PhaseEvent.NAME)
+@Label("eIDAS Phase")
+@Category("eIDAS")
+@Description("A phase of a signature or verification")
+@StackTrace(false)
+public class PhaseEvent extends jdk.jfr.Event {
+    public static final String NAME = "com.sphereon.eidas.Phase";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Key Algorithm")
+    String keyAlgorithm;
+
+    @Label("Phase Duration")
+    @Timespan
+    long phaseDuration;
+
+    @Label("Success")
+    boolean success;
+}
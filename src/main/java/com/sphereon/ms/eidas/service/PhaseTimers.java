@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import eu.europa.esig.dss.spi.client.http.DataLoader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for the phases of signing and verification, published as the eidas.phase metric with percentile histograms and
+ * tagged with operation, phase, outcome and keyAlgorithm. The timers are created once per tag combination and cached, so
+ * recording a phase does not go through the meter registry. Every phase is also traced as a span named after the
+ * operation and phase, and emitted as a {@link PhaseEvent} to the flight recorder. Work that is not a request, like the
+ * warm-up, runs with {@link #noop()}
+ */
+@Component
+public class PhaseTimers {
+    public static final String METRIC = "eidas.phase";
+    public static final String UNKNOWN = "unknown";
+
+    public static final String CERTIFICATE_LOOKUP = "certificate_lookup";
+    public static final String UNLOCK = "unlock";
+    public static final String DATA_TO_SIGN = "data_to_sign";
+    public static final String PRIVATE_KEY = "private_key";
+    public static final String SIGN_DOCUMENT = "sign_document";
+    public static final String DER_ENCODING = "der_encoding";
+    public static final String PEM_ENCODING = "pem_encoding";
+    public static final String CMS_PARSE = "cms_parse";
+    /**
+     * Chain building, revocation checks and the validation policy, which DSS does in one call
+     */
+    public static final String VALIDATION = "validation";
+    public static final String OCSP_FETCH = "ocsp_fetch";
+    public static final String CRL_FETCH = "crl_fetch";
+    public static final String AIA_FETCH = "aia_fetch";
+    public static final String REPORT = "report";
+    public static final String ORIGINAL_DATA = "original_data";
+
+    private static final PhaseTimers NOOP = new PhaseTimers(null, null, false);
+
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final boolean enabled;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PhaseTimers(MeterRegistry meterRegistry, Tracer tracer) {
+        this(meterRegistry, tracer, true);
+    }
+
+    private PhaseTimers(MeterRegistry meterRegistry, Tracer tracer, boolean enabled) {
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return Phase timers that only run the phases, without metrics, spans or flight recorder events
+     */
+    public static PhaseTimers noop() {
+        return NOOP;
+    }
+
+    @FunctionalInterface
+    public interface Phase<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Runs and times a phase. The outcome is failure when the phase throws
+     *
+     * @param operation    Signing or verification
+     * @param phase        The phase name
+     * @param keyAlgorithm The key algorithm, null when unknown
+     * @param work         The phase
+     * @return The result of the phase
+     */
+    public <T, E extends Exception> T time(UsageMeter.Operation operation, String phase, String keyAlgorithm, Phase<T, E> work) throws E {
+        if (!enabled) {
+            return work.run();
+        }
+        Span span = tracer.spanBuilder(spanName(operation, phase)).startSpan();
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        try (Scope ignored = span.makeCurrent()) {
+            T result = work.run();
+            success = true;
+            return result;
+        } catch (Throwable t) {
+            span.recordException(t);
+            span.setStatus(StatusCode.ERROR);
+            throw t;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            timer(operation, phase, keyAlgorithm, success).record(nanos, TimeUnit.NANOSECONDS);
+            commit(event, operation, phase, keyAlgorithm, nanos, success);
+            span.setAttribute("keyAlgorithm", keyAlgorithm == null ? UNKNOWN : keyAlgorithm);
+            span.end();
+        }
+    }
+
+    /**
+     * Records an already measured phase, for phases where the key algorithm is only known afterwards
+     */
+    public void record(UsageMeter.Operation operation, String phase, String keyAlgorithm, long nanos, boolean success) {
+        if (!enabled) {
+            return;
+        }
+        timer(operation, phase, keyAlgorithm, success).record(nanos, TimeUnit.NANOSECONDS);
+        commit(new PhaseEvent(), operation, phase, keyAlgorithm, nanos, success);
+        Span span = tracer.spanBuilder(spanName(operation, phase))
+                .setStartTimestamp(System.currentTimeMillis() * 1_000_000 - nanos, TimeUnit.NANOSECONDS)
+                .setAttribute("keyAlgorithm", keyAlgorithm == null ? UNKNOWN : keyAlgorithm)
+                .startSpan();
+        if (!success) {
+            span.setStatus(StatusCode.ERROR);
+        }
+        span.end();
+    }
+
+    private static void commit(PhaseEvent event, UsageMeter.Operation operation, String phase, String keyAlgorithm,
+                               long nanos, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation.name().toLowerCase(Locale.ROOT);
+            event.phase = phase;
+            event.keyAlgorithm = keyAlgorithm == null ? UNKNOWN : keyAlgorithm;
+            event.phaseDuration = nanos;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    private static String spanName(UsageMeter.Operation operation, String phase) {
+        return operation.name().toLowerCase(Locale.ROOT) + " " + phase;
+    }
+
+    private Timer timer(UsageMeter.Operation operation, String phase, String keyAlgorithm, boolean success) {
+        String algorithm = keyAlgorithm == null ? UNKNOWN : keyAlgorithm;
+        String outcome = success ? "success" : "failure";
+        return timers.computeIfAbsent(operation.name() + '/' + phase + '/' + outcome + '/' + algorithm, key -> Timer.builder(METRIC)
+                .tag("operation", operation.name().toLowerCase(Locale.ROOT))
+                .tag("phase", phase)
+                .tag("outcome", outcome)
+                .tag("keyAlgorithm", algorithm)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    /**
+     * Wraps a DSS data loader, so every request it does during a verification is timed as the given phase
+     */
+    public DataLoader timedDataLoader(String phase, String keyAlgorithm, DataLoader dataLoader) {
+        if (!enabled) {
+            return dataLoader;
+        }
+        return new TimedDataLoader(this, phase, keyAlgorithm, dataLoader);
+    }
+}
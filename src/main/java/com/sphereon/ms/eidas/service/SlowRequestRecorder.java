@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.sphereon.ms.eidas.config.FlightRecorderProperties;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a continuous, low overhead flight recording of the last minutes and dumps it to disk when a sign or verify request
+ * is slower than the threshold, so GC, lock and I/O stalls can be looked into afterwards with JDK Mission Control. Also
+ * emits the {@link OperationEvent}s; the recording can be dumped on demand at /actuator/flightrecording
+ */
+public class SlowRequestRecorder {
+    private static final XLogger logger = XLoggerFactory.getXLogger(SlowRequestRecorder.class);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Path dumpDirectory;
+    private final int maxDumps;
+    private final long slowRequestNanos;
+    private final long minDumpIntervalNanos;
+    private final AtomicLong nextDumpAllowed;
+    private final Recording recording;
+    private final ExecutorService dumpExecutor;
+
+    public SlowRequestRecorder(FlightRecorderProperties properties) {
+        this.dumpDirectory = Paths.get(properties.getDumpDirectory());
+        this.maxDumps = properties.getMaxDumps();
+        this.slowRequestNanos = properties.getSlowRequestThresholdMs() > 0
+                ? TimeUnit.MILLISECONDS.toNanos(properties.getSlowRequestThresholdMs()) : Long.MAX_VALUE;
+        this.minDumpIntervalNanos = TimeUnit.SECONDS.toNanos(properties.getMinDumpIntervalSeconds());
+        this.nextDumpAllowed = new AtomicLong(System.nanoTime());
+        this.recording = properties.isEnabled() ? startRecording(properties) : null;
+        this.dumpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "eidas-jfr-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Recording startRecording(FlightRecorderProperties properties) {
+        if (!FlightRecorder.isAvailable()) {
+            logger.warn("Flight recorder is not available in this JVM, slow requests will not be recorded");
+            return null;
+        }
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("eidas-sign-poc");
+            recording.setToDisk(true);
+            recording.setMaxAge(Duration.ofMinutes(properties.getMaxAgeMinutes()));
+            recording.setMaxSize(properties.getMaxSizeMb() * 1024L * 1024L);
+            recording.enable(OperationEvent.class);
+            recording.enable(PhaseEvent.class);
+            recording.start();
+            return recording;
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            logger.warn("Could not start the flight recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Starts the flight recorder event of a sign or verify operation
+     *
+     * @param operation       Signing or verification
+     * @param owner           The tenant
+     * @param certificateName The certificate, null for verifications
+     * @param payloadSize     Size of the content or signature in bytes
+     * @return The started event, to be passed to {@link #end(OperationEvent, long, boolean)}
+     */
+    public OperationEvent begin(UsageMeter.Operation operation, String owner, String certificateName, long payloadSize) {
+        OperationEvent event = new OperationEvent();
+        event.begin();
+        event.operation = operation.name().toLowerCase(Locale.ROOT);
+        event.owner = owner;
+        event.certificateName = certificateName;
+        event.payloadSize = payloadSize;
+        return event;
+    }
+
+    /**
+     * Commits the event of an operation and dumps the recording in the background when the operation was slow
+     *
+     * @param event   The event from {@link #begin(UsageMeter.Operation, String, String, long)}
+     * @param nanos   The duration of the operation
+     * @param success Whether the operation succeeded
+     */
+    public void end(OperationEvent event, long nanos, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.success = success;
+            event.commit();
+        }
+        if (recording == null || nanos < slowRequestNanos) {
+            return;
+        }
+        long now = System.nanoTime();
+        long allowed = nextDumpAllowed.get();
+        if (now - allowed >= 0 && nextDumpAllowed.compareAndSet(allowed, now + minDumpIntervalNanos)) {
+            String reason = "slow-" + event.operation;
+            dumpExecutor.execute(() -> {
+                try {
+                    Path file = dump(reason);
+                    logger.warn(String.format("A %s request took %d ms, the flight recording was dumped to %s",
+                            event.operation, TimeUnit.NANOSECONDS.toMillis(nanos), file));
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Could not dump the flight recording: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the last minutes of the recording to a new file in the dump directory, deleting the oldest dumps beyond
+     * the maximum
+     *
+     * @param reason Part of the file name
+     * @return The dump file
+     */
+    public synchronized Path dump(String reason) throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("The flight recording is not enabled");
+        }
+        Files.createDirectories(dumpDirectory);
+        Path file = dumpDirectory.resolve(String.format("eidas-%s-%s.jfr", LocalDateTime.now().format(FILE_TIMESTAMP), reason));
+        // Written under a temporary name, so a dump in the directory is always complete
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        recording.dump(partial);
+        Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+        pruneDumps();
+        return file;
+    }
+
+    private void pruneDumps() throws IOException {
+        List<Path> dumps;
+        try (Stream<Path> files = Files.list(dumpDirectory)) {
+            dumps = files.filter(path -> path.getFileName().toString().endsWith(".jfr"))
+                    .sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+        for (int i = 0; i < dumps.size() - maxDumps; i++) {
+            Files.deleteIfExists(dumps.get(i));
+        }
+    }
+
+    public void close() {
+        dumpExecutor.shutdownNow();
+        if (recording != null) {
+            recording.close();
+        }
+    }
+}
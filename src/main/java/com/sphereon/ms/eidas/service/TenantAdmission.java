@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.sphereon.ms.eidas.config.AdmissionProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Per tenant rate and concurrency limits. The rate limit is a token bucket implemented as GCRA (generic cell rate
+ * algorithm), which only needs a single compare-and-set on one {@link AtomicLong} per request. Each tenant has its own
+ * limiter, so tenants never contend with each other
+ */
+public class TenantAdmission {
+    private static final long CONCURRENCY_RETRY_AFTER_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AdmissionProperties properties;
+    private final Map<String, TenantLimiter> limiters = new ConcurrentHashMap<>();
+
+    public TenantAdmission(AdmissionProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Tries to admit a request of a tenant. An admitted request needs to be released when it is done
+     *
+     * @param owner The tenant
+     * @return The admission
+     */
+    public Admission tryAdmit(String owner) {
+        TenantLimiter limiter = limiters.get(owner);
+        if (limiter == null) {
+            limiter = limiters.computeIfAbsent(owner, this::createLimiter);
+        }
+        return limiter.tryAdmit(System.nanoTime());
+    }
+
+    /**
+     * @return The limiter state of every tenant seen since startup
+     */
+    public List<TenantAdmissionState> states() {
+        return limiters.entrySet().stream()
+                .map(entry -> entry.getValue().state(entry.getKey()))
+                .collect(Collectors.toList());
+    }
+
+    private TenantLimiter createLimiter(String owner) {
+        String tierName = properties.getOwners().getOrDefault(owner, properties.getDefaultTier());
+        AdmissionProperties.Tier tier = properties.getTiers().get(tierName);
+        if (tier == null) {
+            throw new IllegalStateException("Unknown admission tier " + tierName + " for " + owner);
+        }
+        return new TenantLimiter(tierName, tier);
+    }
+
+    public static final class Admission {
+        private final TenantLimiter limiter;
+        private final long retryAfterNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Admission(TenantLimiter limiter, long retryAfterNanos) {
+            this.limiter = limiter;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        public boolean isAdmitted() {
+            return retryAfterNanos == 0;
+        }
+
+        /**
+         * @return The whole number of seconds to wait before retrying, at least 1
+         */
+        public long getRetryAfterSeconds() {
+            return Math.max(1, (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        }
+
+        /**
+         * Releases the concurrency slot of an admitted request. Safe to call more than once
+         */
+        public void release() {
+            if (isAdmitted() && released.compareAndSet(false, true)) {
+                limiter.inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class TenantAdmissionState {
+        private String owner;
+        private String tier;
+        private int inFlight;
+        private long admitted;
+        private long rateLimited;
+        private long concurrencyLimited;
+    }
+
+    private static final class TenantLimiter {
+        private final String tier;
+        private final long emissionIntervalNanos;
+        private final long burstToleranceNanos;
+        private final int maxConcurrent;
+        // The theoretical arrival time of the next request (GCRA)
+        private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rateLimited = new LongAdder();
+        private final LongAdder concurrencyLimited = new LongAdder();
+
+        private TenantLimiter(String tier, AdmissionProperties.Tier properties) {
+            this.tier = tier;
+            this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / properties.getRatePerSecond());
+            this.burstToleranceNanos = emissionIntervalNanos * Math.max(0, properties.getBurst() - 1);
+            this.maxConcurrent = properties.getMaxConcurrent();
+        }
+
+        private Admission tryAdmit(long now) {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current >= maxConcurrent) {
+                    concurrencyLimited.increment();
+                    return new Admission(this, CONCURRENCY_RETRY_AFTER_NANOS);
+                }
+            } while (!inFlight.compareAndSet(current, current + 1));
+
+            long arrival;
+            long nextArrival;
+            do {
+                arrival = theoreticalArrival.get();
+                nextArrival = Math.max(arrival, now) + emissionIntervalNanos;
+                long allowedAt = nextArrival - emissionIntervalNanos - burstToleranceNanos;
+                if (allowedAt > now) {
+                    inFlight.decrementAndGet();
+                    rateLimited.increment();
+                    return new Admission(this, allowedAt - now);
+                }
+            } while (!theoreticalArrival.compareAndSet(arrival, nextArrival));
+            admitted.increment();
+            return new Admission(this, 0);
+        }
+
+        private TenantAdmissionState state(String owner) {
+            return new TenantAdmissionState(owner, tier, inFlight.get(), admitted.sum(), rateLimited.sum(), concurrencyLimited.sum());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import eu.europa.esig.dss.spi.client.http.DataLoader;
+import io.opentelemetry.api.trace.Span;
+
+import java.util.List;
+
+/**
+ * Times and traces the OCSP, CRL or AIA requests of a DSS data loader as a verification phase
+ */
+class TimedDataLoader implements DataLoader {
+    private static final long serialVersionUID = 1L;
+
+    private final transient PhaseTimers phaseTimers;
+    private final String phase;
+    private final String keyAlgorithm;
+    private final DataLoader dataLoader;
+
+    TimedDataLoader(PhaseTimers phaseTimers, String phase, String keyAlgorithm, DataLoader dataLoader) {
+        this.phaseTimers = phaseTimers;
+        this.phase = phase;
+        this.keyAlgorithm = keyAlgorithm;
+        this.dataLoader = dataLoader;
+    }
+
+    @Override
+    public byte[] get(String url) {
+        return phaseTimers.time(UsageMeter.Operation.VERIFY, phase, keyAlgorithm, () -> {
+            Span.current().setAttribute("http.url", url);
+            return dataLoader.get(url);
+        });
+    }
+
+    @Override
+    public DataAndUrl get(List<String> urlStrings) {
+        return phaseTimers.time(UsageMeter.Operation.VERIFY, phase, keyAlgorithm, () -> dataLoader.get(urlStrings));
+    }
+
+    @Override
+    public byte[] get(String url, boolean refresh) {
+        return phaseTimers.time(UsageMeter.Operation.VERIFY, phase, keyAlgorithm, () -> {
+            Span.current().setAttribute("http.url", url);
+            return dataLoader.get(url, refresh);
+        });
+    }
+
+    @Override
+    public byte[] post(String url, byte[] content) {
+        return phaseTimers.time(UsageMeter.Operation.VERIFY, phase, keyAlgorithm, () -> {
+            Span.current().setAttribute("http.url", url);
+            return dataLoader.post(url, content);
+        });
+    }
+
+    @Override
+    public void setContentType(String contentType) {
+        dataLoader.setContentType(contentType);
+    }
+}
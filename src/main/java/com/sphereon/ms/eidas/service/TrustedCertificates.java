@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import eu.europa.esig.dss.model.x509.CertificateToken;
+import eu.europa.esig.dss.spi.x509.CommonTrustedCertificateSource;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+/**
+ * The trust anchors for verification, read once from PEM or DER files. When none are configured, verification trusts the
+ * certificates in the signature itself (the POC behaviour), so the chain is not built and revocation is not checked
+ */
+@Component
+public class TrustedCertificates {
+    private static final XLogger logger = XLoggerFactory.getXLogger(TrustedCertificates.class);
+
+    private final CommonTrustedCertificateSource source = new CommonTrustedCertificateSource();
+
+    public TrustedCertificates(@Value("${sphereon.eidas-sign-poc.verify.trusted-certificates:}") String[] files)
+            throws IOException, CertificateException {
+        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+        for (String file : files) {
+            if (file.isBlank()) {
+                continue;
+            }
+            try (InputStream in = Files.newInputStream(Paths.get(file.trim()))) {
+                for (Certificate certificate : certificateFactory.generateCertificates(in)) {
+                    source.addCertificate(new CertificateToken((X509Certificate) certificate));
+                }
+            }
+        }
+        if (isConfigured()) {
+            logger.info(String.format("Verification trusts %d configured certificates", source.getNumberOfCertificates()));
+        }
+    }
+
+    /**
+     * @return Whether trust anchors are configured
+     */
+    public boolean isConfigured() {
+        return source.getNumberOfCertificates() > 0;
+    }
+
+    public CommonTrustedCertificateSource getSource() {
+        return source;
+    }
+}
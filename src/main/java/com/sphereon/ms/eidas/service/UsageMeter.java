@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.sphereon.ms.eidas.api.model.usage.TenantUsage;
+import com.sphereon.ms.eidas.nosql.UsageStore;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Meters the signatures, verifications, bytes processed and CPU time per tenant. Recording only touches striped
+ * {@link LongAdder}s of the tenant, so there is no contention between tenants and no database access on the request path.
+ * The increments are periodically written to the {@link UsageStore} in a single batch, grouped per hour
+ */
+@Component
+@Lazy(false)
+public class UsageMeter {
+    private static final XLogger logger = XLoggerFactory.getXLogger(UsageMeter.class);
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    public enum Operation {
+        SIGN, VERIFY
+    }
+
+    private final ConcurrentMap<UsageKey, Counters> counters = new ConcurrentHashMap<>();
+    private final UsageStore usageStore;
+
+    public UsageMeter(ObjectProvider<UsageStore> usageStore) {
+        // Without a store (the file store profile) the usage is only available through the actuator endpoint
+        this.usageStore = usageStore.getIfAvailable();
+    }
+
+    /**
+     * @return The CPU time of the current thread in nanoseconds, or 0 when the JVM cannot measure it
+     */
+    public long currentThreadCpuTime() {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * Records one operation
+     *
+     * @param owner        The tenant
+     * @param operation    The operation
+     * @param bytes        The number of bytes processed
+     * @param cpuTimeNanos The CPU time spent
+     */
+    public void record(String owner, Operation operation, long bytes, long cpuTimeNanos) {
+        UsageKey key = new UsageKey(owner, operation);
+        Counters tenantCounters = counters.get(key);
+        if (tenantCounters == null) {
+            tenantCounters = counters.computeIfAbsent(key, k -> new Counters());
+        }
+        tenantCounters.count.increment();
+        tenantCounters.bytes.add(bytes);
+        tenantCounters.cpuTimeNanos.add(cpuTimeNanos);
+    }
+
+    /**
+     * @return The usage per tenant and operation since startup
+     */
+    public List<TenantUsage> totals() {
+        List<TenantUsage> totals = new ArrayList<>(counters.size());
+        counters.forEach((key, value) -> totals.add(new TenantUsage(key.owner, key.operation.name(),
+                value.count.sum(), value.bytes.sum(), value.cpuTimeNanos.sum())));
+        return totals;
+    }
+
+    /**
+     * Writes the usage since the previous flush. The adders are never reset; instead the flushed totals are remembered, so
+     * increments that race with a flush are picked up by the next one and a failed write is retried with the next flush
+     */
+    @Scheduled(fixedDelayString = "${sphereon.eidas-sign-poc.metering.flush-interval-ms:60000}")
+    public synchronized void flush() {
+        if (usageStore == null) {
+            return;
+        }
+        List<TenantUsage> increments = new ArrayList<>();
+        List<long[]> snapshots = new ArrayList<>();
+        List<Counters> flushed = new ArrayList<>();
+        counters.forEach((key, value) -> {
+            long[] snapshot = {value.count.sum(), value.bytes.sum(), value.cpuTimeNanos.sum()};
+            if (snapshot[0] != value.flushedCount) {
+                increments.add(new TenantUsage(key.owner, key.operation.name(), snapshot[0] - value.flushedCount,
+                        snapshot[1] - value.flushedBytes, snapshot[2] - value.flushedCpuTimeNanos));
+                snapshots.add(snapshot);
+                flushed.add(value);
+            }
+        });
+        if (increments.isEmpty()) {
+            return;
+        }
+        try {
+            usageStore.increment(Instant.now().truncatedTo(ChronoUnit.HOURS), increments);
+        } catch (RuntimeException e) {
+            logger.warn("Could not flush tenant usage, retrying with the next flush: " + e.getMessage());
+            return;
+        }
+        for (int i = 0; i < flushed.size(); i++) {
+            flushed.get(i).flushedCount = snapshots.get(i)[0];
+            flushed.get(i).flushedBytes = snapshots.get(i)[1];
+            flushed.get(i).flushedCpuTimeNanos = snapshots.get(i)[2];
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private static final class UsageKey {
+        private final String owner;
+        private final Operation operation;
+
+        private UsageKey(String owner, Operation operation) {
+            this.owner = owner;
+            this.operation = operation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof UsageKey)) {
+                return false;
+            }
+            UsageKey other = (UsageKey) o;
+            return owner.equals(other.owner) && operation == other.operation;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(owner, operation);
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder cpuTimeNanos = new LongAdder();
+        // Only accessed by the (synchronized) flush
+        private long flushedCount;
+        private long flushedBytes;
+        private long flushedCpuTimeNanos;
+    }
+}
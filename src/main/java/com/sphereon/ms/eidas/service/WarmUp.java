@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas.service;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateInfo;
+import com.sphereon.ms.eidas.config.WarmUpProperties;
+import com.sphereon.ms.eidas.nosql.EidasCertificateFilter;
+import com.sphereon.ms.eidas.nosql.EidasCertificateStore;
+import eu.europa.esig.dss.service.http.commons.CommonsDataLoader;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the application up before it reports ready. Runs as an application runner, which Spring Boot completes before
+ * publishing the ACCEPTING_TRAFFIC readiness state, so /actuator/health/readiness stays down until the warm-up is done
+ * or timed out. Signs and verifies synthetic documents with generated keys (provider registration, DSS class loading,
+ * JIT compilation), opens Mongo connections, reads the certificates and data keys of the configured tenants and requests
+ * the configured revocation URLs. A failing step is logged and does not prevent the application from starting, unless
+ * fail-on-error is set
+ */
+public class WarmUp implements ApplicationRunner {
+    private static final XLogger logger = XLoggerFactory.getXLogger(WarmUp.class);
+    static final String OWNER = "warm-up";
+    private static final int CERTIFICATES_PER_OWNER = 1000;
+
+    private final WarmUpProperties properties;
+    private final EidasDelegate eidasDelegate;
+    private final EidasCertificateStore certificateRepository;
+    private final KeyEnvelopeService keyEnvelopeService;
+    private final Bulkheads bulkheads;
+    private final MongoTemplate mongoTemplate;
+
+    public WarmUp(WarmUpProperties properties, EidasDelegate eidasDelegate, EidasCertificateStore certificateRepository,
+                  KeyEnvelopeService keyEnvelopeService, Bulkheads bulkheads, MongoTemplate mongoTemplate) {
+        this.properties = properties;
+        this.eidasDelegate = eidasDelegate;
+        this.certificateRepository = certificateRepository;
+        this.keyEnvelopeService = keyEnvelopeService;
+        this.bulkheads = bulkheads;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(properties.getTimeoutSeconds());
+        step("Mongo connections", () -> openMongoConnections(deadline));
+        step("tenant certificates", () -> loadOwners(deadline));
+        step("revocation URLs", () -> fetchRevocationUrls(deadline));
+        step("synthetic signatures", () -> signAndVerify(deadline));
+        logger.info(String.format("Warm-up finished in %d ms%s", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                System.nanoTime() - deadline > 0 ? " (timed out)" : ""));
+    }
+
+    private void step(String name, WarmUpStep step) {
+        long start = System.nanoTime();
+        try {
+            int count = step.run();
+            logger.info(String.format("Warm-up of %s: %d in %d ms", name, count,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        } catch (Exception e) {
+            if (properties.isFailOnError()) {
+                throw new IllegalStateException(String.format("Warm-up of %s failed", name), e);
+            }
+            logger.warn(String.format("Warm-up of %s failed: %s", name, e.getMessage()));
+        }
+    }
+
+    @FunctionalInterface
+    private interface WarmUpStep {
+        int run() throws Exception;
+    }
+
+    /**
+     * Pings Mongo from several threads at once, so the pool holds that many connections before the first request
+     */
+    private int openMongoConnections(long deadline) throws Exception {
+        if (mongoTemplate == null || properties.getMongoConnections() < 1) {
+            return 0;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getMongoConnections());
+        try {
+            List<Future<?>> pings = new ArrayList<>();
+            for (int i = 0; i < properties.getMongoConnections(); i++) {
+                pings.add(executor.submit(() -> mongoTemplate.executeCommand("{ ping: 1 }")));
+            }
+            for (Future<?> ping : pings) {
+                ping.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            return pings.size();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the certificates of the configured tenants, bringing them into the Mongo cache, and unwraps their data keys
+     */
+    private int loadOwners(long deadline) {
+        int count = 0;
+        EidasCertificateFilter noFilter = new EidasCertificateFilter(null, null, null, null);
+        for (String owner : properties.getOwners()) {
+            keyEnvelopeService.preload(owner);
+            for (EidasCertificateInfo info : certificateRepository.findPage(owner, noFilter, null, CERTIFICATES_PER_OWNER)) {
+                if (System.nanoTime() - deadline > 0) {
+                    return count;
+                }
+                certificateRepository.findByOwnerAndName(owner, info.getName());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Requests the revocation URLs through the revocation bulkhead, as a validation does
+     */
+    private int fetchRevocationUrls(long deadline) {
+        int count = 0;
+        for (String url : properties.getRevocationUrls()) {
+            if (System.nanoTime() - deadline > 0) {
+                break;
+            }
+            try {
+                bulkheads.revocationDataLoader(new CommonsDataLoader()).get(url);
+                count++;
+            } catch (RuntimeException e) {
+                logger.warn(String.format("Warm-up request to %s failed: %s", url, e.getMessage()));
+            }
+        }
+        return count;
+    }
+
+    private int signAndVerify(long deadline) throws GeneralSecurityException, IOException, OperatorCreationException {
+        byte[] content = new byte[4096];
+        new SecureRandom().nextBytes(content);
+        String password = UUID.randomUUID().toString();
+        int count = 0;
+        for (String keyAlgorithm : properties.getKeyAlgorithms()) {
+            EidasCertificate certificate = syntheticCertificate(keyAlgorithm.toUpperCase(Locale.ROOT), password);
+            for (int i = 0; i < properties.getIterations() && System.nanoTime() - deadline < 0; i++) {
+                eidasDelegate.signAndVerifyUnmetered(certificate, password, content);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Generates a key pair with a self-signed certificate in a PKCS#12 file, like an imported certificate
+     */
+    static EidasCertificate syntheticCertificate(String keyAlgorithm, String password)
+            throws GeneralSecurityException, IOException, OperatorCreationException {
+        boolean ec = "EC".equals(keyAlgorithm);
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(keyAlgorithm);
+        generator.initialize(ec ? 256 : 2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        X500Name subject = new X500Name("CN=Warm-up " + keyAlgorithm);
+        Instant now = Instant.now();
+        X509Certificate certificate = new JcaX509CertificateConverter().getCertificate(new JcaX509v3CertificateBuilder(
+                subject, BigInteger.valueOf(now.toEpochMilli()), Date.from(now.minus(1, ChronoUnit.DAYS)),
+                Date.from(now.plus(1, ChronoUnit.DAYS)), subject, keyPair.getPublic())
+                .build(new JcaContentSignerBuilder(ec ? "SHA256withECDSA" : "SHA256withRSA").build(keyPair.getPrivate())));
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry(OWNER, keyPair.getPrivate(), password.toCharArray(), new Certificate[]{certificate});
+        ByteArrayOutputStream p12 = new ByteArrayOutputStream();
+        keyStore.store(p12, password.toCharArray());
+        return new EidasCertificate(OWNER, OWNER + "-" + keyAlgorithm, Base64.getEncoder().encodeToString(p12.toByteArray()),
+                subject.toString(), subject.toString(), keyAlgorithm, certificate.getNotAfter().toInstant());
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sphereon.ms.eidas.service.OwnerResolver;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How many signatures per second one node sustains. Starts the application on MongoDB in a container (the test profile,
+ * {@link com.sphereon.ms.eidas.config.MongoDBTestConfig}) with {@link StubRevocationResponders} as the CA, and runs a
+ * closed-loop mix of sign, verify and import requests from a number of concurrent clients. Reports the throughput and
+ * p50/p99/p999 latency per operation and writes them as JSON. Tenant admission is disabled, as all clients are one owner.
+ * The test fails when more requests than allowed failed or were rejected, and with a baseline (an earlier result file)
+ * when the throughput dropped or the p99 grew by more than the allowed regression. The clients run in the same JVM as the
+ * application, so compare results from the same machine only.
+ * <p>
+ * Not part of the normal build, needs Docker. Run with mvn test -Dtest=LoadTestKT, with the system properties:
+ * loadtest.concurrency (16), loadtest.duration-seconds (60), loadtest.warmup-seconds (15),
+ * loadtest.mix (sign:60,verify:35,import:5), loadtest.certificates (20), loadtest.payload-bytes (4096),
+ * loadtest.result (target/load-test-result.json), loadtest.baseline, loadtest.max-regression-percent (10) and
+ * loadtest.max-error-percent (1)
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = EidasCertApplication.class)
+@ActiveProfiles("test")
+public class LoadTestKT {
+    private static final String OWNER = "load-test";
+    private static final String PASSWORD = "load-test";
+    private static final MongoDBContainer MONGO = new MongoDBContainer(DockerImageName.parse("mongo:4.4"));
+    private static StubRevocationResponders responders;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @MockBean
+    OwnerResolver ownerResolver;
+
+    @Value("${local.server.port}")
+    private String port;
+
+    private enum Operation {
+        SIGN, VERIFY, IMPORT
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws Exception {
+        MONGO.start();
+        responders = new StubRevocationResponders();
+        Path caFile = responders.writeCaCertificate(Files.createTempFile("load-test-ca", ".pem"));
+        registry.add("sphereon.eidas-sign-poc.db.connection-string", MONGO::getConnectionString);
+        // All requests come from one owner, whose tenant rate limit would otherwise be measured instead of the node
+        registry.add("sphereon.eidas-sign-poc.admission.enable", () -> "false");
+        registry.add("sphereon.eidas-sign-poc.verify.trusted-certificates", caFile::toString);
+    }
+
+    @BeforeEach
+    public void owner() {
+        Mockito.when(ownerResolver.resolve()).thenReturn(OWNER);
+    }
+
+    @Test
+    public void sustainedMixedLoad() throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+        int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 60);
+        int warmupSeconds = Integer.getInteger("loadtest.warmup-seconds", 15);
+        Map<Operation, Integer> mix = parseMix(System.getProperty("loadtest.mix", "sign:60,verify:35,import:5"));
+        int certificates = Integer.getInteger("loadtest.certificates", 20);
+        byte[] payload = new byte[Integer.getInteger("loadtest.payload-bytes", 4096)];
+        ThreadLocalRandom.current().nextBytes(payload);
+        String content = Base64.getEncoder().encodeToString(payload);
+
+        // Certificates of alternating key types, and signatures to verify
+        List<String> p12s = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < certificates; i++) {
+            String p12 = responders.issue(i % 2 == 0 ? "RSA" : "EC", PASSWORD);
+            String name = "load-" + UUID.randomUUID();
+            Assertions.assertEquals(200, post("/certificates", Map.of("name", name, "base64Certificate", p12, "password", PASSWORD)).statusCode());
+            p12s.add(p12);
+            names.add(name);
+        }
+        List<String> signatures = new ArrayList<>();
+        for (String name : names) {
+            HttpResponse<String> response = post("/certificates/" + name + "/sign", Map.of("content", content, "password", PASSWORD));
+            Assertions.assertEquals(200, response.statusCode(), response.body());
+            signatures.add(objectMapper.readTree(response.body()).get("signature").asText());
+        }
+
+        Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                running.add(clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < measureUntil) {
+                        Operation operation = pick(mix, totalWeight, random.nextInt(totalWeight));
+                        long start = System.nanoTime();
+                        int status;
+                        try {
+                            status = execute(operation, random, names, p12s, signatures, content).statusCode();
+                        } catch (IOException e) {
+                            status = 0;
+                        }
+                        if (start >= measureFrom && System.nanoTime() <= measureUntil) {
+                            stats.get(operation).record(status, System.nanoTime() - start);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : running) {
+                client.get();
+            }
+        } finally {
+            clients.shutdownNow();
+            responders.close();
+        }
+
+        Map<String, Map<String, Number>> result = new LinkedHashMap<>();
+        System.out.printf("%d clients for %d s, stub revocation requests: %d OCSP, %d CRL%n", concurrency, durationSeconds,
+            responders.getOcspRequests(), responders.getCrlRequests());
+        System.out.printf("%-8s %10s %10s %10s %10s %10s %10s %10s%n", "", "requests", "per second", "p50 ms", "p99 ms",
+            "p999 ms", "rejected", "errors");
+        for (Operation operation : Operation.values()) {
+            if (mix.getOrDefault(operation, 0) == 0) {
+                continue;
+            }
+            Map<String, Number> values = stats.get(operation).summary(durationSeconds);
+            result.put(operation.name().toLowerCase(), values);
+            System.out.printf("%-8s %10d %10.1f %10.1f %10.1f %10.1f %10d %10d%n", operation.name().toLowerCase(),
+                values.get("requests").longValue(), values.get("throughput").doubleValue(), values.get("p50Ms").doubleValue(),
+                values.get("p99Ms").doubleValue(), values.get("p999Ms").doubleValue(), values.get("rejected").longValue(),
+                values.get("errors").longValue());
+        }
+        Path resultFile = Paths.get(System.getProperty("loadtest.result", "target/load-test-result.json"));
+        Files.createDirectories(resultFile.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(resultFile.toFile(), result);
+
+        List<String> regressions = regressions(result);
+        Assertions.assertTrue(regressions.isEmpty(), String.join("\n", regressions));
+    }
+
+    /**
+     * @return The regression gate violations: errors and rejections above the allowed percentage, and throughput or p99
+     * more than the allowed percentage worse than the baseline
+     */
+    private List<String> regressions(Map<String, Map<String, Number>> result) throws IOException {
+        List<String> regressions = new ArrayList<>();
+        double maxErrorPercent = Double.parseDouble(System.getProperty("loadtest.max-error-percent", "1"));
+        for (Map.Entry<String, Map<String, Number>> entry : result.entrySet()) {
+            long requests = entry.getValue().get("requests").longValue();
+            long errors = entry.getValue().get("errors").longValue();
+            long rejected = entry.getValue().get("rejected").longValue();
+            if (requests == 0 || (errors + rejected) * 100.0 / requests > maxErrorPercent) {
+                regressions.add(String.format("%s: %d errors and %d rejections in %d requests", entry.getKey(), errors,
+                    rejected, requests));
+            }
+        }
+        String baselineFile = System.getProperty("loadtest.baseline");
+        if (baselineFile == null) {
+            return regressions;
+        }
+        double allowed = Double.parseDouble(System.getProperty("loadtest.max-regression-percent", "10")) / 100;
+        Map<String, Map<String, Double>> baseline = objectMapper.readValue(Paths.get(baselineFile).toFile(),
+            new TypeReference<Map<String, Map<String, Double>>>() {});
+        for (Map.Entry<String, Map<String, Number>> entry : result.entrySet()) {
+            Map<String, Double> before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            double throughput = entry.getValue().get("throughput").doubleValue();
+            if (throughput < before.get("throughput") * (1 - allowed)) {
+                regressions.add(String.format("%s: throughput %.1f/s, baseline %.1f/s", entry.getKey(), throughput, before.get("throughput")));
+            }
+            double p99 = entry.getValue().get("p99Ms").doubleValue();
+            if (p99 > before.get("p99Ms") * (1 + allowed)) {
+                regressions.add(String.format("%s: p99 %.1f ms, baseline %.1f ms", entry.getKey(), p99, before.get("p99Ms")));
+            }
+        }
+        return regressions;
+    }
+
+    private HttpResponse<String> execute(Operation operation, ThreadLocalRandom random, List<String> names, List<String> p12s,
+                                         List<String> signatures, String content) throws IOException {
+        switch (operation) {
+            case SIGN:
+                return post("/certificates/" + names.get(random.nextInt(names.size())) + "/sign",
+                    Map.of("content", content, "password", PASSWORD));
+            case VERIFY:
+                return post("/signatures", Map.of("signature", signatures.get(random.nextInt(signatures.size()))));
+            default:
+                return post("/certificates", Map.of("name", "load-" + UUID.randomUUID(),
+                    "base64Certificate", p12s.get(random.nextInt(p12s.size())), "password", PASSWORD));
+        }
+    }
+
+    private HttpResponse<String> post(String path, Map<String, String> body) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(String.format("http://localhost:%s/eidas/1.0%s", port, path)))
+            .timeout(Duration.ofSeconds(60))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+            .build();
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] weight = part.trim().split(":");
+            weights.put(Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+        return weights;
+    }
+
+    private static Operation pick(Map<Operation, Integer> mix, int totalWeight, int value) {
+        int cumulative = 0;
+        for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+            cumulative += weight.getValue();
+            if (value < cumulative) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("No operation for " + value + " of " + totalWeight);
+    }
+
+    /**
+     * Latencies of the successful requests, and counts of the rejected (429, 503) and failed ones
+     */
+    private static class Stats {
+        private final Histogram latencies = new ConcurrentHistogram(3);
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(int status, long nanos) {
+            if (status >= 200 && status < 300) {
+                latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+            } else if (status == 429 || status == 503) {
+                rejected.incrementAndGet();
+            } else {
+                errors.incrementAndGet();
+            }
+        }
+
+        Map<String, Number> summary(int durationSeconds) {
+            Map<String, Number> summary = new LinkedHashMap<>();
+            long requests = latencies.getTotalCount() + rejected.get() + errors.get();
+            summary.put("requests", requests);
+            summary.put("throughput", latencies.getTotalCount() / (double) durationSeconds);
+            summary.put("p50Ms", latencies.getValueAtPercentile(50) / 1000.0);
+            summary.put("p99Ms", latencies.getValueAtPercentile(99) / 1000.0);
+            summary.put("p999Ms", latencies.getValueAtPercentile(99.9) / 1000.0);
+            summary.put("rejected", rejected.get());
+            summary.put("errors", errors.get());
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.config.FileStoreConfiguration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Startup time and resident memory of the native image against the JVM build. Both run the warm-up with fail-on-error,
+ * which signs and verifies synthetic RSA and EC documents through the same EidasDelegate path as TestEidasDelegate, so a
+ * start only counts when signing and verification work in that build. Needs the image from mvn -Pnative package and
+ * Linux for /proc. Not part of the normal build, run with mvn test -Dtest=NativeImageBenchmarkKT
+ */
+public class NativeImageBenchmarkKT {
+    private static final Pattern STARTED = Pattern.compile("Started EidasCertApplication in ([0-9.]+) seconds");
+    private static final Pattern WARMED_UP = Pattern.compile("Warm-up finished in ([0-9]+) ms");
+    private static final Path IMAGE = Paths.get("target", "eidas-sign-poc");
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    public void compareNativeAndJvm() throws Exception {
+        Assumptions.assumeTrue(Files.isExecutable(IMAGE), "No native image at " + IMAGE + ", build it with mvn -Pnative package");
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Result jvm = start(List.of(java, "-cp", System.getProperty("java.class.path"), EidasCertApplication.class.getName()));
+        Result image = start(List.of(IMAGE.toAbsolutePath().toString()));
+        System.out.printf("JVM: started in %.2f s, warm-up %d ms, RSS %d MB%n", jvm.started, jvm.warmUpMillis, jvm.rssKb / 1024);
+        System.out.printf("Native image: started in %.2f s, warm-up %d ms, RSS %d MB%n", image.started, image.warmUpMillis, image.rssKb / 1024);
+    }
+
+    private Result start(List<String> command) throws Exception {
+        List<String> arguments = new ArrayList<>(command);
+        arguments.add("--spring.profiles.active=" + FileStoreConfiguration.PROFILE);
+        arguments.add("--server.port=0");
+        arguments.add("--management.port=0");
+        arguments.add("--sphereon.eidas-sign-poc.warm-up.fail-on-error=true");
+        arguments.add("--sphereon.eidas-sign-poc.flight-recorder.enabled=false");
+        arguments.add("--sphereon.eidas-sign-poc.filestore.directory=" + dataDirectory.resolve("data"));
+        arguments.add("--sphereon.eidas-sign-poc.audit.directory=" + dataDirectory.resolve("audit"));
+        Process process = new ProcessBuilder(arguments).redirectErrorStream(true).start();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            Result result = new Result();
+            String line;
+            while ((line = output.readLine()) != null) {
+                Matcher started = STARTED.matcher(line);
+                if (started.find()) {
+                    result.started = Double.parseDouble(started.group(1));
+                }
+                Matcher warmedUp = WARMED_UP.matcher(line);
+                if (warmedUp.find()) {
+                    // The warm-up runs after the started line, so the memory includes the signing path
+                    result.warmUpMillis = Long.parseLong(warmedUp.group(1));
+                    result.rssKb = residentKb(process.pid());
+                    return result;
+                }
+            }
+            Assertions.fail("The application did not start or its warm-up failed: " + command.get(0));
+            return result;
+        } finally {
+            process.destroy();
+            process.waitFor(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static long residentKb(long pid) throws Exception {
+        for (String line : Files.readAllLines(Paths.get("/proc", Long.toString(pid), "status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        }
+        return 0;
+    }
+
+    private static class Result {
+        double started;
+        long warmUpMillis;
+        long rssKb;
+    }
+}
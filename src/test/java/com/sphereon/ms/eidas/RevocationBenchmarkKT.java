@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sphereon.ms.eidas.StubRevocationResponders.Behaviour;
+import com.sphereon.ms.eidas.StubRevocationResponders.Failure;
+import com.sphereon.ms.eidas.StubRevocationResponders.Responder;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.config.BulkheadProperties;
+import com.sphereon.ms.eidas.service.AuditLog;
+import com.sphereon.ms.eidas.service.Bulkheads;
+import com.sphereon.ms.eidas.service.ConcurrencyLimits;
+import com.sphereon.ms.eidas.service.EidasDelegate;
+import com.sphereon.ms.eidas.service.PhaseTimers;
+import com.sphereon.ms.eidas.service.SlowRequestRecorder;
+import com.sphereon.ms.eidas.service.TrustedCertificates;
+import com.sphereon.ms.eidas.service.UsageMeter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and tail latency of EidasDelegate.verify when the certificates are checked against OCSP, CRL and CA issuer
+ * responders that are slow, jittery, failing or serving a large CRL. The responders are {@link StubRevocationResponders}
+ * on loopback and the verification trusts their CA, so every scenario is reproducible on one machine, and the effect of
+ * caching, pooling and timeout changes in the revocation path can be compared between commits.
+ * <p>
+ * Not part of the normal build, run with mvn test -Dtest=RevocationBenchmarkKT, with the system properties
+ * revocation.concurrency (8), revocation.duration-seconds (20), revocation.warmup-seconds (5), revocation.scenarios
+ * (comma separated names, all by default) and revocation.result (target/revocation-benchmark.json)
+ */
+public class RevocationBenchmarkKT {
+    private static final String OWNER = "revocation-benchmark";
+    private static final String PASSWORD = "revocation-benchmark";
+    private static final int CERTIFICATES = 8;
+
+    private final Bulkheads bulkheads = new Bulkheads(new BulkheadProperties(), new SimpleMeterRegistry());
+    private StubRevocationResponders responders;
+    private TrustedCertificates trustedCertificates;
+
+    @TempDir
+    Path directory;
+
+    @FunctionalInterface
+    private interface Setup {
+        void apply(StubRevocationResponders responders) throws Exception;
+    }
+
+    private static final class Scenario {
+        private final String name;
+        private final boolean includeChain;
+        private final Setup setup;
+
+        private Scenario(String name, boolean includeChain, Setup setup) {
+            this.name = name;
+            this.includeChain = includeChain;
+            this.setup = setup;
+        }
+    }
+
+    private static final List<Scenario> SCENARIOS = List.of(
+        new Scenario("healthy", true, responders -> {
+        }),
+        new Scenario("ocsp-50ms", true, responders ->
+            responders.setBehaviour(Responder.OCSP, Behaviour.HEALTHY.withLatency(50, 10))),
+        new Scenario("ocsp-300ms-jitter", true, responders ->
+            responders.setBehaviour(Responder.OCSP, Behaviour.HEALTHY.withLatency(300, 250))),
+        new Scenario("ocsp-20pct-errors", true, responders ->
+            responders.setBehaviour(Responder.OCSP, Behaviour.HEALTHY.withFailures(0.2, Failure.ERROR))),
+        new Scenario("ocsp-down-crl", true, responders ->
+            responders.setBehaviour(Responder.OCSP, Behaviour.HEALTHY.withFailures(1, Failure.RESET))),
+        new Scenario("ocsp-down-large-crl", true, responders -> {
+            responders.setBehaviour(Responder.OCSP, Behaviour.HEALTHY.withFailures(1, Failure.RESET));
+            responders.setBehaviour(Responder.CRL, Behaviour.HEALTHY.withLatency(20, 10));
+            // About 4 MB
+            responders.setRevokedEntries(100_000);
+        }),
+        new Scenario("all-down", true, responders -> {
+            responders.setBehaviour(Responder.OCSP, Behaviour.HEALTHY.withFailures(1, Failure.ERROR));
+            responders.setBehaviour(Responder.CRL, Behaviour.HEALTHY.withFailures(1, Failure.ERROR));
+        }),
+        new Scenario("aia-100ms", false, responders ->
+            responders.setBehaviour(Responder.CA_ISSUER, Behaviour.HEALTHY.withLatency(100, 20))));
+
+    @BeforeEach
+    public void startResponders() throws Exception {
+        responders = new StubRevocationResponders();
+        trustedCertificates = new TrustedCertificates(new String[]{responders.writeCaCertificate(directory.resolve("ca.pem")).toString()});
+    }
+
+    @AfterEach
+    public void shutdown() {
+        responders.close();
+        bulkheads.shutdown();
+    }
+
+    @Test
+    public void verifyUnderRevocationScenarios() throws Exception {
+        int concurrency = Integer.getInteger("revocation.concurrency", 8);
+        int durationSeconds = Integer.getInteger("revocation.duration-seconds", 20);
+        int warmupSeconds = Integer.getInteger("revocation.warmup-seconds", 5);
+        List<String> selected = Arrays.asList(System.getProperty("revocation.scenarios", "").split(","));
+
+        Map<String, Map<String, Number>> result = new LinkedHashMap<>();
+        System.out.printf("%-20s %10s %10s %10s %10s %10s %10s %8s %8s %8s %10s%n", "", "verifies", "per second", "p50 ms",
+            "p99 ms", "p999 ms", "invalid", "ocsp", "crl", "aia", "fetch ms");
+        for (Scenario scenario : SCENARIOS) {
+            if (!selected.contains("") && !selected.contains(scenario.name)) {
+                continue;
+            }
+            Map<String, Number> values = run(scenario, concurrency, warmupSeconds, durationSeconds);
+            result.put(scenario.name, values);
+            System.out.printf("%-20s %10d %10.1f %10.1f %10.1f %10.1f %10d %8.2f %8.2f %8.2f %10.1f%n", scenario.name,
+                values.get("verifies").longValue(), values.get("throughput").doubleValue(), values.get("p50Ms").doubleValue(),
+                values.get("p99Ms").doubleValue(), values.get("p999Ms").doubleValue(), values.get("invalid").longValue(),
+                values.get("ocspPerVerify").doubleValue(), values.get("crlPerVerify").doubleValue(),
+                values.get("aiaPerVerify").doubleValue(), values.get("fetchMsPerVerify").doubleValue());
+        }
+        Path resultFile = Paths.get(System.getProperty("revocation.result", "target/revocation-benchmark.json"));
+        Files.createDirectories(resultFile.toAbsolutePath().getParent());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(resultFile.toFile(), result);
+    }
+
+    private Map<String, Number> run(Scenario scenario, int concurrency, int warmupSeconds, int durationSeconds) throws Exception {
+        responders.reset();
+        scenario.setup.apply(responders);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        EidasDelegate eidasDelegate = new EidasDelegate(null, null, null, Mockito.mock(UsageMeter.class),
+            Mockito.mock(AuditLog.class), new ConcurrencyLimits(concurrency, 1, concurrency, concurrency, concurrency, concurrency),
+            bulkheads, new PhaseTimers(meterRegistry, OpenTelemetry.noop().getTracer("benchmark")),
+            Mockito.mock(SlowRequestRecorder.class));
+        eidasDelegate.setTrustedCertificates(trustedCertificates);
+
+        String content = Base64.getEncoder().encodeToString("Revocation benchmark".getBytes(StandardCharsets.UTF_8));
+        List<String> signatures = new ArrayList<>();
+        for (int i = 0; i < CERTIFICATES; i++) {
+            EidasCertificate certificate = new EidasCertificate(OWNER, "certificate-" + i,
+                responders.issue(i % 2 == 0 ? "RSA" : "EC", PASSWORD, scenario.includeChain));
+            signatures.add(eidasDelegate.signWithCertificate(certificate, PASSWORD, content));
+        }
+
+        Histogram latencies = new ConcurrentHistogram(3);
+        AtomicLong invalid = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        int[] requestsBefore = new int[3];
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                running.add(clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < measureUntil) {
+                        long start = System.nanoTime();
+                        boolean verified;
+                        try {
+                            verified = eidasDelegate.verify(OWNER, signatures.get(random.nextInt(signatures.size()))).isVerified();
+                        } catch (RuntimeException e) {
+                            verified = false;
+                            if (start >= measureFrom) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                        long end = System.nanoTime();
+                        if (start >= measureFrom && end <= measureUntil) {
+                            latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(end - start));
+                            if (!verified) {
+                                invalid.incrementAndGet();
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            // The responder requests are counted from the start of the measurement
+            Thread.sleep(Math.max(0, TimeUnit.NANOSECONDS.toMillis(measureFrom - System.nanoTime())));
+            requestsBefore[0] = responders.getOcspRequests();
+            requestsBefore[1] = responders.getCrlRequests();
+            requestsBefore[2] = responders.getCaIssuerRequests();
+            for (Future<?> client : running) {
+                client.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        long verifies = latencies.getTotalCount();
+        Assertions.assertTrue(verifies > 0, "No verification finished in scenario " + scenario.name);
+
+        Map<String, Number> values = new LinkedHashMap<>();
+        values.put("verifies", verifies);
+        values.put("throughput", verifies / (double) durationSeconds);
+        values.put("p50Ms", latencies.getValueAtPercentile(50) / 1000.0);
+        values.put("p99Ms", latencies.getValueAtPercentile(99) / 1000.0);
+        values.put("p999Ms", latencies.getValueAtPercentile(99.9) / 1000.0);
+        values.put("invalid", invalid.get());
+        values.put("errors", errors.get());
+        values.put("ocspPerVerify", (responders.getOcspRequests() - requestsBefore[0]) / (double) verifies);
+        values.put("crlPerVerify", (responders.getCrlRequests() - requestsBefore[1]) / (double) verifies);
+        values.put("aiaPerVerify", (responders.getCaIssuerRequests() - requestsBefore[2]) / (double) verifies);
+        // Includes the warm-up, as the phase timers are not reset at the start of the measurement
+        double fetchMillis = 0;
+        long verifications = 0;
+        for (Timer timer : meterRegistry.find(PhaseTimers.METRIC).timers()) {
+            String phase = timer.getId().getTag("phase");
+            if (PhaseTimers.OCSP_FETCH.equals(phase) || PhaseTimers.CRL_FETCH.equals(phase) || PhaseTimers.AIA_FETCH.equals(phase)) {
+                fetchMillis += timer.totalTime(TimeUnit.MILLISECONDS);
+            } else if (PhaseTimers.CMS_PARSE.equals(phase)) {
+                verifications += timer.count();
+            }
+        }
+        values.put("fetchMsPerVerify", verifications == 0 ? 0 : fetchMillis / verifications);
+        return values;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.config.FastStartupConfiguration;
+import com.sphereon.ms.eidas.config.FileStoreConfiguration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Startup time of the default and the fast-startup profile. Every start is a new JVM, as a second start in the same JVM
+ * has its classes loaded already. Uses the file store, so no MongoDB is needed, and no warm-up. Not part of the normal
+ * build, run with mvn test -Dtest=StartupTimeBenchmarkKT [-Dbenchmark.runs=5]
+ */
+public class StartupTimeBenchmarkKT {
+    private static final Pattern STARTED = Pattern.compile("Started EidasCertApplication in ([0-9.]+) seconds \\(JVM running for ([0-9.]+)\\)");
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    public void compareStartupTimes() throws Exception {
+        int runs = Integer.getInteger("benchmark.runs", 5);
+        List<Double> defaultStarts = new ArrayList<>();
+        List<Double> fastStarts = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            // Alternated, so both profiles see the same machine load
+            defaultStarts.add(start(FileStoreConfiguration.PROFILE));
+            fastStarts.add(start(FileStoreConfiguration.PROFILE + "," + FastStartupConfiguration.PROFILE));
+        }
+        System.out.printf("Time until started (JVM start included), median of %d runs: default %.2f s, fast-startup %.2f s%n",
+            runs, median(defaultStarts), median(fastStarts));
+    }
+
+    private double start(String profiles) throws Exception {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            EidasCertApplication.class.getName(),
+            "--spring.profiles.active=" + profiles,
+            "--server.port=0",
+            "--management.port=0",
+            "--sphereon.eidas-sign-poc.warm-up.enabled=false",
+            "--sphereon.eidas-sign-poc.flight-recorder.enabled=false",
+            "--sphereon.eidas-sign-poc.filestore.directory=" + dataDirectory.resolve("data"),
+            "--sphereon.eidas-sign-poc.audit.directory=" + dataDirectory.resolve("audit"))
+            .redirectErrorStream(true)
+            .start();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                Matcher matcher = STARTED.matcher(line);
+                if (matcher.find()) {
+                    return Double.parseDouble(matcher.group(2));
+                }
+            }
+            Assertions.fail("The application with profiles " + profiles + " did not start");
+            return 0;
+        } finally {
+            process.destroy();
+            process.waitFor(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static double median(List<Double> values) {
+        List<Double> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local certificate authority with OCSP, CRL and CA issuer (AIA) responders on a loopback HTTP server. The certificates
+ * it issues point to these responders, so a verification that trusts the CA checks their revocation status without
+ * going to the network. Every certificate is reported good. Like a real CA, each responder can be given a latency with
+ * jitter and a failure rate, and the CRL can be made large with revoked entries of other certificates
+ */
+public class StubRevocationResponders implements AutoCloseable {
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+
+    private final KeyPair caKeyPair;
+    private final X509Certificate caCertificate;
+    private final byte[] caCertificateDer;
+    private volatile byte[] crl;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicLong serialNumbers = new AtomicLong(System.currentTimeMillis());
+    private final AtomicInteger ocspRequests = new AtomicInteger();
+    private final AtomicInteger crlRequests = new AtomicInteger();
+    private final AtomicInteger caIssuerRequests = new AtomicInteger();
+    private final Map<Responder, Behaviour> behaviours = new ConcurrentHashMap<>();
+
+    public enum Responder {
+        OCSP, CRL, CA_ISSUER
+    }
+
+    public enum Failure {
+        /**
+         * An HTTP 500 response
+         */
+        ERROR,
+        /**
+         * The connection is closed without a response
+         */
+        RESET
+    }
+
+    /**
+     * How a responder answers: after a latency with uniform jitter, and with a failure for a fraction of the requests
+     */
+    public static final class Behaviour {
+        public static final Behaviour HEALTHY = new Behaviour(0, 0, 0, Failure.ERROR);
+
+        private final long latencyMillis;
+        private final long jitterMillis;
+        private final double failureRate;
+        private final Failure failure;
+
+        private Behaviour(long latencyMillis, long jitterMillis, double failureRate, Failure failure) {
+            this.latencyMillis = latencyMillis;
+            this.jitterMillis = jitterMillis;
+            this.failureRate = failureRate;
+            this.failure = failure;
+        }
+
+        public Behaviour withLatency(long latencyMillis, long jitterMillis) {
+            return new Behaviour(latencyMillis, jitterMillis, failureRate, failure);
+        }
+
+        public Behaviour withFailures(double failureRate, Failure failure) {
+            return new Behaviour(latencyMillis, jitterMillis, failureRate, failure);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d±%d ms, %.0f%% %s", latencyMillis, jitterMillis, failureRate * 100, failure);
+        }
+    }
+
+    public StubRevocationResponders() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        caKeyPair = generator.generateKeyPair();
+        X500Name caName = new X500Name("CN=Stub CA");
+        Instant now = Instant.now();
+        JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+        caCertificate = new JcaX509CertificateConverter().getCertificate(new JcaX509v3CertificateBuilder(caName,
+            BigInteger.valueOf(serialNumbers.incrementAndGet()), Date.from(now.minus(1, ChronoUnit.DAYS)),
+            Date.from(now.plus(365, ChronoUnit.DAYS)), caName, caKeyPair.getPublic())
+            .addExtension(Extension.basicConstraints, true, new BasicConstraints(true))
+            .addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign))
+            .addExtension(Extension.subjectKeyIdentifier, false, extensionUtils.createSubjectKeyIdentifier(caKeyPair.getPublic()))
+            .build(signer()));
+        caCertificateDer = caCertificate.getEncoded();
+        setRevokedEntries(0);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/ocsp", exchange -> serve(Responder.OCSP, ocspRequests, exchange, "application/ocsp-response",
+            () -> ocspResponse(exchange.getRequestBody().readAllBytes())));
+        server.createContext("/crl", exchange -> serve(Responder.CRL, crlRequests, exchange, "application/pkix-crl",
+            () -> crl));
+        server.createContext("/ca.crt", exchange -> serve(Responder.CA_ISSUER, caIssuerRequests, exchange,
+            "application/pkix-cert", () -> caCertificateDer));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return String.format("http://%s:%d", server.getAddress().getHostString(), server.getAddress().getPort());
+    }
+
+    public X509Certificate getCaCertificate() {
+        return caCertificate;
+    }
+
+    /**
+     * Writes the CA certificate as PEM, for sphereon.eidas-sign-poc.verify.trusted-certificates
+     */
+    public Path writeCaCertificate(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII); JcaPEMWriter pemWriter = new JcaPEMWriter(writer)) {
+            pemWriter.writeObject(caCertificate);
+        }
+        return file;
+    }
+
+    public void setBehaviour(Responder responder, Behaviour behaviour) {
+        behaviours.put(responder, behaviour);
+    }
+
+    /**
+     * Back to healthy responders and an empty CRL
+     */
+    public void reset() throws IOException {
+        behaviours.clear();
+        setRevokedEntries(0);
+    }
+
+    /**
+     * Replaces the CRL with one that revokes this many other certificates, about 40 bytes each
+     */
+    public void setRevokedEntries(int revokedEntries) throws IOException {
+        Instant now = Instant.now();
+        try {
+            JcaX509v2CRLBuilder builder = new JcaX509v2CRLBuilder(caCertificate, Date.from(now));
+            builder.setNextUpdate(Date.from(now.plus(7, ChronoUnit.DAYS)))
+                .addExtension(Extension.authorityKeyIdentifier, false, new JcaX509ExtensionUtils().createAuthorityKeyIdentifier(caCertificate))
+                .addExtension(Extension.cRLNumber, false, new CRLNumber(BigInteger.valueOf(now.toEpochMilli())));
+            Date revoked = Date.from(now.minus(1, ChronoUnit.HOURS));
+            for (int i = 0; i < revokedEntries; i++) {
+                // Below the serial numbers this CA issues
+                builder.addCRLEntry(BigInteger.valueOf(i + 1L), revoked, CRLReason.keyCompromise);
+            }
+            crl = builder.build(signer()).getEncoded();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Could not create a CRL", e);
+        }
+    }
+
+    /**
+     * Issues a signing certificate with its key and the CA certificate in a PKCS#12 file, like a certificate to import
+     *
+     * @return The base64 PKCS#12 file
+     */
+    public String issue(String keyAlgorithm, String password) throws Exception {
+        return issue(keyAlgorithm, password, true);
+    }
+
+    /**
+     * @param includeChain Whether the PKCS#12 file, and so the signatures, contain the CA certificate. Without it the
+     *                     verification fetches it from the CA issuer (AIA) responder
+     * @return The base64 PKCS#12 file
+     */
+    public String issue(String keyAlgorithm, String password, boolean includeChain) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(keyAlgorithm);
+        generator.initialize("EC".equals(keyAlgorithm) ? 256 : 2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        Instant now = Instant.now();
+        BigInteger serialNumber = BigInteger.valueOf(serialNumbers.incrementAndGet());
+        JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+        GeneralName crlUrl = new GeneralName(GeneralName.uniformResourceIdentifier, getBaseUrl() + "/crl");
+        X509Certificate certificate = new JcaX509CertificateConverter().getCertificate(new JcaX509v3CertificateBuilder(
+            X500Name.getInstance(caCertificate.getSubjectX500Principal().getEncoded()), serialNumber,
+            Date.from(now.minus(1, ChronoUnit.DAYS)), Date.from(now.plus(30, ChronoUnit.DAYS)),
+            new X500Name("CN=Stub signer " + serialNumber), keyPair.getPublic())
+            .addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.digitalSignature | KeyUsage.nonRepudiation))
+            .addExtension(Extension.authorityKeyIdentifier, false, extensionUtils.createAuthorityKeyIdentifier(caCertificate))
+            .addExtension(Extension.subjectKeyIdentifier, false, extensionUtils.createSubjectKeyIdentifier(keyPair.getPublic()))
+            .addExtension(Extension.authorityInfoAccess, false, new AuthorityInformationAccess(new AccessDescription[]{
+                new AccessDescription(AccessDescription.id_ad_ocsp,
+                    new GeneralName(GeneralName.uniformResourceIdentifier, getBaseUrl() + "/ocsp")),
+                new AccessDescription(AccessDescription.id_ad_caIssuers,
+                    new GeneralName(GeneralName.uniformResourceIdentifier, getBaseUrl() + "/ca.crt"))}))
+            .addExtension(Extension.cRLDistributionPoints, false, new CRLDistPoint(new DistributionPoint[]{
+                new DistributionPoint(new DistributionPointName(new GeneralNames(crlUrl)), null, null)}))
+            .build(signer()));
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("signer", keyPair.getPrivate(), password.toCharArray(), includeChain
+            ? new Certificate[]{certificate, caCertificate} : new Certificate[]{certificate});
+        ByteArrayOutputStream p12 = new ByteArrayOutputStream();
+        keyStore.store(p12, password.toCharArray());
+        return Base64.getEncoder().encodeToString(p12.toByteArray());
+    }
+
+    public int getOcspRequests() {
+        return ocspRequests.get();
+    }
+
+    public int getCrlRequests() {
+        return crlRequests.get();
+    }
+
+    public int getCaIssuerRequests() {
+        return caIssuerRequests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private byte[] ocspResponse(byte[] request) throws IOException {
+        try {
+            Date now = new Date();
+            JcaBasicOCSPRespBuilder builder = new JcaBasicOCSPRespBuilder(caKeyPair.getPublic(),
+                new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1));
+            for (Req req : new OCSPReq(request).getRequestList()) {
+                builder.addResponse(req.getCertID(), CertificateStatus.GOOD, now, Date.from(now.toInstant().plus(1, ChronoUnit.DAYS)), null);
+            }
+            BasicOCSPResp response = builder.build(signer(), new X509CertificateHolder[]{new JcaX509CertificateHolder(caCertificate)}, now);
+            return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, response).getEncoded();
+        } catch (Exception e) {
+            throw new IOException("Could not create an OCSP response", e);
+        }
+    }
+
+    private ContentSigner signer() throws IOException {
+        try {
+            return new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(caKeyPair.getPrivate());
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseBody {
+        byte[] get() throws IOException;
+    }
+
+    private void serve(Responder responder, AtomicInteger requests, HttpExchange exchange, String contentType,
+                       ResponseBody body) throws IOException {
+        requests.incrementAndGet();
+        Behaviour behaviour = behaviours.getOrDefault(responder, Behaviour.HEALTHY);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = behaviour.latencyMillis
+            + (behaviour.jitterMillis > 0 ? random.nextLong(-behaviour.jitterMillis, behaviour.jitterMillis + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.close();
+                return;
+            }
+        }
+        if (behaviour.failureRate > 0 && random.nextDouble() < behaviour.failureRate) {
+            if (behaviour.failure == Failure.ERROR) {
+                exchange.sendResponseHeaders(500, -1);
+            }
+            exchange.close();
+            return;
+        }
+        respond(exchange, contentType, body.get());
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.rest.RestException;
+import com.sphereon.ms.eidas.service.AdaptiveLimiter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestAdaptiveLimiter {
+
+    @Test
+    public void workOverTheLimitShouldBeShed() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("verify", 2, 1, 10);
+        AdaptiveLimiter.Permit first = limiter.acquire();
+        limiter.acquire();
+        Assertions.assertThrows(RestException.OverloadedException.class, limiter::acquire);
+        Assertions.assertEquals(1, limiter.getRejected());
+
+        first.release();
+        first.release();
+        Assertions.assertEquals(1, limiter.getInFlight());
+        limiter.acquire();
+    }
+
+    @Test
+    public void limitShouldGrowUnderStableLatencyAndStayWithinBounds() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("sign", 4, 2, 6);
+        for (int round = 0; round < 50; round++) {
+            List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < limiter.getLimit(); i++) {
+                permits.add(limiter.acquire());
+            }
+            permits.forEach(AdaptiveLimiter.Permit::complete);
+        }
+        Assertions.assertEquals(6, limiter.getLimit());
+        Assertions.assertEquals(0, limiter.getInFlight());
+    }
+}
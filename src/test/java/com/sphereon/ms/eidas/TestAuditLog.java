@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.api.model.audit.AuditEvent;
+import com.sphereon.ms.eidas.service.AuditLog;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestAuditLog {
+
+    @Test
+    public void fullQueueShouldDropAndFlushShouldBatch() throws InterruptedException {
+        List<List<AuditEvent>> batches = new ArrayList<>();
+        AuditLog auditLog = new AuditLog(events -> batches.add(new ArrayList<>(events)), 3, 2, 60_000, 0.0);
+        byte[] content = "Hello".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < 4; i++) {
+            auditLog.recordOperation(AuditEvent.Type.SIGN, "test-owner", "test-cert", content, 1_000_000, null);
+        }
+        Assertions.assertEquals(1, auditLog.getDropped());
+
+        auditLog.close();
+        Assertions.assertEquals(2, batches.size());
+        Assertions.assertEquals(2, batches.get(0).size());
+        Assertions.assertEquals(1, batches.get(1).size());
+        AuditEvent event = batches.get(0).get(0);
+        Assertions.assertEquals("GF+NsyJx/iX1Yab8k4suJkMG7DBO2lGAB9F2SCY4GWk=", event.getDigest());
+        Assertions.assertEquals(1000, event.getDurationMicros());
+        Assertions.assertEquals(AuditEvent.Outcome.SUCCESS, event.getOutcome());
+    }
+}
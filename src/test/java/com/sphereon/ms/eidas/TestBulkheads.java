@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.config.BulkheadProperties;
+import com.sphereon.ms.eidas.rest.RestException;
+import com.sphereon.ms.eidas.service.AdaptiveLimiter;
+import com.sphereon.ms.eidas.service.Bulkheads;
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.spi.client.http.DataLoader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+
+public class TestBulkheads {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch stall = new CountDownLatch(1);
+    private Bulkheads bulkheads;
+
+    @AfterEach
+    public void shutdown() {
+        stall.countDown();
+        bulkheads.shutdown();
+    }
+
+    @Test
+    public void fullBulkheadShouldRejectWithoutAffectingOthers() {
+        BulkheadProperties properties = new BulkheadProperties();
+        properties.setRevocation(new BulkheadProperties.Pool(1, 1));
+        bulkheads = new Bulkheads(properties, meterRegistry);
+
+        bulkheads.getRevocationExecutor().execute(this::awaitStall);
+        bulkheads.getRevocationExecutor().execute(this::awaitStall);
+        Assertions.assertThrows(RejectedExecutionException.class, () -> bulkheads.getRevocationExecutor().execute(this::awaitStall));
+        Assertions.assertEquals(1, meterRegistry.get("eidas.bulkhead.rejected").tag("name", Bulkheads.REVOCATION).counter().count());
+
+        // Signing has its own threads
+        Assertions.assertDoesNotThrow(() -> bulkheads.getSignExecutor().submit(() -> "signed").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void saturatedBulkheadShouldMakeTheLimiterReject() throws Exception {
+        BulkheadProperties properties = new BulkheadProperties();
+        properties.setSign(new BulkheadProperties.Pool(1, 10));
+        bulkheads = new Bulkheads(properties, meterRegistry);
+        AdaptiveLimiter limiter = new AdaptiveLimiter("sign", 2, 1, 2);
+
+        // One signature runs and one waits in the queue, both hold a permit
+        CompletableFuture<String> running = limiter.supplyAsync(this::stalledSignature, bulkheads.getSignExecutor());
+        CompletableFuture<String> queued = limiter.supplyAsync(this::stalledSignature, bulkheads.getSignExecutor());
+        Assertions.assertThrows(RestException.OverloadedException.class,
+            () -> limiter.supplyAsync(this::stalledSignature, bulkheads.getSignExecutor()));
+        Assertions.assertEquals(1, limiter.getRejected());
+        Assertions.assertEquals(0, meterRegistry.get("eidas.bulkhead.rejected").tag("name", Bulkheads.SIGN).counter().count());
+
+        stall.countDown();
+        Assertions.assertEquals("signed", running.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("signed", queued.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void fullBulkheadShouldReleaseThePermit() {
+        BulkheadProperties properties = new BulkheadProperties();
+        properties.setSign(new BulkheadProperties.Pool(1, 1));
+        bulkheads = new Bulkheads(properties, meterRegistry);
+        AdaptiveLimiter limiter = new AdaptiveLimiter("sign", 10, 1, 10);
+
+        limiter.supplyAsync(this::stalledSignature, bulkheads.getSignExecutor());
+        limiter.supplyAsync(this::stalledSignature, bulkheads.getSignExecutor());
+        Assertions.assertThrows(RejectedExecutionException.class,
+            () -> limiter.supplyAsync(this::stalledSignature, bulkheads.getSignExecutor()));
+        Assertions.assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void slowRevocationRequestShouldTimeOut() {
+        BulkheadProperties properties = new BulkheadProperties();
+        properties.setRevocationTimeoutMs(50);
+        bulkheads = new Bulkheads(properties, meterRegistry);
+        DataLoader slowLoader = Mockito.mock(DataLoader.class);
+        Mockito.when(slowLoader.get(anyString())).thenAnswer(invocation -> {
+            awaitStall();
+            return new byte[0];
+        });
+
+        Assertions.assertThrows(DSSException.class, () -> bulkheads.revocationDataLoader(slowLoader).get("http://ocsp.example.com"));
+    }
+
+    private String stalledSignature() {
+        awaitStall();
+        return "signed";
+    }
+
+    private void awaitStall() {
+        try {
+            stall.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
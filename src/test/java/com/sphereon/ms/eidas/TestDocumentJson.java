@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureRequest;
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureResponse;
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureVerifyRequest;
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureVerifyResponse;
+import com.sphereon.ms.eidas.rest.DocumentJson;
+import com.sphereon.ms.eidas.service.DocumentBuffer;
+import com.sphereon.ms.eidas.service.DocumentBuffers;
+import com.sphereon.ms.eidas.service.MemoryGovernor;
+import com.sphereon.ms.eidas.service.PemCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+
+public class TestDocumentJson {
+    private final Random random = new Random(42);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void largeContentShouldSpillToDisk() throws Exception {
+        byte[] content = bytes(100_000);
+        String json = "{\"password\":\"secret\",\"content\":\"" + Base64.getEncoder().encodeToString(content) + "\"}";
+
+        CadesSignatureRequest request = mapper(1024).readValue(json, CadesSignatureRequest.class);
+        DocumentBuffer buffer = request.getContent();
+        Assertions.assertTrue(buffer.isSpilled());
+        Assertions.assertEquals(content.length, buffer.size());
+        Assertions.assertArrayEquals(content, buffer.toByteArray());
+        Assertions.assertEquals("secret", request.getPassword());
+        Assertions.assertEquals(1, files());
+
+        buffer.close();
+        Assertions.assertEquals(0, files());
+    }
+
+    @Test
+    public void smallContentShouldStayOnTheHeap() throws Exception {
+        byte[] content = bytes(100);
+        CadesSignatureRequest request = mapper(1024).readValue(
+                mapper(1024).writeValueAsString(new CadesSignatureRequest(Base64.getEncoder().encodeToString(content), "secret")),
+                CadesSignatureRequest.class);
+        Assertions.assertFalse(request.getContent().isSpilled());
+        Assertions.assertArrayEquals(content, request.getContent().toByteArray());
+    }
+
+    @Test
+    public void pemSignatureShouldBeDecoded() throws Exception {
+        byte[] signature = bytes(50_000);
+        String pem = PemCodec.encode(signature);
+
+        CadesSignatureVerifyRequest request = mapper(1024).readValue(
+                mapper(1024).writeValueAsString(new CadesSignatureVerifyRequest(pem)), CadesSignatureVerifyRequest.class);
+        Assertions.assertTrue(request.getSignature().isSpilled());
+        Assertions.assertArrayEquals(signature, request.getSignature().toByteArray());
+        request.getSignature().close();
+
+        Assertions.assertThrows(JsonMappingException.class,
+                () -> mapper(1024).readValue("{\"signature\":\"-----BEGIN PKCS7-----\\nAB*D\\n\"}", CadesSignatureVerifyRequest.class));
+        Assertions.assertEquals(0, files());
+    }
+
+    @Test
+    public void pemSignatureTextShouldCountTowardsTheBudget() throws Exception {
+        byte[] signature = bytes(3 * 1024 * 1024);
+        String pem = PemCodec.encode(signature);
+        byte[] json = ("{\"signature\":\"" + pem.replace("\n", "\\n") + "\"}").getBytes(StandardCharsets.US_ASCII);
+        long textBytes = 2L * pem.length();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MemoryGovernor governor = new MemoryGovernor(textBytes + 1000, Long.MAX_VALUE, 0, meterRegistry);
+        ObjectMapper mapper = new ObjectMapper().registerModule(new DocumentJson.SignatureApiModule());
+        mapper.setConfig(mapper.getDeserializationConfig().withAttribute(DocumentBuffers.class,
+                new DocumentBuffers(64 * 1024 * 1024, directory.toString(), governor)));
+
+        // Creates the deserializers
+        mapper.readValue("{\"signature\":\"AAAA\"}", CadesSignatureVerifyRequest.class).getSignature().close();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        CadesSignatureVerifyRequest request = mapper.readValue(new ByteArrayInputStream(json), CadesSignatureVerifyRequest.class);
+        allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated;
+
+        // The signature spilled, as the parser's text buffer took the budget while it was decoded
+        Assertions.assertTrue(request.getSignature().isSpilled());
+        Assertions.assertEquals(1, meterRegistry.get("eidas.memory.spills").tag("reason", "budget").counter().count());
+        Assertions.assertEquals(0, governor.getInFlight());
+        // The text buffer, but no string copies of it
+        Assertions.assertTrue(allocated < textBytes * 3 / 2, "Allocated " + allocated + " bytes for " + textBytes + " bytes of text");
+        Assertions.assertArrayEquals(signature, request.getSignature().toByteArray());
+        request.getSignature().close();
+    }
+
+    @Test
+    public void responsesShouldKeepTheirJsonForm() throws Exception {
+        byte[] cms = bytes(10_000);
+        ObjectMapper mapper = mapper(1024);
+
+        String json = mapper.writeValueAsString(CadesSignatureResponse.ofCms(cms));
+        Assertions.assertEquals(PemCodec.encode(cms), mapper.readValue(json, CadesSignatureResponse.class).getSignature());
+        Assertions.assertEquals(json, mapper.writeValueAsString(new CadesSignatureResponse(PemCodec.encode(cms))));
+
+        String verified = mapper.writeValueAsString(new CadesSignatureVerifyResponse(true, cms, null));
+        Assertions.assertEquals(Base64.getEncoder().encodeToString(cms), mapper.readTree(verified).get("originalData").asText());
+    }
+
+    private ObjectMapper mapper(int spillThreshold) {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new DocumentJson.SignatureApiModule());
+        mapper.setConfig(mapper.getDeserializationConfig().withAttribute(DocumentBuffers.class,
+                new DocumentBuffers(spillThreshold, directory.toString())));
+        return mapper;
+    }
+
+    private long files() throws Exception {
+        try (var files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
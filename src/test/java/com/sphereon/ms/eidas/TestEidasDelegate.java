@@ -16,55 +16,106 @@
 
 package com.sphereon.ms.eidas;
 
-import com.sphereon.ms.auth.jwt.JWTClaimAccess;
-import com.sphereon.ms.auth.jwt.JWTContext;
 import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateBulkImportRequest;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateImportRequest;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateImportResult;
+import com.sphereon.ms.eidas.config.BulkheadProperties;
 import com.sphereon.ms.eidas.nosql.EidasCertificateRepository;
+import com.sphereon.ms.eidas.nosql.FileTenantDataKeyStore;
+import com.sphereon.ms.eidas.rest.RestException;
+import com.sphereon.ms.eidas.service.AuditLog;
+import com.sphereon.ms.eidas.service.Bulkheads;
+import com.sphereon.ms.eidas.service.ConcurrencyLimits;
 import com.sphereon.ms.eidas.service.EidasDelegate;
+import com.sphereon.ms.eidas.service.KeyEnvelopeService;
+import com.sphereon.ms.eidas.service.OwnerResolver;
+import com.sphereon.ms.eidas.service.PemCodec;
+import com.sphereon.ms.eidas.service.PhaseTimers;
+import com.sphereon.ms.eidas.service.SlowRequestRecorder;
+import com.sphereon.ms.eidas.service.UsageMeter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.asn1.cms.CMSObjectIdentifiers;
+import org.bouncycastle.asn1.cms.ContentInfo;
+import org.bouncycastle.asn1.cms.SignedData;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
+import javax.crypto.KeyGenerator;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
 import java.util.Base64;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 
 public class TestEidasDelegate {
+    static final String TEST_CERT_BASE64 = "MIIKUQIBAzCCChcGCSqGSIb3DQEHAaCCCggEggoEMIIKADCCBLcGCSqGSIb3DQEHBqCCBKgwggSkAgEAMIIEnQYJKoZIhvcNAQcBMBwGCiqGSIb3DQEMAQYwDgQIqvwATA5MDtICAggAgIIEcL8bUWhnofYR5707VHgY531HezU1htaAZiUiWRBFTKL0/mu/O8wgNTgojEReu8qi9faNawA3BhvaNCbpIZyvFvfLi6iALk7TEXjMPDXFdvXR2bjFO/MZlZbRTM0AN3ESbdEXyd2exo2eaR1IrbXdaP16JfXbE53XCBFQIWQzVVvdFkKdgnjvai4nDg4luQjVanvAZi2zFwdIozZLd2wP9dohOTtO6I/0QTc77wXkjwq3G+NfK3z+f/j2FCAs9S3Xu9iqKka6DRyGM6Na2GWEoLzPDqABxNKgHkhR+6lUN09ldxq8yeACXFJ2tysOz7g3EbPYPqr8i1LX5HkR4v7cMmTrpFSg1Vt/7hakvu1ul1ptAcZBb3jKGU1ZC72jmLjp1h0cGgGltk6tAAT0y68p9u05Rs8Fn8aXdOI6rTEinhrH7yaK9lz7BpQ2F5u0iwqoaLAMsATWWyiYrTf1xxrS+INE/pC/S6wj9rPYymurGI17TUvyl4SFXYt9TefETM91ZDO8UHWMn/YssNIMa9L1dBHRu8yUP5aB7NbnTcsIhDjOA90XpIKHF+NuKSBHWUnkByAvMxkwAK4M70J0APRpT8WGR351wBqwxoxcJ1cpHMXDVMw8LilwPX1K/RoyBxCJ/W7mAQMpxYj8dH+YuIsN9/+lzRCAaX7q9Ck6aG5Ty0R9Q1eDx3Qjf6qnB5gpCgG8/nOKPd6+jxslQpvLbEoG4fitz2/jafgKObB/sjmFQWvN14tpYTBZmU7KUodXOIhujKvbgRE6gwkrMa3nR8+qR7EyVOl06WElERIl7PSeVUnb2wSY69izJucJinc2zYk83fG8MYhPLxq5JqBcBDc3i7dTs+/HRTK6bnyps+8lGTpMqTezhxOgSPso5pfe2PcmrFAXMJ4/4vNbV0KM5W1dsajqKbUWOhQkIz4yTSp61nLI71OMClghIuRdx83eTozvsfeCCim72MJob32SCsSrHS34brUwsun3Y17aSXVHfdh8PyrEXNvrjsIylQGVakGFZzN63ahV51wiurYCbX0oaiUZs9cxF9uFY6DSEGTKbfWYKc/BQv5oLXHjZC8BA79TjCWsBe6kmf5o+pOX0rFiuT/DnxLjKO5vi32zh9ZySNufapRjR8cinSJTK4W5zYZZ8tC3xwndTygh4A08JTQKGxaBtV9l0eyWkcTl2F8+fqcSjhfg7h6j7VSzs8d6pbh9wOMTxySTzkXa/XoFW9ONs7TCKXtoyjWSsamJHulU9P4Bat1BFRhpefGn2EHIp3y9ObIxsT2Zk9VAdIh7SCWoNlWZGSBh5khNh4i9JYAM80+eqp/cwt/hcmPUSkrWJFLyg3sJkBXr7LPFESgUgbuWnTSVrJEXj6s49lfuk2RRygJb2e91xdYjtokxu1RH17uHFgu6vGRKqiRybIt3UdOEUonAI3K0za/dy/s+x1anvWrLTIdXEdcT7HH7RHZIHwOHUN9GmAKHgccA+U9/TUCSI4iCCFHkjJz8UihKwuRAplOZMIIFQQYJKoZIhvcNAQcBoIIFMgSCBS4wggUqMIIFJgYLKoZIhvcNAQwKAQKgggTuMIIE6jAcBgoqhkiG9w0BDAEDMA4ECPWUS2jfOXbYAgIIAASCBMhXPxKSDxKVRsfTtMh/ShNz5ySTgHGAk7TJAMri6TesEbPkJEzthtNmMuD8EpIAZlPRWfAmxtFsIOqGTsqpH4cOjT8BBfCrYRvhs46FfqDCabyVaqE3cRfnn3/llomSx2atpy8bNg75rX3Yazx2YTzrJdbQeyoDbNV9XBoUp2TWHhuO3ZbwZSA80rhPMtCfwdIWjMHQYjfjk9pqnEINaorkCf+sMsfobb4Ifz7vUIWBC+7MYEZbswEuQnJTQpeRejyP7Y2KupjHP/z64lSrENL80N22ickXKVEJGOYZqELRoiGI+yuCS39hNXucZUpEqimVNcBnSNOtywg6hC+KE+l+IAbLLQu+/YGVMU12uPWFzY5F1VjqjSaqWoq3BO/invCp9c/e78cPuh0HM2NJCwDA3IFFs05JjhMUM6ZQLVgsFbgz0zaf077JJHBmXE4KziexhlGwmNhhHYYYopUpiXXmuhYNV92cOrpywkpv0dfghHTf3D/XS4bUqaiYwwj3cJ3ClOZDnX0A4xfWpzifWPVPtVnvWtv2mGuzi0fzqV+SppNx0CnVhLav10EJ65WqBe2fhQMH+XQGBzby329rvR+xY2ZNJrcyOs0UyorLKpNcRyL5ryWVBqfTpNunL9tphuX5QPRJauUbLwNcQA4d7m/YxnsisX86lFwU4q/UbK3X56wQQV5jiLWOZZSf4rY5OjblxlPLy0Ez306y1avA0SxbWKsWHaW4ULbJsshABSIhIYsh1CoNo2TNpAxmsP3PRi69ySQJmwUyQ3KunYJHh/k/xJ2Bu8Rr6WTRUxCCn9q3pJMXF9PfJ83koHx+jBK6vZfR5y57sI28Ole0x1H0hzdH88K9N6jsn7K6ySXh3tOKxG3RrfJsDi7xGsKzjUW8M14DpYjaFESig8zhO9z//xk0fRddLZOChYj7+dFtCwK/fETIvJu6zdCyCNRP4Fz9sadZ53EKI1Mr5XYaqA5/AH3OXYHPvo/UlS78dphYLyyjby+Awd70tHwKc4Pumvqt23WrrwYF2p9z4MUNzAepL4jhgNIW/b4UNwWd4hsK0ar5xDac0qIGFNls28Ssk0bGp5g/5FQ7FvUM+X7beVOuRavZXkzPbjNaUPT4Kx/WOjK4mwTHvBZxO2o1HngLzLYLn9m5cXPEc0LiL9SS4W7JgLU02rvEG0TvWCmf4tXBQ04oA0K4dENZFBWlX22vgZIcKbDbOFiZv508BFtdKULSQQCujaWSUjrNUGjEmpQTmEw7Gj/L8sVm09UDkJoCjTNO9ihR7yd7XB0QA2LcYFdjHQifuw7Ml65CXet/eAgEm5bBX04d2e6Eczva3T5PWghjmQQnO1+mK8kMOaQa+9+0VZQBVb5mC/dUOI5tHVh/tMxvSWrjBFmBfq139oAHrXxqzVyu1+Q7p6U66RTh1+ASWPQGhYXAzohIgotJ4Mu+rDE9YF6CnUKuKya8cGDXPN1S1e3UqzvOLyCyfQQgs6JYGj7w0YNBfSGxXcHtH35z2qkXBTfzkTew5XCNXDGMCujYp/h+DqXXEO0vviyDZRRkzAZyPZFz0EJTgJZQ5OMGFCLwEtwXfssvWueLjfYlvu1jIgv6rLQDyVgqFcW4hNuj+ZWDahkMT2Rzh4ExJTAjBgkqhkiG9w0BCRUxFgQUPb8IxOYP2PwKSQJ5I1iMQNwMmAUwMTAhMAkGBSsOAwIaBQAEFPDUUJgnw/mLEVpGmg61OJOOvBiIBAhfMy346q3u3AICCAA=";
 
     @Mock
     EidasCertificateRepository eidasCertificateRepository;
 
     @Mock
-    JWTContext jwtContext;
+    OwnerResolver ownerResolver;
+
+    @Mock
+    UsageMeter usageMeter;
+
+    @Mock
+    AuditLog auditLog;
+
+    @Spy
+    ConcurrencyLimits concurrencyLimits = new ConcurrencyLimits(4, 1, 8, 4, 1, 8);
+
+    @Spy
+    Bulkheads bulkheads = new Bulkheads(new BulkheadProperties(), new SimpleMeterRegistry());
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    PhaseTimers phaseTimers = new PhaseTimers(meterRegistry, OpenTelemetry.noop().getTracer("test"));
+
+    @Mock
+    SlowRequestRecorder slowRequestRecorder;
 
     @InjectMocks
     EidasDelegate eidasDelegate;
 
     private final String testCertName = "test-cert";
 
+    private String testCertBase64;
+
     @BeforeEach
     public void init() {
         MockitoAnnotations.initMocks(this);
-        String testCertBase64 = "MIIKUQIBAzCCChcGCSqGSIb3DQEHAaCCCggEggoEMIIKADCCBLcGCSqGSIb3DQEHBqCCBKgwggSkAgEAMIIEnQYJKoZIhvcNAQcBMBwGCiqGSIb3DQEMAQYwDgQIqvwATA5MDtICAggAgIIEcL8bUWhnofYR5707VHgY531HezU1htaAZiUiWRBFTKL0/mu/O8wgNTgojEReu8qi9faNawA3BhvaNCbpIZyvFvfLi6iALk7TEXjMPDXFdvXR2bjFO/MZlZbRTM0AN3ESbdEXyd2exo2eaR1IrbXdaP16JfXbE53XCBFQIWQzVVvdFkKdgnjvai4nDg4luQjVanvAZi2zFwdIozZLd2wP9dohOTtO6I/0QTc77wXkjwq3G+NfK3z+f/j2FCAs9S3Xu9iqKka6DRyGM6Na2GWEoLzPDqABxNKgHkhR+6lUN09ldxq8yeACXFJ2tysOz7g3EbPYPqr8i1LX5HkR4v7cMmTrpFSg1Vt/7hakvu1ul1ptAcZBb3jKGU1ZC72jmLjp1h0cGgGltk6tAAT0y68p9u05Rs8Fn8aXdOI6rTEinhrH7yaK9lz7BpQ2F5u0iwqoaLAMsATWWyiYrTf1xxrS+INE/pC/S6wj9rPYymurGI17TUvyl4SFXYt9TefETM91ZDO8UHWMn/YssNIMa9L1dBHRu8yUP5aB7NbnTcsIhDjOA90XpIKHF+NuKSBHWUnkByAvMxkwAK4M70J0APRpT8WGR351wBqwxoxcJ1cpHMXDVMw8LilwPX1K/RoyBxCJ/W7mAQMpxYj8dH+YuIsN9/+lzRCAaX7q9Ck6aG5Ty0R9Q1eDx3Qjf6qnB5gpCgG8/nOKPd6+jxslQpvLbEoG4fitz2/jafgKObB/sjmFQWvN14tpYTBZmU7KUodXOIhujKvbgRE6gwkrMa3nR8+qR7EyVOl06WElERIl7PSeVUnb2wSY69izJucJinc2zYk83fG8MYhPLxq5JqBcBDc3i7dTs+/HRTK6bnyps+8lGTpMqTezhxOgSPso5pfe2PcmrFAXMJ4/4vNbV0KM5W1dsajqKbUWOhQkIz4yTSp61nLI71OMClghIuRdx83eTozvsfeCCim72MJob32SCsSrHS34brUwsun3Y17aSXVHfdh8PyrEXNvrjsIylQGVakGFZzN63ahV51wiurYCbX0oaiUZs9cxF9uFY6DSEGTKbfWYKc/BQv5oLXHjZC8BA79TjCWsBe6kmf5o+pOX0rFiuT/DnxLjKO5vi32zh9ZySNufapRjR8cinSJTK4W5zYZZ8tC3xwndTygh4A08JTQKGxaBtV9l0eyWkcTl2F8+fqcSjhfg7h6j7VSzs8d6pbh9wOMTxySTzkXa/XoFW9ONs7TCKXtoyjWSsamJHulU9P4Bat1BFRhpefGn2EHIp3y9ObIxsT2Zk9VAdIh7SCWoNlWZGSBh5khNh4i9JYAM80+eqp/cwt/hcmPUSkrWJFLyg3sJkBXr7LPFESgUgbuWnTSVrJEXj6s49lfuk2RRygJb2e91xdYjtokxu1RH17uHFgu6vGRKqiRybIt3UdOEUonAI3K0za/dy/s+x1anvWrLTIdXEdcT7HH7RHZIHwOHUN9GmAKHgccA+U9/TUCSI4iCCFHkjJz8UihKwuRAplOZMIIFQQYJKoZIhvcNAQcBoIIFMgSCBS4wggUqMIIFJgYLKoZIhvcNAQwKAQKgggTuMIIE6jAcBgoqhkiG9w0BDAEDMA4ECPWUS2jfOXbYAgIIAASCBMhXPxKSDxKVRsfTtMh/ShNz5ySTgHGAk7TJAMri6TesEbPkJEzthtNmMuD8EpIAZlPRWfAmxtFsIOqGTsqpH4cOjT8BBfCrYRvhs46FfqDCabyVaqE3cRfnn3/llomSx2atpy8bNg75rX3Yazx2YTzrJdbQeyoDbNV9XBoUp2TWHhuO3ZbwZSA80rhPMtCfwdIWjMHQYjfjk9pqnEINaorkCf+sMsfobb4Ifz7vUIWBC+7MYEZbswEuQnJTQpeRejyP7Y2KupjHP/z64lSrENL80N22ickXKVEJGOYZqELRoiGI+yuCS39hNXucZUpEqimVNcBnSNOtywg6hC+KE+l+IAbLLQu+/YGVMU12uPWFzY5F1VjqjSaqWoq3BO/invCp9c/e78cPuh0HM2NJCwDA3IFFs05JjhMUM6ZQLVgsFbgz0zaf077JJHBmXE4KziexhlGwmNhhHYYYopUpiXXmuhYNV92cOrpywkpv0dfghHTf3D/XS4bUqaiYwwj3cJ3ClOZDnX0A4xfWpzifWPVPtVnvWtv2mGuzi0fzqV+SppNx0CnVhLav10EJ65WqBe2fhQMH+XQGBzby329rvR+xY2ZNJrcyOs0UyorLKpNcRyL5ryWVBqfTpNunL9tphuX5QPRJauUbLwNcQA4d7m/YxnsisX86lFwU4q/UbK3X56wQQV5jiLWOZZSf4rY5OjblxlPLy0Ez306y1avA0SxbWKsWHaW4ULbJsshABSIhIYsh1CoNo2TNpAxmsP3PRi69ySQJmwUyQ3KunYJHh/k/xJ2Bu8Rr6WTRUxCCn9q3pJMXF9PfJ83koHx+jBK6vZfR5y57sI28Ole0x1H0hzdH88K9N6jsn7K6ySXh3tOKxG3RrfJsDi7xGsKzjUW8M14DpYjaFESig8zhO9z//xk0fRddLZOChYj7+dFtCwK/fETIvJu6zdCyCNRP4Fz9sadZ53EKI1Mr5XYaqA5/AH3OXYHPvo/UlS78dphYLyyjby+Awd70tHwKc4Pumvqt23WrrwYF2p9z4MUNzAepL4jhgNIW/b4UNwWd4hsK0ar5xDac0qIGFNls28Ssk0bGp5g/5FQ7FvUM+X7beVOuRavZXkzPbjNaUPT4Kx/WOjK4mwTHvBZxO2o1HngLzLYLn9m5cXPEc0LiL9SS4W7JgLU02rvEG0TvWCmf4tXBQ04oA0K4dENZFBWlX22vgZIcKbDbOFiZv508BFtdKULSQQCujaWSUjrNUGjEmpQTmEw7Gj/L8sVm09UDkJoCjTNO9ihR7yd7XB0QA2LcYFdjHQifuw7Ml65CXet/eAgEm5bBX04d2e6Eczva3T5PWghjmQQnO1+mK8kMOaQa+9+0VZQBVb5mC/dUOI5tHVh/tMxvSWrjBFmBfq139oAHrXxqzVyu1+Q7p6U66RTh1+ASWPQGhYXAzohIgotJ4Mu+rDE9YF6CnUKuKya8cGDXPN1S1e3UqzvOLyCyfQQgs6JYGj7w0YNBfSGxXcHtH35z2qkXBTfzkTew5XCNXDGMCujYp/h+DqXXEO0vviyDZRRkzAZyPZFz0EJTgJZQ5OMGFCLwEtwXfssvWueLjfYlvu1jIgv6rLQDyVgqFcW4hNuj+ZWDahkMT2Rzh4ExJTAjBgkqhkiG9w0BCRUxFgQUPb8IxOYP2PwKSQJ5I1iMQNwMmAUwMTAhMAkGBSsOAwIaBQAEFPDUUJgnw/mLEVpGmg61OJOOvBiIBAhfMy346q3u3AICCAA=";
+        testCertBase64 = TEST_CERT_BASE64;
         String testOwner = "test-owner";
         EidasCertificate eidasCertificate = new EidasCertificate(
                 testOwner,
             testCertName,
                 testCertBase64
         );
-        JWTClaimAccess jwtClaimAccess = Mockito.mock(JWTClaimAccess.class);
         Mockito.when(eidasCertificateRepository.findByOwnerAndName(any(), any()))
             .thenReturn(Optional.of(eidasCertificate));
-        Mockito.when(jwtClaimAccess.getSphereonIdentifier(any(), any()))
+        Mockito.when(ownerResolver.resolve())
             .thenReturn(testOwner);
-        Mockito.when(jwtContext.claimAccess())
-            .thenReturn(jwtClaimAccess);
     }
 
     @Test
@@ -82,4 +133,66 @@ public class TestEidasDelegate {
         var verified = eidasDelegate.verify(signature);
         System.out.println(verified);
     }
+
+    @Test
+    public void nonDataContentShouldBeReturnedAsDer() throws Exception {
+        String signature = eidasDelegate.signWithCertificate(testCertName, "testpassword",
+            Base64.getEncoder().encodeToString("Hello".getBytes(StandardCharsets.UTF_8)));
+        // PKCS#7 style content of another type is a structure instead of an OCTET STRING
+        DERSequence content = new DERSequence(new DERUTF8String("Hello"));
+        String withNonDataContent = PemCodec.encode(replaceContent(PemCodec.decode(signature),
+            new ContentInfo(PKCSObjectIdentifiers.id_ct_TSTInfo, content)));
+
+        var response = eidasDelegate.verify(withNonDataContent);
+        Assertions.assertFalse(response.isVerified());
+        Assertions.assertArrayEquals(content.getEncoded(ASN1Encoding.DER), response.getOriginalData());
+    }
+
+    @Test
+    public void bulkImportShouldReportPerCertificate() {
+        Mockito.when(eidasCertificateRepository.insertAll(anyList()))
+            .thenReturn(List.of(EidasCertificateImportResult.imported("first"), EidasCertificateImportResult.duplicate("second")));
+        var response = eidasDelegate.importEidasCertificates(new EidasCertificateBulkImportRequest(List.of(
+            new EidasCertificateImportRequest("first", testCertBase64),
+            new EidasCertificateImportRequest("invalid", "bm90IGEgcGtjczEy"),
+            new EidasCertificateImportRequest("second", testCertBase64))));
+        Assertions.assertEquals(1, response.getImported());
+        Assertions.assertEquals(2, response.getRejected());
+        Assertions.assertEquals(EidasCertificateImportResult.Status.IMPORTED, response.getResults().get(0).getStatus());
+        Assertions.assertEquals(EidasCertificateImportResult.Status.INVALID, response.getResults().get(1).getStatus());
+        Assertions.assertEquals(EidasCertificateImportResult.Status.DUPLICATE, response.getResults().get(2).getStatus());
+    }
+
+    @Test
+    public void envelopeSignatureShouldPass(@TempDir Path tempDir) throws Exception {
+        Path keystorePath = tempDir.resolve("master.p12");
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(256);
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setEntry("eidas-master", new KeyStore.SecretKeyEntry(keyGenerator.generateKey()),
+            new KeyStore.PasswordProtection("master".toCharArray()));
+        try (OutputStream out = Files.newOutputStream(keystorePath)) {
+            keyStore.store(out, "master".toCharArray());
+        }
+        KeyEnvelopeService keyEnvelopeService = new KeyEnvelopeService(new FileTenantDataKeyStore(tempDir.resolve("datakeys")),
+            true, keystorePath.toString(), "PKCS12", "master", "eidas-master", "");
+        EidasDelegate envelopeDelegate = new EidasDelegate(ownerResolver, eidasCertificateRepository, keyEnvelopeService, usageMeter, auditLog, concurrencyLimits, bulkheads, phaseTimers, slowRequestRecorder);
+
+        EidasCertificate certificate = envelopeDelegate.prepareCertificate("test-owner",
+            new EidasCertificateImportRequest(testCertName, testCertBase64, "testpassword", true));
+        Assertions.assertNotNull(certificate.getKeyEnvelope());
+        String content = Base64.getEncoder().encodeToString("Hello".getBytes(StandardCharsets.UTF_8));
+        String signature = envelopeDelegate.signWithCertificate(certificate, "testpassword", content);
+        Assertions.assertTrue(envelopeDelegate.verify(signature).isVerified());
+        Assertions.assertThrows(RestException.InvalidCertificateException.class,
+            () -> envelopeDelegate.signWithCertificate(certificate, "wrongpassword", content));
+    }
+
+    private static byte[] replaceContent(byte[] cms, ContentInfo encapContent) throws Exception {
+        SignedData signedData = SignedData.getInstance(ContentInfo.getInstance(cms).getContent());
+        return new ContentInfo(CMSObjectIdentifiers.signedData, new SignedData(signedData.getDigestAlgorithms(),
+            encapContent, signedData.getCertificates(), signedData.getCRLs(), signedData.getSignerInfos()))
+            .getEncoded(ASN1Encoding.DER);
+    }
 }
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateImportResult;
+import com.sphereon.ms.eidas.nosql.EidasCertificateFilter;
+import com.sphereon.ms.eidas.nosql.FileEidasCertificateRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+public class TestFileEidasCertificateRepository {
+
+    @TempDir
+    Path storeDir;
+
+    @Test
+    public void certificatesShouldSurviveReopen() throws Exception {
+        try (var repository = new FileEidasCertificateRepository(storeDir, true, 0.5, 1024 * 1024)) {
+            repository.save(new EidasCertificate("owner", "a", "YWFh"));
+            repository.save(new EidasCertificate("owner", "b", "YmJi", "CN=b", "CN=issuer", "RSA", Instant.ofEpochSecond(1000)));
+            Assertions.assertThrows(DuplicateKeyException.class, () -> repository.save(new EidasCertificate("owner", "a", "eHh4")));
+        }
+        try (var repository = new FileEidasCertificateRepository(storeDir, true, 0.5, 1024 * 1024)) {
+            Assertions.assertEquals(2, repository.count());
+            Assertions.assertEquals("YWFh", repository.findByOwnerAndName("owner", "a").orElseThrow().getBase64CertificateString());
+            Assertions.assertEquals("CN=issuer", repository.findByOwnerAndName("owner", "b").orElseThrow().getIssuer());
+            Assertions.assertTrue(repository.findByOwnerAndName("other", "a").isEmpty());
+        }
+    }
+
+    @Test
+    public void tornWriteShouldBeTruncatedOnRecovery() throws Exception {
+        try (var repository = new FileEidasCertificateRepository(storeDir, true, 0.5, 1024 * 1024)) {
+            repository.save(new EidasCertificate("owner", "a", "YWFh"));
+        }
+        Path log = storeDir.resolve("certificates.log");
+        long goodSize = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            // A header announcing more bytes than were written, as left behind by a crash during an append
+            channel.write(ByteBuffer.allocate(12).putInt(100).putInt(42).putInt(7).flip());
+        }
+        try (var repository = new FileEidasCertificateRepository(storeDir, true, 0.5, 1024 * 1024)) {
+            Assertions.assertEquals(1, repository.count());
+            Assertions.assertEquals(goodSize, Files.size(log));
+            repository.save(new EidasCertificate("owner", "b", "YmJi"));
+        }
+        try (var repository = new FileEidasCertificateRepository(storeDir, true, 0.5, 1024 * 1024)) {
+            Assertions.assertEquals(2, repository.count());
+        }
+    }
+
+    @Test
+    public void failedAppendShouldNotTearLaterRecords() throws Exception {
+        try (var repository = new FailingRepository(storeDir)) {
+            repository.save(new EidasCertificate("owner", "a", "YWFh"));
+            long goodSize = Files.size(storeDir.resolve("certificates.log"));
+            // The disk fills up after part of the record was written
+            repository.channel.failAfterBytes = 10;
+            Assertions.assertThrows(DataAccessResourceFailureException.class,
+                () -> repository.save(new EidasCertificate("owner", "b", "YmJi")));
+            Assertions.assertEquals(goodSize, Files.size(storeDir.resolve("certificates.log")));
+            Assertions.assertTrue(repository.findByOwnerAndName("owner", "b").isEmpty());
+
+            repository.save(new EidasCertificate("owner", "c", "Y2Nj"));
+        }
+        try (var repository = new FileEidasCertificateRepository(storeDir, true, 0.5, 1024 * 1024)) {
+            Assertions.assertEquals(2, repository.count());
+            Assertions.assertEquals("Y2Nj", repository.findByOwnerAndName("owner", "c").orElseThrow().getBase64CertificateString());
+        }
+    }
+
+    @Test
+    public void deletesShouldCompactTheLog() throws Exception {
+        try (var repository = new FileEidasCertificateRepository(storeDir, false, 0.5, 0)) {
+            List<EidasCertificateImportResult> results = repository.insertAll(List.of(
+                new EidasCertificate("owner", "a", "YWFh"),
+                new EidasCertificate("owner", "b", "YmJi"),
+                new EidasCertificate("owner", "a", "eHh4")));
+            Assertions.assertEquals(EidasCertificateImportResult.Status.DUPLICATE, results.get(2).getStatus());
+            long sizeBefore = Files.size(storeDir.resolve("certificates.log"));
+            repository.delete(new EidasCertificate("owner", "a", null));
+            Assertions.assertTrue(Files.size(storeDir.resolve("certificates.log")) < sizeBefore);
+            Assertions.assertEquals("YmJi", repository.findByOwnerAndName("owner", "b").orElseThrow().getBase64CertificateString());
+        }
+        try (var repository = new FileEidasCertificateRepository(storeDir, false, 0.5, 0)) {
+            Assertions.assertEquals(1, repository.count());
+            var page = repository.findPage("owner", new EidasCertificateFilter(null, null, null, null), null, 10);
+            Assertions.assertEquals(1, page.size());
+            Assertions.assertEquals("b", page.get(0).getName());
+        }
+    }
+
+    @Test
+    public void failedCompactionShouldKeepTheStoreUsable() throws Exception {
+        try (var repository = new FileEidasCertificateRepository(storeDir, false, 0.1, 0)) {
+            repository.insertAll(List.of(
+                new EidasCertificate("owner", "a", "YWFh"),
+                new EidasCertificate("owner", "b", "YmJi"),
+                new EidasCertificate("owner", "c", "Y2Nj")));
+            // A compaction file that cannot be replaced
+            Path blocker = Files.createDirectories(storeDir.resolve("certificates.log.compact"));
+            Files.createFile(blocker.resolve("file"));
+            long sizeBefore = Files.size(storeDir.resolve("certificates.log"));
+
+            repository.delete(new EidasCertificate("owner", "a", null));
+            Assertions.assertTrue(Files.size(storeDir.resolve("certificates.log")) > sizeBefore);
+            Assertions.assertEquals("YmJi", repository.findByOwnerAndName("owner", "b").orElseThrow().getBase64CertificateString());
+            Assertions.assertEquals(2, repository.count());
+
+            Files.delete(blocker.resolve("file"));
+            Files.delete(blocker);
+            repository.delete(new EidasCertificate("owner", "c", null));
+            Assertions.assertTrue(Files.size(storeDir.resolve("certificates.log")) < sizeBefore);
+            Assertions.assertEquals("YmJi", repository.findByOwnerAndName("owner", "b").orElseThrow().getBase64CertificateString());
+        }
+        try (var repository = new FileEidasCertificateRepository(storeDir, false, 0.1, 0)) {
+            Assertions.assertEquals(1, repository.count());
+            Assertions.assertTrue(Files.notExists(storeDir.resolve("certificates.log.compact")));
+        }
+    }
+
+    private static class FailingRepository extends FileEidasCertificateRepository {
+        private FailingChannel channel;
+
+        private FailingRepository(Path directory) {
+            super(directory, true, 0.5, 1024 * 1024);
+        }
+
+        @Override
+        protected FileChannel openLog(Path file, OpenOption... options) throws IOException {
+            channel = new FailingChannel(FileChannel.open(file, options));
+            return channel;
+        }
+    }
+
+    /**
+     * Writes only part of the next positional write and then fails, like a full disk
+     */
+    private static class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        private int failAfterBytes = -1;
+
+        private FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            if (failAfterBytes < 0) {
+                return delegate.write(src, position);
+            }
+            ByteBuffer part = src.duplicate();
+            part.limit(part.position() + Math.min(failAfterBytes, part.remaining()));
+            failAfterBytes = -1;
+            delegate.write(part, position);
+            throw new IOException("No space left on device");
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureResponse;
+import com.sphereon.ms.eidas.api.model.signature.IdempotentResponse;
+import com.sphereon.ms.eidas.nosql.IdempotencyStore;
+import com.sphereon.ms.eidas.rest.RestException;
+import com.sphereon.ms.eidas.service.DocumentBuffer;
+import com.sphereon.ms.eidas.service.IdempotencyCache;
+import com.sphereon.ms.eidas.service.MemoryGovernor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestIdempotencyCache {
+    private final Map<String, IdempotentResponse> stored = new ConcurrentHashMap<>();
+    private final AtomicInteger signatures = new AtomicInteger();
+    private final MemoryGovernor memoryGovernor = new MemoryGovernor(10_000, 1000, 0, new SimpleMeterRegistry());
+
+    @Test
+    public void concurrentDuplicateShouldWaitForFirstSignature() throws Exception {
+        IdempotencyCache cache = cache(100);
+        CompletableFuture<CadesSignatureResponse> pending = new CompletableFuture<>();
+
+        CompletableFuture<CadesSignatureResponse> first = cache.execute("owner", "cert", "key-1", "content", () -> {
+            signatures.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<CadesSignatureResponse> duplicate = cache.execute("owner", "cert", "key-1", "content", this::sign);
+        Assertions.assertFalse(duplicate.isDone());
+
+        pending.complete(new CadesSignatureResponse("signature-1"));
+        Assertions.assertEquals("signature-1", first.get().getSignature());
+        Assertions.assertEquals("signature-1", duplicate.get().getSignature());
+        Assertions.assertEquals(1, signatures.get());
+        Assertions.assertEquals(1, stored.size());
+
+        // The key is scoped to the certificate
+        Assertions.assertEquals("signature-2", cache.execute("owner", "other", "key-1", "content", this::sign).get().getSignature());
+    }
+
+    @Test
+    public void retryOnOtherNodeShouldUseStoredResponse() throws Exception {
+        cache(100).execute("owner", "cert", "key-1", "content", this::sign).get();
+
+        IdempotencyCache otherNode = cache(100);
+        Assertions.assertEquals("signature-1", otherNode.execute("owner", "cert", "key-1", "content", this::sign).get().getSignature());
+        Assertions.assertEquals(1, signatures.get());
+        Assertions.assertThrows(RestException.InvalidRequestException.class,
+            () -> otherNode.execute("owner", "cert", "key-1", "other content", this::sign));
+    }
+
+    @Test
+    public void decodedContentShouldMatchBase64Content() throws Exception {
+        byte[] content = "Hello".getBytes(StandardCharsets.UTF_8);
+        cache(100).execute("owner", "cert", "key-1",
+            Base64.getEncoder().encodeToString(content), this::sign).get();
+
+        // A node that decodes requests while reading them finds the response stored for the base64 content
+        IdempotencyCache otherNode = cache(100);
+        Assertions.assertEquals("signature-1", otherNode.execute("owner", "cert", "key-1", DocumentBuffer.of(content),
+            this::sign).get().getSignature());
+        Assertions.assertEquals(1, signatures.get());
+    }
+
+    @Test
+    public void failedSignatureShouldNotBeRemembered() throws Exception {
+        IdempotencyCache cache = cache(100);
+        CompletableFuture<CadesSignatureResponse> failed = cache.execute("owner", "cert", "key-1", "content",
+            () -> CompletableFuture.failedFuture(new RestException.InvalidSignatureException("Could not sign")));
+        ExecutionException error = Assertions.assertThrows(ExecutionException.class, failed::get);
+        Assertions.assertTrue(error.getCause() instanceof RestException.InvalidSignatureException);
+
+        Assertions.assertEquals("signature-1", cache.execute("owner", "cert", "key-1", "content", this::sign).get().getSignature());
+        Assertions.assertTrue(cache.execute("owner", "cert", null, "content", this::sign).isDone());
+        Assertions.assertEquals(2, signatures.get());
+    }
+
+    @Test
+    public void completedResponsesShouldBeEvictedOverTheMaximum() throws Exception {
+        IdempotencyCache cache = cache(2);
+        for (int i = 1; i <= 5; i++) {
+            cache.execute("owner", "cert", "key-" + i, "content", this::sign).get();
+        }
+        Assertions.assertEquals(2, cache.size());
+
+        // Signatures in progress are never evicted
+        CompletableFuture<CadesSignatureResponse> pending = new CompletableFuture<>();
+        CompletableFuture<CadesSignatureResponse> inProgress = cache.execute("owner", "cert", "key-6", "content", () -> pending);
+        cache.execute("owner", "cert", "key-7", "content", this::sign).get();
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertFalse(cache.execute("owner", "cert", "key-6", "content", this::sign).isDone());
+        pending.complete(new CadesSignatureResponse("signature-pending"));
+        Assertions.assertEquals("signature-pending", inProgress.get().getSignature());
+        Assertions.assertEquals(2, cache.size());
+
+        // Evicted responses are found in the shared store
+        Assertions.assertEquals("signature-1", cache.execute("owner", "cert", "key-1", "content", this::sign).get().getSignature());
+        Assertions.assertEquals(6, signatures.get());
+    }
+
+    @Test
+    public void completedResponsesShouldBeEvictedOverTheByteBudget() throws Exception {
+        // "signature-n" takes 22 bytes on the heap
+        IdempotencyCache cache = new IdempotencyCache(storeProvider(), memoryGovernor, Runnable::run, 60, 100, 50, 1000);
+        for (int i = 1; i <= 3; i++) {
+            cache.execute("owner", "cert", "key-" + i, "content", this::sign).get();
+        }
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(44, cache.getBytes());
+        Assertions.assertEquals(44, memoryGovernor.getInFlight());
+
+        // A response over the budget is returned, but only kept in the shared store
+        CompletableFuture<CadesSignatureResponse> large = cache.execute("owner", "cert", "key-large", "content",
+            () -> CompletableFuture.completedFuture(new CadesSignatureResponse("x".repeat(100))));
+        Assertions.assertEquals(100, large.get().getSignature().length());
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(4, stored.size());
+
+        // Expired responses release their bytes
+        IdempotencyCache expiring = new IdempotencyCache(storeProvider(), memoryGovernor, Runnable::run, 0, 100, 50, 1000);
+        expiring.execute("owner", "cert", "key-expiring", "content", this::sign).get();
+        Assertions.assertEquals(66, memoryGovernor.getInFlight());
+        expiring.purgeExpired();
+        Assertions.assertEquals(0, expiring.size());
+        Assertions.assertEquals(0, expiring.getBytes());
+        Assertions.assertEquals(44, memoryGovernor.getInFlight());
+    }
+
+    @Test
+    public void responsesOverTheStoredMaximumShouldNotBeStored() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(storeProvider(), memoryGovernor, Runnable::run, 60, 100, 1000, 50);
+        cache.execute("owner", "cert", "key-1", "content", this::sign).get();
+        Assertions.assertEquals(1, stored.size());
+
+        cache.execute("owner", "cert", "key-2", "content",
+            () -> CompletableFuture.completedFuture(new CadesSignatureResponse("x".repeat(100)))).get();
+        Assertions.assertEquals(1, stored.size());
+        // Still answered from memory
+        Assertions.assertEquals(100, cache.execute("owner", "cert", "key-2", "content", this::sign).get().getSignature().length());
+        Assertions.assertEquals(1, signatures.get());
+    }
+
+    private IdempotencyCache cache(int maxEntries) {
+        return new IdempotencyCache(storeProvider(), memoryGovernor, Runnable::run, 60, maxEntries, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    private CompletableFuture<CadesSignatureResponse> sign() {
+        return CompletableFuture.completedFuture(new CadesSignatureResponse("signature-" + signatures.incrementAndGet()));
+    }
+
+    private ObjectProvider<IdempotencyStore> storeProvider() {
+        IdempotencyStore store = new IdempotencyStore() {
+            @Override
+            public Optional<IdempotentResponse> find(String key) {
+                return Optional.ofNullable(stored.get(key));
+            }
+
+            @Override
+            public void save(String key, IdempotentResponse response) {
+                stored.put(key, response);
+            }
+        };
+        ObjectProvider<IdempotencyStore> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(store);
+        return provider;
+    }
+}
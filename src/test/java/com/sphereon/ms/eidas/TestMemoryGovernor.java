@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.api.model.signature.CadesSignatureRequest;
+import com.sphereon.ms.eidas.rest.EidasController;
+import com.sphereon.ms.eidas.rest.RestException;
+import com.sphereon.ms.eidas.service.DocumentBuffer;
+import com.sphereon.ms.eidas.service.DocumentBuffers;
+import com.sphereon.ms.eidas.service.EidasDelegate;
+import com.sphereon.ms.eidas.service.IdempotencyCache;
+import com.sphereon.ms.eidas.service.MemoryGovernor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestMemoryGovernor {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void largeDocumentsShouldWaitForTheBudget() throws Exception {
+        MemoryGovernor governor = new MemoryGovernor(10_000, 1000, 5000, meterRegistry);
+        DocumentBuffers buffers = new DocumentBuffers(100, directory.toString(), governor);
+        DocumentBuffer first = document(buffers, 8000);
+        governor.admit(first);
+        Assertions.assertEquals(8000, governor.getInFlight());
+
+        DocumentBuffer second = document(buffers, 5000);
+        CompletableFuture<Void> admitted = CompletableFuture.runAsync(() -> governor.admit(second));
+        while (governor.getWaiting() == 0) {
+            Thread.sleep(10);
+        }
+        Assertions.assertFalse(admitted.isDone());
+
+        first.close();
+        admitted.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(5000, governor.getInFlight());
+        Assertions.assertEquals(1, meterRegistry.get("eidas.memory.wait").timer().count());
+        second.close();
+        Assertions.assertEquals(0, governor.getInFlight());
+    }
+
+    @Test
+    public void largeDocumentsShouldBeRejectedWhenTheBudgetStaysExhausted() throws Exception {
+        MemoryGovernor governor = new MemoryGovernor(10_000, 1000, 50, meterRegistry);
+        DocumentBuffers buffers = new DocumentBuffers(100, directory.toString(), governor);
+        DocumentBuffer first = document(buffers, 8000);
+        governor.admit(first);
+
+        DocumentBuffer second = document(buffers, 5000);
+        Assertions.assertThrows(RestException.OverloadedException.class, () -> governor.admit(second));
+        Assertions.assertEquals(1, governor.getRejected());
+
+        // Small documents are never held up
+        DocumentBuffer small = document(buffers, 500);
+        governor.admit(small);
+        Assertions.assertEquals(8500, governor.getInFlight());
+
+        // A document over the budget runs on its own
+        first.close();
+        small.close();
+        DocumentBuffer huge = document(buffers, 50_000);
+        governor.admit(huge);
+        Assertions.assertEquals(10_000, governor.getInFlight());
+        huge.close();
+        second.close();
+        Assertions.assertEquals(0, governor.getInFlight());
+    }
+
+    @Test
+    public void buffersShouldSpillWhenTheBudgetIsExhausted() throws Exception {
+        MemoryGovernor governor = new MemoryGovernor(1000, 1000, 0, meterRegistry);
+        DocumentBuffers buffers = new DocumentBuffers(800, directory.toString(), governor);
+        DocumentBuffer first = document(buffers, 700);
+        Assertions.assertFalse(first.isSpilled());
+        Assertions.assertEquals(700, governor.getInFlight());
+
+        DocumentBuffer second = document(buffers, 700);
+        Assertions.assertTrue(second.isSpilled());
+        Assertions.assertEquals(700, governor.getInFlight());
+        Assertions.assertEquals(1, meterRegistry.get("eidas.memory.spills").tag("reason", "budget").counter().count());
+
+        first.close();
+        Assertions.assertEquals(0, governor.getInFlight());
+        DocumentBuffer third = document(buffers, 900);
+        Assertions.assertTrue(third.isSpilled());
+        Assertions.assertEquals(1, meterRegistry.get("eidas.memory.spills").tag("reason", "threshold").counter().count());
+
+        second.close();
+        third.close();
+        Assertions.assertEquals(0, governor.getInFlight());
+        // Closed before it was admitted, as when a request is cancelled while it waits
+        governor.admit(first);
+        Assertions.assertEquals(0, governor.getInFlight());
+    }
+
+    @Test
+    public void exceptionBeforeAdmitShouldReleaseTheBudget() throws Exception {
+        MemoryGovernor governor = new MemoryGovernor(10_000, 1000, 0, meterRegistry);
+        DocumentBuffers buffers = new DocumentBuffers(8000, directory.toString(), governor);
+        EidasDelegate eidasDelegate = mock(EidasDelegate.class);
+        when(eidasDelegate.getOwner()).thenThrow(new RestException.InvalidRequestException("No JWT"));
+        EidasController controller = new EidasController(eidasDelegate, mock(IdempotencyCache.class), governor);
+
+        DocumentBuffer content = document(buffers, 5000);
+        Assertions.assertEquals(5000, governor.getInFlight());
+        Assertions.assertThrows(RestException.InvalidRequestException.class,
+            () -> controller.sign("cert", null, new CadesSignatureRequest(content, "password")));
+        Assertions.assertEquals(0, governor.getInFlight());
+    }
+
+    @Test
+    public void abandonedBuffersShouldReleaseTheBudget() throws Exception {
+        MemoryGovernor governor = new MemoryGovernor(10_000, 1000, 0, meterRegistry);
+        DocumentBuffers buffers = new DocumentBuffers(8000, directory.toString(), governor);
+        // As when a later field of the request cannot be read, so the buffer never reaches the controller
+        document(buffers, 5000);
+        Assertions.assertEquals(5000, governor.getInFlight());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (governor.getInFlight() > 0 && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(0, governor.getInFlight());
+    }
+
+    private static DocumentBuffer document(DocumentBuffers buffers, int length) throws Exception {
+        DocumentBuffer buffer = buffers.create();
+        byte[] chunk = new byte[100];
+        for (int written = 0; written < length; written += chunk.length) {
+            buffer.write(chunk, 0, Math.min(chunk.length, length - written));
+        }
+        buffer.finish();
+        return buffer;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.config.MongoEntityIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.data.annotation.Persistent;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.util.ClassUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class TestMongoEntityIndex {
+
+    @Test
+    public void indexShouldMatchClasspathScan() throws ClassNotFoundException {
+        ClassPathScanningCandidateComponentProvider componentProvider = new ClassPathScanningCandidateComponentProvider(false);
+        componentProvider.addIncludeFilter(new AnnotationTypeFilter(Document.class));
+        componentProvider.addIncludeFilter(new AnnotationTypeFilter(Persistent.class));
+        Set<Class<?>> scanned = new HashSet<>();
+        for (BeanDefinition candidate : componentProvider.findCandidateComponents("com.sphereon.ms.eidas")) {
+            scanned.add(ClassUtils.forName(candidate.getBeanClassName(), getClass().getClassLoader()));
+        }
+
+        Assertions.assertEquals(scanned, MongoEntityIndex.ENTITIES, "Update MongoEntityIndex with the new entities");
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sphereon.ms.auth.jwt.JWTClaimAccess;
+import com.sphereon.ms.auth.jwt.JWTContext;
+import com.sphereon.ms.eidas.service.OwnerResolver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.mockito.ArgumentMatchers.any;
+
+public class TestOwnerResolver {
+    private JWTContext jwtContext;
+    private OwnerResolver ownerResolver;
+
+    @BeforeEach
+    public void init() {
+        jwtContext = Mockito.mock(JWTContext.class);
+        JWTClaimAccess jwtClaimAccess = Mockito.mock(JWTClaimAccess.class);
+        Mockito.when(jwtClaimAccess.getSphereonIdentifier(any(), any())).thenReturn("test-owner");
+        Mockito.when(jwtContext.claimAccess()).thenReturn(jwtClaimAccess);
+        ownerResolver = new OwnerResolver(jwtContext, new ObjectMapper(), 100, 3600);
+    }
+
+    @AfterEach
+    public void reset() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void ownerShouldBeCachedUntilTokenExpiry() {
+        String token = token(System.currentTimeMillis() / 1000 + 600);
+        for (int i = 0; i < 3; i++) {
+            startRequest(token);
+            Assertions.assertEquals("test-owner", ownerResolver.resolve());
+            Assertions.assertEquals("test-owner", ownerResolver.resolve());
+        }
+        Mockito.verify(jwtContext, Mockito.times(1)).claimAccess();
+    }
+
+    @Test
+    public void expiredTokenShouldNotBeCached() {
+        String token = token(System.currentTimeMillis() / 1000 - 10);
+        startRequest(token);
+        ownerResolver.resolve();
+        startRequest(token);
+        ownerResolver.resolve();
+        Mockito.verify(jwtContext, Mockito.times(2)).claimAccess();
+    }
+
+    private static void startRequest(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static String token(long exp) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(("{\"sub\":\"test\",\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8))
+                + ".signature";
+    }
+}
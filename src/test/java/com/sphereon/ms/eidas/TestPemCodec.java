@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.service.PemCodec;
+import org.bouncycastle.util.io.pem.PemObject;
+import org.bouncycastle.util.io.pem.PemWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class TestPemCodec {
+    private final Random random = new Random(42);
+
+    @Test
+    public void encodingShouldMatchBouncyCastle() throws Exception {
+        for (int length : new int[]{0, 1, 2, 3, 47, 48, 49, 96, 1000, 100_001}) {
+            byte[] der = bytes(length);
+            String expected = bouncyCastlePem(der);
+
+            Assertions.assertEquals(expected, PemCodec.encode(der));
+            Assertions.assertEquals(expected.length(), PemCodec.encodedLength(length));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            PemCodec.encode(der, out);
+            Assertions.assertEquals(expected, out.toString(StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void decodingShouldSkipArmourAndWhitespace() throws Exception {
+        for (int length : new int[]{0, 1, 2, 3, 48, 1000, 100_001}) {
+            byte[] der = bytes(length);
+            String pem = "  " + PemCodec.encode(der).replace("\n", "\r\n \t");
+
+            Assertions.assertArrayEquals(der, PemCodec.decode(pem));
+            Assertions.assertArrayEquals(der, PemCodec.decode(new ByteArrayInputStream(pem.getBytes(StandardCharsets.US_ASCII))));
+        }
+    }
+
+    @Test
+    public void singleLinePemShouldDecode() throws Exception {
+        for (int length : new int[]{0, 1, 2, 3, 48, 1000}) {
+            byte[] der = bytes(length);
+            String base64 = PemCodec.encode(der).replace("\n", "")
+                    .replace("-----BEGIN PKCS7-----", "").replace("-----END PKCS7-----", "");
+
+            for (String pem : new String[]{
+                    "-----BEGIN PKCS7-----" + base64 + "-----END PKCS7-----",
+                    "-----BEGIN PKCS7-----\n" + base64 + "\n-----END PKCS7-----",
+                    "-----BEGIN X509-PKCS7-----" + base64 + "-----END X509-PKCS7-----\n"}) {
+                Assertions.assertArrayEquals(der, PemCodec.decode(pem), pem);
+                Assertions.assertArrayEquals(der, PemCodec.decode(new ByteArrayInputStream(pem.getBytes(StandardCharsets.US_ASCII))));
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (Writer writer = PemCodec.decodingWriter(out)) {
+                    writer.write(pem);
+                }
+                Assertions.assertArrayEquals(der, out.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void strayDashesShouldBeRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PemCodec.decode("-----BEGIN PKCS7-----\nAB-CD\n-----END PKCS7-----\n"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PemCodec.decode("-----BEGIN PKCS7-----\nABCD-\nEFGH\n-----END PKCS7-----\n"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PemCodec.decode("-----PKCS7-----\nABCD\n"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PemCodec.decode("-----BEGIN PKCS7\nABCD\n"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PemCodec.decode("ABCD-----END PKCS7"));
+    }
+
+    @Test
+    public void invalidBase64ShouldBeRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PemCodec.decode("-----BEGIN PKCS7-----\nAB*D\n"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PemCodec.decode("ABCDE"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PemCodec.decode("AB=C"));
+    }
+
+    private byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String bouncyCastlePem(byte[] der) throws Exception {
+        StringWriter sw = new StringWriter();
+        try (PemWriter writer = new PemWriter(sw)) {
+            writer.writeObject(new PemObject("PKCS7", der));
+        }
+        return sw.toString().replace(System.lineSeparator(), "\n");
+    }
+}
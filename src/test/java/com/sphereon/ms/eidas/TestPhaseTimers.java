@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.config.BulkheadProperties;
+import com.sphereon.ms.eidas.nosql.EidasCertificateRepository;
+import com.sphereon.ms.eidas.service.AuditLog;
+import com.sphereon.ms.eidas.service.Bulkheads;
+import com.sphereon.ms.eidas.service.ConcurrencyLimits;
+import com.sphereon.ms.eidas.service.EidasDelegate;
+import com.sphereon.ms.eidas.service.OwnerResolver;
+import com.sphereon.ms.eidas.service.PhaseTimers;
+import com.sphereon.ms.eidas.service.SlowRequestRecorder;
+import com.sphereon.ms.eidas.service.UsageMeter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+
+public class TestPhaseTimers {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PhaseTimers phaseTimers = new PhaseTimers(meterRegistry, OpenTelemetry.noop().getTracer("test"));
+
+    @Test
+    public void phasesShouldBeTaggedWithTheirOutcome() {
+        Assertions.assertEquals("unlocked", phaseTimers.time(UsageMeter.Operation.SIGN, PhaseTimers.UNLOCK, "RSA", () -> "unlocked"));
+        Assertions.assertThrows(IllegalStateException.class, () -> phaseTimers.time(UsageMeter.Operation.SIGN,
+            PhaseTimers.UNLOCK, "RSA", () -> {
+                throw new IllegalStateException("Wrong password");
+            }));
+
+        Assertions.assertEquals(1, timer("sign", PhaseTimers.UNLOCK, "success", "RSA").count());
+        Assertions.assertEquals(1, timer("sign", PhaseTimers.UNLOCK, "failure", "RSA").count());
+    }
+
+    @Test
+    public void recordedPhasesWithoutKeyAlgorithmShouldBeUnknown() {
+        phaseTimers.record(UsageMeter.Operation.VERIFY, PhaseTimers.CMS_PARSE, null, 1000, false);
+
+        Timer timer = timer("verify", PhaseTimers.CMS_PARSE, "failure", PhaseTimers.UNKNOWN);
+        Assertions.assertEquals(1, timer.count());
+        Assertions.assertEquals(1000, timer.totalTime(TimeUnit.NANOSECONDS), 0.1);
+    }
+
+    @Test
+    public void signAndVerifyShouldBeTimedAndMetered() {
+        UsageMeter usageMeter = Mockito.mock(UsageMeter.class);
+        EidasDelegate eidasDelegate = eidasDelegate(usageMeter);
+
+        String signature = eidasDelegate.signWithCertificate("test-cert", "testpassword",
+            Base64.getEncoder().encodeToString("Hello".getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertTrue(eidasDelegate.verify(signature).isVerified());
+
+        Mockito.verify(usageMeter).record(Mockito.eq("test-owner"), Mockito.eq(UsageMeter.Operation.SIGN), Mockito.eq(5L), Mockito.anyLong());
+        Mockito.verify(usageMeter).record(Mockito.eq("test-owner"), Mockito.eq(UsageMeter.Operation.VERIFY), Mockito.anyLong(), Mockito.anyLong());
+        Assertions.assertEquals(1, meterRegistry.get(PhaseTimers.METRIC)
+            .tags("operation", "sign", "phase", PhaseTimers.PRIVATE_KEY, "outcome", "success").timer().count());
+        Assertions.assertEquals(1, timer("verify", PhaseTimers.CMS_PARSE, "success", "RSA").count());
+    }
+
+    @Test
+    public void warmUpShouldNotBeTimed() {
+        EidasDelegate eidasDelegate = eidasDelegate(Mockito.mock(UsageMeter.class));
+        Assertions.assertTrue(eidasDelegate.signAndVerifyUnmetered(certificate(), "testpassword",
+            "Hello".getBytes(StandardCharsets.UTF_8)).isVerified());
+        Assertions.assertTrue(meterRegistry.find(PhaseTimers.METRIC).timers().isEmpty());
+
+        Assertions.assertEquals("unlocked", PhaseTimers.noop().time(UsageMeter.Operation.SIGN, PhaseTimers.UNLOCK, "RSA", () -> "unlocked"));
+    }
+
+    private EidasDelegate eidasDelegate(UsageMeter usageMeter) {
+        OwnerResolver ownerResolver = Mockito.mock(OwnerResolver.class);
+        Mockito.when(ownerResolver.resolve()).thenReturn("test-owner");
+        EidasCertificateRepository certificateRepository = Mockito.mock(EidasCertificateRepository.class);
+        Mockito.when(certificateRepository.findByOwnerAndName(any(), any())).thenReturn(Optional.of(certificate()));
+        return new EidasDelegate(ownerResolver, certificateRepository, null, usageMeter, Mockito.mock(AuditLog.class),
+            new ConcurrencyLimits(4, 1, 8, 4, 1, 8), new Bulkheads(new BulkheadProperties(), new SimpleMeterRegistry()),
+            phaseTimers, Mockito.mock(SlowRequestRecorder.class));
+    }
+
+    private static EidasCertificate certificate() {
+        return new EidasCertificate("test-owner", "test-cert", TestEidasDelegate.TEST_CERT_BASE64);
+    }
+
+    private Timer timer(String operation, String phase, String outcome, String keyAlgorithm) {
+        return meterRegistry.get(PhaseTimers.METRIC)
+            .tags("operation", operation, "phase", phase, "outcome", outcome, "keyAlgorithm", keyAlgorithm)
+            .timer();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.config.FlightRecorderProperties;
+import com.sphereon.ms.eidas.service.OperationEvent;
+import com.sphereon.ms.eidas.service.SlowRequestRecorder;
+import com.sphereon.ms.eidas.service.UsageMeter;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TestSlowRequestRecorder {
+    @TempDir
+    Path dumpDirectory;
+
+    private SlowRequestRecorder recorder;
+
+    @AfterEach
+    public void close() {
+        recorder.close();
+    }
+
+    @Test
+    public void slowRequestShouldDumpRecordingWithOperationEvent() throws Exception {
+        recorder = new SlowRequestRecorder(properties(1, 1000, 1));
+        OperationEvent event = recorder.begin(UsageMeter.Operation.SIGN, "test-owner", "test-cert", 42);
+        recorder.end(event, TimeUnit.MILLISECONDS.toNanos(10), true);
+        // Within the minimum dump interval, no second dump
+        recorder.end(recorder.begin(UsageMeter.Operation.VERIFY, "test-owner", null, 42), TimeUnit.MILLISECONDS.toNanos(10), true);
+
+        List<Path> dumps = awaitDumps();
+        Assertions.assertEquals(1, dumps.size());
+        Assertions.assertTrue(dumps.get(0).getFileName().toString().endsWith("-slow-sign.jfr"));
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dumps.get(0)).stream()
+            .filter(recorded -> recorded.getEventType().getName().equals(OperationEvent.NAME))
+            .collect(Collectors.toList());
+        Assertions.assertEquals("test-cert", events.get(0).getString("certificateName"));
+        Assertions.assertEquals(42, events.get(0).getLong("payloadSize"));
+    }
+
+    @Test
+    public void dumpsBeyondMaximumShouldBeDeleted() throws Exception {
+        recorder = new SlowRequestRecorder(properties(0, 0, 1));
+        recorder.dump("first");
+        Path second = recorder.dump("second");
+
+        Assertions.assertEquals(List.of(second), listDumps());
+    }
+
+    private FlightRecorderProperties properties(long slowRequestThresholdMs, long minDumpIntervalSeconds, int maxDumps) {
+        FlightRecorderProperties properties = new FlightRecorderProperties();
+        properties.setSlowRequestThresholdMs(slowRequestThresholdMs);
+        properties.setMinDumpIntervalSeconds(minDumpIntervalSeconds);
+        properties.setMaxDumps(maxDumps);
+        properties.setDumpDirectory(dumpDirectory.toString());
+        return properties;
+    }
+
+    private List<Path> awaitDumps() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (listDumps().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        return listDumps();
+    }
+
+    private List<Path> listDumps() throws Exception {
+        if (!Files.exists(dumpDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dumpDirectory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".jfr")).collect(Collectors.toList());
+        }
+    }
+}
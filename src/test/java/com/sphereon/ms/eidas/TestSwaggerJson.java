@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sphereon.ms.eidas.config.RestControllerConfigTemplate;
+import io.swagger.util.Json;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.InputStream;
+
+/**
+ * The fast-startup profile serves the swagger JSON from the classpath instead of springfox, so it has to be regenerated
+ * with WriteSwaggerJsonTest whenever the API changes
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = EidasCertApplication.class)
+@ActiveProfiles("write-swagger")
+public class TestSwaggerJson {
+
+    @Value("${local.server.port}")
+    private String port;
+
+    @Test
+    public void servedSpecShouldMatchSpringfox() throws Exception {
+        assertMatchesSpringfox(RestControllerConfigTemplate.Mode.STORE, "swagger.store.json");
+        assertMatchesSpringfox(RestControllerConfigTemplate.Mode.SDK, "swagger.sdk.json");
+    }
+
+    private void assertMatchesSpringfox(RestControllerConfigTemplate.Mode mode, String jsonFile) throws Exception {
+        JsonNode generated = Json.mapper().readTree(Json.pretty(WriteSwaggerJsonTest.readSwagger(port, mode)));
+        JsonNode served;
+        try (InputStream in = new ClassPathResource("swagger/" + jsonFile).getInputStream()) {
+            served = Json.mapper().readTree(in);
+        }
+
+        Assertions.assertEquals(generated, served, "Run WriteSwaggerJsonTest to regenerate " + jsonFile);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.config.AdmissionProperties;
+import com.sphereon.ms.eidas.service.TenantAdmission;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestTenantAdmission {
+
+    @Test
+    public void burstShouldBeAdmittedThenRateLimited() {
+        TenantAdmission tenantAdmission = new TenantAdmission(properties(1, 3, 100));
+        for (int i = 0; i < 3; i++) {
+            TenantAdmission.Admission admission = tenantAdmission.tryAdmit("noisy");
+            Assertions.assertTrue(admission.isAdmitted());
+            admission.release();
+        }
+        TenantAdmission.Admission rejected = tenantAdmission.tryAdmit("noisy");
+        Assertions.assertFalse(rejected.isAdmitted());
+        Assertions.assertEquals(1, rejected.getRetryAfterSeconds());
+
+        // Other tenants have their own bucket
+        Assertions.assertTrue(tenantAdmission.tryAdmit("quiet").isAdmitted());
+    }
+
+    @Test
+    public void concurrencyShouldBeLimitedUntilReleased() {
+        TenantAdmission tenantAdmission = new TenantAdmission(properties(1000, 1000, 2));
+        TenantAdmission.Admission first = tenantAdmission.tryAdmit("owner");
+        TenantAdmission.Admission second = tenantAdmission.tryAdmit("owner");
+        Assertions.assertTrue(first.isAdmitted() && second.isAdmitted());
+        Assertions.assertFalse(tenantAdmission.tryAdmit("owner").isAdmitted());
+
+        first.release();
+        first.release();
+        Assertions.assertTrue(tenantAdmission.tryAdmit("owner").isAdmitted());
+        Assertions.assertEquals(2, tenantAdmission.states().get(0).getInFlight());
+        Assertions.assertEquals(1, tenantAdmission.states().get(0).getConcurrencyLimited());
+    }
+
+    @Test
+    public void unknownTiersShouldBeRejected() {
+        AdmissionProperties properties = properties(1, 1, 1);
+        properties.validate();
+        properties.getOwners().put("owner", "bulk");
+        Assertions.assertThrows(IllegalStateException.class, properties::validate);
+
+        properties.getOwners().clear();
+        properties.setDefaultTier("missing");
+        Assertions.assertThrows(IllegalStateException.class, properties::validate);
+    }
+
+    private static AdmissionProperties properties(double ratePerSecond, int burst, int maxConcurrent) {
+        AdmissionProperties properties = new AdmissionProperties();
+        AdmissionProperties.Tier tier = new AdmissionProperties.Tier();
+        tier.setRatePerSecond(ratePerSecond);
+        tier.setBurst(burst);
+        tier.setMaxConcurrent(maxConcurrent);
+        properties.getTiers().put("default", tier);
+        return properties;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.sphereon.ms.eidas.config.BulkheadProperties;
+import com.sphereon.ms.eidas.nosql.TracingCommandListener;
+import com.sphereon.ms.eidas.service.Bulkheads;
+import com.sphereon.ms.eidas.service.PhaseTimers;
+import com.sphereon.ms.eidas.service.UsageMeter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestTracing {
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+        .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+        .build();
+    private final Tracer tracer = tracerProvider.get("test");
+
+    @AfterEach
+    public void shutdown() {
+        tracerProvider.shutdown();
+    }
+
+    @Test
+    public void phaseShouldBeChildOfCurrentSpan() {
+        PhaseTimers phaseTimers = new PhaseTimers(new SimpleMeterRegistry(), tracer);
+        Span request = tracer.spanBuilder("HTTP POST").startSpan();
+        try (Scope ignored = request.makeCurrent()) {
+            phaseTimers.time(UsageMeter.Operation.SIGN, PhaseTimers.SIGN_DOCUMENT, "RSA", () -> "signed");
+        } finally {
+            request.end();
+        }
+
+        SpanData phase = findSpan("sign " + PhaseTimers.SIGN_DOCUMENT);
+        Assertions.assertEquals(request.getSpanContext().getSpanId(), phase.getParentSpanId());
+        Assertions.assertEquals(request.getSpanContext().getTraceId(), phase.getTraceId());
+        Assertions.assertEquals("RSA", phase.getAttributes().asMap().entrySet().stream()
+            .filter(entry -> entry.getKey().getKey().equals("keyAlgorithm"))
+            .findFirst().orElseThrow().getValue());
+    }
+
+    @Test
+    public void bulkheadTaskShouldKeepParentSpan() throws Exception {
+        Bulkheads bulkheads = new Bulkheads(new BulkheadProperties(), new SimpleMeterRegistry());
+        Span request = tracer.spanBuilder("HTTP POST").startSpan();
+        try (Scope ignored = request.makeCurrent()) {
+            String traceId = bulkheads.getSignExecutor().submit(() -> Span.current().getSpanContext().getTraceId())
+                .get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(request.getSpanContext().getTraceId(), traceId);
+        } finally {
+            request.end();
+            bulkheads.shutdown();
+        }
+    }
+
+    @Test
+    public void mongoCommandShouldCreateClientSpan() {
+        TracingCommandListener listener = new TracingCommandListener(tracer);
+        ConnectionDescription connection = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+        listener.commandStarted(new CommandStartedEvent(1, connection, "eidas", "find",
+            new BsonDocument("find", new BsonString("eidasCertificate"))));
+        listener.commandSucceeded(new CommandSucceededEvent(1, connection, "find", new BsonDocument(), 1000));
+
+        SpanData span = findSpan("find eidasCertificate");
+        Assertions.assertEquals(SpanKind.CLIENT, span.getKind());
+        Assertions.assertTrue(span.hasEnded());
+    }
+
+    private SpanData findSpan(String name) {
+        return exporter.getFinishedSpanItems().stream()
+            .filter(span -> span.getName().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("No span named " + name));
+    }
+}
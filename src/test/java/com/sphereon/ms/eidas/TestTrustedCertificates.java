@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.config.BulkheadProperties;
+import com.sphereon.ms.eidas.service.Bulkheads;
+import com.sphereon.ms.eidas.service.EidasDelegate;
+import com.sphereon.ms.eidas.service.PhaseTimers;
+import com.sphereon.ms.eidas.service.TrustedCertificates;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+public class TestTrustedCertificates {
+    private final Bulkheads bulkheads = new Bulkheads(new BulkheadProperties(), new SimpleMeterRegistry());
+    private StubRevocationResponders responders;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    public void startResponders() throws Exception {
+        responders = new StubRevocationResponders();
+    }
+
+    @AfterEach
+    public void shutdown() {
+        responders.close();
+        bulkheads.shutdown();
+    }
+
+    @Test
+    public void noFilesShouldKeepTrustingTheSignature() throws Exception {
+        Assertions.assertFalse(new TrustedCertificates(new String[]{""}).isConfigured());
+    }
+
+    @Test
+    public void verificationWithTrustAnchorsShouldCheckRevocation() throws Exception {
+        Path caFile = responders.writeCaCertificate(directory.resolve("ca.pem"));
+        TrustedCertificates trustedCertificates = new TrustedCertificates(new String[]{caFile.toString()});
+        Assertions.assertTrue(trustedCertificates.isConfigured());
+
+        // Only the collaborators of the sign and verify core
+        EidasDelegate eidasDelegate = new EidasDelegate(null, null, null, null, null, null, bulkheads,
+            new PhaseTimers(new SimpleMeterRegistry(), OpenTelemetry.noop().getTracer("test")), null);
+        eidasDelegate.setTrustedCertificates(trustedCertificates);
+        EidasCertificate certificate = new EidasCertificate("test-owner", "issued", responders.issue("RSA", "password"));
+
+        eidasDelegate.signAndVerifyUnmetered(certificate, "password", "Hello".getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertTrue(responders.getOcspRequests() + responders.getCrlRequests() > 0);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.api.model.usage.TenantUsage;
+import com.sphereon.ms.eidas.nosql.UsageStore;
+import com.sphereon.ms.eidas.service.UsageMeter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestUsageMeter {
+
+    @Test
+    public void flushShouldWriteIncrementsOnlyOnce() {
+        List<TenantUsage> written = new ArrayList<>();
+        UsageMeter usageMeter = new UsageMeter(storeProvider((period, increments) -> written.addAll(increments)));
+        usageMeter.record("owner-a", UsageMeter.Operation.SIGN, 100, 10);
+        usageMeter.record("owner-a", UsageMeter.Operation.SIGN, 50, 5);
+        usageMeter.record("owner-b", UsageMeter.Operation.VERIFY, 7, 1);
+
+        usageMeter.flush();
+        Assertions.assertEquals(2, written.size());
+        TenantUsage ownerA = written.stream().filter(usage -> usage.getOwner().equals("owner-a")).findFirst().orElseThrow();
+        Assertions.assertEquals(new TenantUsage("owner-a", "SIGN", 2, 150, 15), ownerA);
+
+        written.clear();
+        usageMeter.flush();
+        Assertions.assertTrue(written.isEmpty());
+
+        usageMeter.record("owner-a", UsageMeter.Operation.SIGN, 1, 1);
+        usageMeter.flush();
+        Assertions.assertEquals(List.of(new TenantUsage("owner-a", "SIGN", 1, 1, 1)), written);
+    }
+
+    @Test
+    public void failedFlushShouldBeRetried() {
+        List<TenantUsage> written = new ArrayList<>();
+        boolean[] fail = {true};
+        UsageMeter usageMeter = new UsageMeter(storeProvider((Instant period, List<TenantUsage> increments) -> {
+            if (fail[0]) {
+                throw new IllegalStateException("database down");
+            }
+            written.addAll(increments);
+        }));
+        usageMeter.record("owner-a", UsageMeter.Operation.VERIFY, 10, 1);
+        usageMeter.flush();
+        usageMeter.record("owner-a", UsageMeter.Operation.VERIFY, 10, 1);
+        fail[0] = false;
+        usageMeter.flush();
+        Assertions.assertEquals(List.of(new TenantUsage("owner-a", "VERIFY", 2, 20, 2)), written);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<UsageStore> storeProvider(UsageStore usageStore) {
+        ObjectProvider<UsageStore> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(usageStore);
+        return provider;
+    }
+}
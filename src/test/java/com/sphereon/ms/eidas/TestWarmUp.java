@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2022 Sphereon BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.ms.eidas;
+
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificate;
+import com.sphereon.ms.eidas.api.model.certificate.EidasCertificateInfo;
+import com.sphereon.ms.eidas.config.BulkheadProperties;
+import com.sphereon.ms.eidas.config.WarmUpProperties;
+import com.sphereon.ms.eidas.nosql.EidasCertificateStore;
+import com.sphereon.ms.eidas.service.Bulkheads;
+import com.sphereon.ms.eidas.service.EidasDelegate;
+import com.sphereon.ms.eidas.service.KeyEnvelopeService;
+import com.sphereon.ms.eidas.service.WarmUp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+
+public class TestWarmUp {
+    private final EidasDelegate eidasDelegate = Mockito.mock(EidasDelegate.class);
+    private final EidasCertificateStore certificateRepository = Mockito.mock(EidasCertificateStore.class);
+    private final KeyEnvelopeService keyEnvelopeService = Mockito.mock(KeyEnvelopeService.class);
+    private final Bulkheads bulkheads = new Bulkheads(new BulkheadProperties(), new SimpleMeterRegistry());
+
+    @AfterEach
+    public void shutdown() {
+        bulkheads.shutdown();
+    }
+
+    @Test
+    public void shouldSignWithSyntheticCertificatesAndLoadOwners() {
+        WarmUpProperties properties = new WarmUpProperties();
+        properties.setIterations(3);
+        properties.setOwners(List.of("hot-tenant"));
+        Mockito.when(certificateRepository.findPage(eq("hot-tenant"), any(), isNull(), anyInt()))
+            .thenReturn(List.of(new EidasCertificateInfo("first", null, null, "RSA", null)));
+
+        new WarmUp(properties, eidasDelegate, certificateRepository, keyEnvelopeService, bulkheads, null).run(null);
+
+        // RSA and EC
+        Mockito.verify(eidasDelegate, Mockito.times(6)).signAndVerifyUnmetered(any(EidasCertificate.class), anyString(), any());
+        Mockito.verify(keyEnvelopeService).preload("hot-tenant");
+        Mockito.verify(certificateRepository).findByOwnerAndName("hot-tenant", "first");
+    }
+
+    @Test
+    public void failingStepShouldNotPreventStartup() {
+        WarmUpProperties properties = new WarmUpProperties();
+        properties.setIterations(1);
+        properties.setKeyAlgorithms(List.of("RSA"));
+        Mockito.when(eidasDelegate.signAndVerifyUnmetered(any(), anyString(), any())).thenThrow(new IllegalStateException("broken"));
+
+        new WarmUp(properties, eidasDelegate, certificateRepository, keyEnvelopeService, bulkheads, null).run(null);
+
+        Mockito.verify(eidasDelegate).signAndVerifyUnmetered(any(), anyString(), any());
+
+        properties.setFailOnError(true);
+        Assertions.assertThrows(IllegalStateException.class,
+            () -> new WarmUp(properties, eidasDelegate, certificateRepository, keyEnvelopeService, bulkheads, null).run(null));
+    }
+}
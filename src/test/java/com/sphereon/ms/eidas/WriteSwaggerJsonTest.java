@@ -67,15 +67,11 @@ public class WriteSwaggerJsonTest {
         }
 
         CloseableHttpClient client = HttpClients.createDefault();
-        HttpGet get = new HttpGet(getServiceUrl(mode));
+        HttpGet get = new HttpGet(getServiceUrl(port, mode));
         CloseableHttpResponse response = client.execute(get);
         Assertions.assertNotNull(response);
         Assertions.assertEquals(200, response.getStatusLine().getStatusCode());
-        SwaggerParser swaggerParser = new SwaggerParser();
-        Swagger swagger = swaggerParser.read(getServiceUrl(mode));
-        if (mode == RestControllerConfigTemplate.Mode.SDK) {
-            swagger.setBasePath("/crypto/keys/0.9");
-        }
+        Swagger swagger = readSwagger(port, mode);
 
         swaggerFile.setWritable(true);
 
@@ -88,7 +84,19 @@ public class WriteSwaggerJsonTest {
     }
 
 
-    private String getServiceUrl(RestControllerConfigTemplate.Mode mode) {
+    /**
+     * @return The springfox spec of the group as it is written to the swagger JSON
+     */
+    static Swagger readSwagger(String port, RestControllerConfigTemplate.Mode mode) {
+        Swagger swagger = new SwaggerParser().read(getServiceUrl(port, mode));
+        if (mode == RestControllerConfigTemplate.Mode.SDK) {
+            swagger.setBasePath("/crypto/keys/0.9");
+        }
+        return swagger;
+    }
+
+
+    private static String getServiceUrl(String port, RestControllerConfigTemplate.Mode mode) {
         return String.format("http://localhost:%s/v2/api-docs?group=%s", port, mode.getGroupName());
     }
 